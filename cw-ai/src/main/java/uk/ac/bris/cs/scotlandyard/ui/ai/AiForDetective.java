@@ -7,8 +7,6 @@ import javax.annotation.Nonnull;
 
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.graph.ImmutableValueGraph;
 import io.atlassian.fugue.Pair;
 import uk.ac.bris.cs.scotlandyard.model.*;
 
@@ -27,23 +25,40 @@ public class AiForDetective implements Ai {
 		}
 	};
 
+	//where mrx could be, shared by every detective of the game
+	private MrXBelief belief;
+
 	@Nonnull @Override public String name() { return "AiForDetective"; }
 
+	@Override public boolean plays(@Nonnull Piece side) { return side.isDetective(); }
+
+	@Override public void onTerminate() { belief = null; }
+
 	@Nonnull @Override public Move pickMove(
 			@Nonnull Board board,
 			Pair<Long, TimeUnit> timeoutPair) {
-		// returns a random move, replace with your own implementation
+		if (belief == null) {
+			GameSetup setup = board.getSetup();
+			//mrx starts on one of the usual locations, if the graph has them
+			belief = setup.graph.nodes().containsAll(ScotlandYard.MRX_LOCATIONS)
+					? new MrXBelief(setup, ScotlandYard.MRX_LOCATIONS)
+					: new MrXBelief(setup);
+		}
+		belief.update(board);
 		var moves = board.getAvailableMoves().asList();
 		return getBestMove(moves, board);
 	}
 
+	//closest to where mrx could be, then freedom
 	private Move getBestMove(ImmutableList<Move> moves, Board board) {
-		int score = -1;
+		int score = Integer.MIN_VALUE;
 		List<Move> possibleMoves = new ArrayList<>();
-		ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> graph = board.getSetup().graph;
+		DistanceOracle distances = DistanceOracle.hops(board.getSetup());
+		TransportTable table = distances.table();
 		for (int i = 0; i < moves.size(); i++) {
-			int destination = moves.get(i).accept(visitor);
-			int tempScore = graph.adjacentNodes(destination).size();//freedom
+			int destination = table.indexOf(moves.get(i).accept(visitor));
+			int nearest = nearestCandidate(distances, destination);
+			int tempScore = -nearest * 256 + table.degree(destination);
 			if(tempScore > score){
 				score = tempScore;
 				possibleMoves = new ArrayList<>();
@@ -55,4 +70,13 @@ public class AiForDetective implements Ai {
 		Random rand = new Random();
 		return possibleMoves.get(rand.nextInt(possibleMoves.size()));
 	}
+
+	//journeys to the nearest node mrx could be at, capped so that an empty belief scores them all alike
+	private int nearestCandidate(DistanceOracle distances, int from) {
+		int nearest = 255;
+		for (int index = 0; index < distances.table().nodeCount(); index++) {
+			if (belief.containsIndex(index)) nearest = Math.min(nearest, distances.distanceByIndex(from, index));
+		}
+		return nearest;
+	}
 }
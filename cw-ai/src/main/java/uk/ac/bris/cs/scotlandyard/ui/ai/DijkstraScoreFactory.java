@@ -1,58 +1,28 @@
 package uk.ac.bris.cs.scotlandyard.ui.ai;
 
-import com.google.common.collect.ImmutableSet;
-import com.google.common.graph.ImmutableValueGraph;
 import org.checkerframework.common.returnsreceiver.qual.This;
 import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.DistanceOracle;
 import uk.ac.bris.cs.scotlandyard.model.Piece;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.SearchBoard;
+import uk.ac.bris.cs.scotlandyard.model.TransportTable;
 
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 
 public class DijkstraScoreFactory {
 
-    private static Dijkstra<Integer> dijkstra;
-
-    //lazy singleton
+    //the distances on the board's own graph, safe to call from any thread
     public Dijkstra syncBuild(Board board){
-        if(dijkstra == null){
-          //only construct once
-            synchronized (this.getClass()){
-                if(dijkstra == null){
-                    build(board);
-                }
-            }
-        }
-        return dijkstra;
+        return build(board);
     }
 
     //factory design pattern
-    private void build(Board board){
-        ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> graph = board.getSetup().graph;
-        Set<Integer> nodes = graph.nodes(); //a set of all points
-        Dijkstra<Integer> directNet = new Dijkstra<>(nodes.size());
-        nodes.stream().forEach(directNet::addVertex);
-        for (Integer node : nodes) {
-            Set<Integer> destinations = graph.adjacentNodes(node);
-            for (Integer destination : destinations) {
-                int weight = Integer.MAX_VALUE;
-                //get the least weight
-                for (ScotlandYard.Transport t : Objects.requireNonNull(graph.edgeValueOrDefault(node, destination, ImmutableSet.of()))) {
-                     //choose the cheapest tickets
-                    int temp = getWeight(t.requiredTicket());
-                    weight = weight > temp ? temp : weight;
-                }
-                //construct edge
-                directNet.addEdge(node, destination, weight);
-            }
-        }
-        this.dijkstra = directNet;
+    private Dijkstra build(Board board){
+        //all-pairs distances, computed once per graph and cached by DistanceOracle, so this is a lookup
+        return new Dijkstra(DistanceOracle.weighted(board.getSetup(), this::getWeight));
     }
 
 
@@ -69,98 +39,25 @@ public class DijkstraScoreFactory {
         return 1;
     }
 
-    class Dijkstra<V> {
-        private List<V> vertexList;
-
-       // Coordinates are positions, values are distances
-       //construct from build
-        private int[][] edgeMatrix;
-
-        //the amount of nodes, equals to the size of vertexList
-        private int vertices;
-
+    class Dijkstra {
 
-       // initial state  all vertices are unvisited and all edges have infinite weight
+        //shortest distances between all nodes, an edge costs its cheapest ticket
+        private final DistanceOracle oracle;
 
-        public Dijkstra(int size) {
-            vertexList = new ArrayList<>();
-            edgeMatrix = new int[size][size];
-            this.vertices = 0;
-            for (int i = 0; i < size; i++) {
-                for (int j = 0; j < size; j++) {
-                    if (i == j) {
-                        this.edgeMatrix[i][j] = 0;
-                    } else {
-                        this.edgeMatrix[i][j] = Integer.MAX_VALUE;
-                    }
-                }
-            }
+        public Dijkstra(DistanceOracle oracle) {
+            this.oracle = oracle;
         }
 
-        public void addVertex(V v) {
-            this.vertexList.add(v);
-            this.vertices++;
-        }
-
-        public void addEdge(V from, V to, int weight) {
-            int i = this.vertexList.indexOf(from);
-            int j = this.vertexList.indexOf(to);
-            this.edgeMatrix[i][j] = weight;
+        /**
+         * @return the graph the distances are on
+         */
+        public TransportTable table() {
+            return oracle.table();
         }
 
-        public int dijkstra(V v0, V vi) {
+        public int dijkstra(int v0, int vi) {
             //calculate the distance, the point which near to mrx
-            //can be improved
-            ArrayList<Integer> listU = new ArrayList<>();
-
-            int[] dist = new int[this.vertices]; //distance from all points to the start
-            int[] path = new int[this.vertices];
-
-
-            int start = this.vertexList.indexOf(v0);
-            int end = this.vertexList.indexOf(vi);
-
-            //iterate the vertices util the start vertex
-            for (int i = 0; i < this.vertices; i++) {
-                if (i == start) {
-                    continue;
-                }
-                listU.add(i);
-            }
-            //calculate the start’s next nodes and their distances
-            for (int i = 0; i < this.vertices; i++) {
-                dist[i] = this.edgeMatrix[start][i];//weight
-                if (this.edgeMatrix[start][i] == Integer.MAX_VALUE) {
-                    path[i] = -1;
-                } else {
-                    path[i] = start;
-                }
-            }
-
-            int minIndex;
-            do {
-                //get the min distance node index in the start's next nodes
-                minIndex = listU.get(0);
-                for (int i = 1; i < listU.size(); i++) {
-                    if (dist[listU.get(i)] < dist[minIndex]) {
-                        minIndex = listU.get(i);
-                    }
-                }
-                //remove it
-                listU.remove((Integer) minIndex);
-                // update distances of all next nodes
-                for (int i = 0; i < this.vertices; i++) {
-                    //get next nodes of the minIndex node
-                    if (this.edgeMatrix[minIndex][i] != 0 && this.edgeMatrix[minIndex][i] < Integer.MAX_VALUE) {
-                        //check if path through minIndex to reach that vertex has a lower total distance
-                        if (this.edgeMatrix[minIndex][i] + dist[minIndex] < dist[i]) {
-                            dist[i] = this.edgeMatrix[minIndex][i] + dist[minIndex];
-                            path[i] = minIndex;
-                        }
-                    }
-                }
-            } while (minIndex != end && !listU.isEmpty()); // reaches the destination  or listU empty
-            return dist[end];
+            return oracle.distance(v0, vi);
         }
 
         /**
@@ -172,17 +69,33 @@ public class DijkstraScoreFactory {
 
 
         public Integer score(int destination, Board board) {
-            List<Piece> detectives = board.getPlayers().stream().filter(e -> e.isDetective()).collect(Collectors.toList());
             int score = Integer.MAX_VALUE;
-            for (Piece detective : detectives) {
+            for (Piece detective : board.getPlayers()) {
+                if (!detective.isDetective()) {
+                    continue;
+                }
                 int location = board.getDetectiveLocation((Piece.Detective) detective).get();
-                int tempScore = dijkstra.dijkstra(location, destination);
+                int tempScore = dijkstra(location, destination);
                 //determine which detective near mrx
                 score = tempScore < score ? tempScore : score;
             }
             return score;
         }
 
+        /**
+         * The same score for mrx's location on a search board, read straight from its node indices
+         * @param board
+         * @return
+         */
+        public int score(SearchBoard board) {
+            int mrX = board.locationIndex(0);
+            int score = Integer.MAX_VALUE;
+            for (int player = 1; player < board.playerCount(); player++) {
+                score = Math.min(score, oracle.distanceByIndex(board.locationIndex(player), mrX));
+            }
+            return score;
+        }
+
 
     }
 }
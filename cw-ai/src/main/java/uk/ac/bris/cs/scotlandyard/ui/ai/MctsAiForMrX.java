@@ -0,0 +1,387 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import io.atlassian.fugue.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.bris.cs.scotlandyard.model.*;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Monte Carlo tree search for mrx: UCT over {@link SearchBoard} positions, one ply per move of
+ * mrx or of a single detective (in a fixed order), with quick playouts to the end of the game.
+ * The tree below the position the game actually reached is kept for mrx's next move. Between
+ * mrx's moves, from {@link #onStart()} to {@link #onTerminate()}, the tree below the picked move
+ * keeps growing in the background, so more of the detectives' replies are searched by the time it
+ * is reused.
+ */
+public class MctsAiForMrX implements Ai {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MctsAiForMrX.class);
+
+    //playouts per move when no time limit is given
+    private static final int DEFAULT_PLAYOUTS = 10_000;
+
+    //time kept back from the budget: a tenth of it, but at least this much
+    private static final long MIN_MARGIN_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    //the clock is read once every this many playouts
+    private static final int CLOCK_INTERVAL = 32;
+
+    //exploration constant of UCT, rewards are between 0 and 1
+    private static final double EXPLORATION = 0.7;
+
+    //a node with n visits may have up to WIDENING * sqrt(n) children, the best ranked moves first
+    private static final double WIDENING = 2;
+
+    //playout moves are the best of this many random moves
+    private static final int SAMPLES = 4;
+
+    //the tree stops growing at this many nodes, the playouts go on
+    private static final int MAX_NODES = 1 << 21;
+
+    //rewards, from mrx's point of view
+    private static final double MRX_WINS = 1;
+    private static final double DETECTIVES_WIN = 0;
+    private static final double NO_WINNER = 0.5;
+
+    private static final long[] NO_MOVES = {};
+
+    /**
+     * A position in the tree
+     */
+    private static final class Node {
+        //the move that led here, MoveCodec.NONE at the root
+        private final long move;
+        //whether mrx made the move
+        private final boolean byMrX;
+        private final long hash;
+        private Node parent;
+        //moves from here, best ranked first; null until the node is first searched from
+        private long[] moves;
+        //children of the first moves, in the same order
+        private Node[] children;
+        private int expanded;
+        private int visits;
+        //sum of the rewards, from the point of view of whoever made the move
+        private double reward;
+
+        private Node(long move, boolean byMrX, long hash, Node parent) {
+            this.move = move;
+            this.byMrX = byMrX;
+            this.hash = hash;
+            this.parent = parent;
+        }
+    }
+
+    private final Random random;
+
+    //the root of the last search, the tree is searched from the position after the move picked
+    private Node retained;
+
+    //nodes in the tree, about
+    private int nodes;
+
+    //shortest number of journeys between nodes, for ranking and playouts
+    private DistanceOracle distances;
+
+    //ranks untried moves
+    private MoveOrderer orderer;
+
+    //searches while the detectives move, null unless the game has started and pondering is enabled
+    private Ponderer ponderer;
+
+    //playouts made by the last ponder
+    private int pondered;
+
+    private final MoveList treeMoves = new MoveList(512);
+    private final MoveList playoutMoves = new MoveList(512);
+
+    /**
+     * Playouts are random, seeded by the system property scotlandyard.ai.seed if it is set.
+     */
+    public MctsAiForMrX() {
+        this(Long.getLong("scotlandyard.ai.seed", System.nanoTime()));
+    }
+
+    /**
+     * Without a time limit the picked move only depends on the board and the seed.
+     * @param seed the seed of the playouts
+     */
+    public MctsAiForMrX(long seed) {
+        this.random = new Random(seed);
+    }
+
+    @Nonnull
+    @Override public String name() { return "MctsAiForMrX"; }
+
+    @Override public boolean plays(@Nonnull Piece side) { return side.isMrX(); }
+
+    @Override
+    public void onStart() {
+        if (Ponderer.enabled()) ponderer = new Ponderer("mcts");
+    }
+
+    @Override
+    public void onTerminate() {
+        if (ponderer != null) {
+            ponderer.close();
+            ponderer = null;
+        }
+        retained = null;
+        distances = null;
+        orderer = null;
+    }
+
+    @Nonnull
+    @Override
+    public Move pickMove(
+            @Nonnull Board board,
+            Pair<Long, TimeUnit> timeoutPair) {
+        long start = System.nanoTime();
+        long budget = timeoutPair == null ? 0 : timeoutPair.right().toNanos(timeoutPair.left());
+        long end = start + Math.max(0, budget - Math.max(budget / 10, MIN_MARGIN_NANOS));
+        //the tree is only ever searched by one thread
+        if (ponderer != null) ponderer.stop();
+
+        List<Move> available = board.getAvailableMoves().asList();
+        //all of mrx's moves start where he is
+        SearchBoard search = SearchBoard.of(board, available.get(0).source());
+        if (distances == null) {
+            distances = DistanceOracle.hops(board.getSetup());
+            orderer = new MoveOrderer(distances);
+        }
+        Node root = reuse(search);
+        int reused = root == null ? 0 : root.visits;
+        if (root == null) {
+            root = new Node(MoveCodec.NONE, false, search.hash(), null);
+            nodes = 1;
+        } else {
+            root.parent = null;
+            nodes = reused + 1;
+        }
+
+        int playouts = 0;
+        do {
+            playout(root, search);
+            playouts++;
+        } while (timeoutPair == null
+                ? playouts < DEFAULT_PLAYOUTS
+                : playouts % CLOCK_INTERVAL != 0 || System.nanoTime() - end < 0);
+
+        //the most searched move, the least likely to look good by chance
+        Node best = root.children[0];
+        for (int i = 1; i < root.expanded; i++) {
+            if (root.children[i].visits > best.visits) best = root.children[i];
+        }
+        retained = best;
+
+        long elapsed = System.nanoTime() - start;
+        LOG.info("Picked {} after {} playouts ({} reused, {} pondered) in {} ms, {} playouts/s, wins {}%",
+                MoveCodec.toString(best.move), playouts, reused, pondered, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                elapsed == 0 ? 0 : playouts * TimeUnit.SECONDS.toNanos(1) / elapsed,
+                Math.round(best.reward / best.visits * 100));
+        pondered = 0;
+        if (ponderer != null) ponder(best, search);
+        for (Move move : available) {
+            if (MoveCodec.encode(move) == best.move) return move;
+        }
+        throw new IllegalStateException("Searched a move that is not available: " + MoveCodec.toString(best.move));
+    }
+
+    /**
+     * Keeps searching the tree below mrx's move until the ponderer is stopped or the tree is full
+     * @param node the node of mrx's move
+     * @param root the board before the move
+     */
+    private void ponder(Node node, SearchBoard root) {
+        SearchBoard board = root.copy();
+        board.make(node.move);
+        if (!board.getWinner().isEmpty()) return;
+        node.parent = null;
+        ponderer.start(() -> {
+            while (!ponderer.stopped() && nodes < MAX_NODES) {
+                playout(node, board);
+                pondered++;
+            }
+        });
+    }
+
+    /**
+     * Finds the board's position among the positions after the move picked last time
+     * @param search the board, mrx to move
+     * @return the node of the position; null if the tree doesn't have it
+     */
+    private Node reuse(SearchBoard search) {
+        if (retained == null) return null;
+        //the position is reached once every detective has moved
+        int depth = search.playerCount() - 1;
+        List<Node> level = List.of(retained);
+        for (int i = 0; i < depth && !level.isEmpty(); i++) {
+            List<Node> next = new ArrayList<>();
+            for (Node node : level) {
+                for (int j = 0; j < node.expanded; j++) {
+                    Node child = node.children[j];
+                    if (child.hash == search.hash()) return child;
+                    next.add(child);
+                }
+            }
+            level = next;
+        }
+        return null;
+    }
+
+    /**
+     * Walks down the tree with UCT, adds one node, plays the game out from there and adds the
+     * result to every node on the way
+     * @param root
+     * @param board the board at the root, left as it was
+     */
+    private void playout(Node root, SearchBoard board) {
+        Node node = root;
+        int made = 0;
+        while (true) {
+            if (node.moves == null) {
+                node.moves = moves(board);
+                node.children = new Node[node.moves.length];
+            }
+            if (node.moves.length == 0) break;
+            int allowed = Math.min(node.moves.length, (int) Math.ceil(WIDENING * Math.sqrt(node.visits + 1)));
+            //a full tree only grows at the root
+            boolean full = nodes >= MAX_NODES && node != root;
+            if (node.expanded < allowed && !full) {
+                long move = node.moves[node.expanded];
+                boolean byMrX = MoveCodec.piece(move).isMrX();
+                board.make(move);
+                made++;
+                Node child = new Node(move, byMrX, board.hash(), node);
+                node.children[node.expanded++] = child;
+                nodes++;
+                node = child;
+                break;
+            }
+            //leaves of a full tree are played out from
+            if (node.expanded == 0) break;
+            node = select(node);
+            board.make(node.move);
+            made++;
+        }
+        double reward = finish(board);
+        for (; node != null; node = node.parent) {
+            node.visits++;
+            node.reward += node.byMrX ? reward : 1 - reward;
+        }
+        for (; made > 0; made--) {
+            board.unmake();
+        }
+    }
+
+    /**
+     * The moves from the board's position, the most promising first
+     * @param board
+     * @return
+     */
+    private long[] moves(SearchBoard board) {
+        treeMoves.clear();
+        board.generateMoves(treeMoves);
+        if (treeMoves.isEmpty()) return NO_MOVES;
+        //the detectives move in a fixed order, so a round of their moves has one path in the tree
+        int first = Integer.MAX_VALUE;
+        for (int i = 0; i < treeMoves.size(); i++) {
+            first = Math.min(first, MoveCodec.pieceIndex(treeMoves.get(i)));
+        }
+        int size = 0;
+        for (int i = 0; i < treeMoves.size(); i++) {
+            long move = treeMoves.get(i);
+            if (MoveCodec.pieceIndex(move) == first) treeMoves.set(size++, move);
+        }
+        treeMoves.truncate(size);
+        orderer.score(board, treeMoves, 0, 0, MoveCodec.NONE);
+        for (int i = 0; i < size; i++) {
+            orderer.next(treeMoves, 0, i, size);
+        }
+        return treeMoves.toArray();
+    }
+
+    /**
+     * UCT: the child with the best average reward plus a bonus for being searched less
+     * @param node
+     * @return
+     */
+    private Node select(Node node) {
+        double log = Math.log(node.visits);
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < node.expanded; i++) {
+            Node child = node.children[i];
+            double value = child.reward / child.visits + EXPLORATION * Math.sqrt(log / child.visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Plays the game out, every player picking the best of a few random moves: mrx the farthest
+     * from the detectives, the detectives the closest to mrx
+     * @param board left as it was
+     * @return the reward for mrx
+     */
+    private double finish(SearchBoard board) {
+        int made = 0;
+        double reward;
+        while (true) {
+            Set<Piece> winner = board.getWinner();
+            if (!winner.isEmpty()) {
+                reward = winner.contains(Piece.MrX.MRX) ? MRX_WINS : DETECTIVES_WIN;
+                break;
+            }
+            playoutMoves.clear();
+            board.generateMoves(playoutMoves);
+            if (playoutMoves.isEmpty()) {
+                reward = NO_WINNER;
+                break;
+            }
+            long best = MoveCodec.NONE;
+            int bestValue = Integer.MIN_VALUE;
+            for (int i = 0; i < SAMPLES; i++) {
+                long move = playoutMoves.get(random.nextInt(playoutMoves.size()));
+                int value = value(board, move);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = move;
+                }
+            }
+            board.make(best);
+            made++;
+        }
+        for (; made > 0; made--) {
+            board.unmake();
+        }
+        return reward;
+    }
+
+    /**
+     * How good a move looks to whoever makes it, in journeys
+     * @param board
+     * @param move
+     * @return
+     */
+    private int value(SearchBoard board, long move) {
+        TransportTable table = distances.table();
+        int destination = table.indexOf(MoveCodec.destination(move));
+        if (MoveCodec.piece(move).isMrX()) {
+            int nearest = Integer.MAX_VALUE;
+            for (int player = 1; player < board.playerCount(); player++) {
+                nearest = Math.min(nearest, distances.distanceByIndex(board.locationIndex(player), destination));
+            }
+            return nearest;
+        }
+        return -distances.distanceByIndex(destination, board.locationIndex(0));
+    }
+}
@@ -1,111 +1,320 @@
 package uk.ac.bris.cs.scotlandyard.ui.ai;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.graph.ImmutableValueGraph;
 import io.atlassian.fugue.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import uk.ac.bris.cs.scotlandyard.model.*;
 
 import javax.annotation.Nonnull;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 
 public class MiniMaxAiForMrX implements Ai {
 
+    private static final Logger LOG = LoggerFactory.getLogger(MiniMaxAiForMrX.class);
+
+    //search depth when no time limit is given
+    private static final int DEFAULT_DEPTH = 2;
+
+    //deepest iteration, far beyond what a game lasts
+    private static final int MAX_DEPTH = 64;
+
+    //time kept back from the budget: a tenth of it, but at least this much
+    private static final long MIN_MARGIN_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    //the clock is read once every this many nodes
+    private static final int CLOCK_INTERVAL = 1024;
+
+    //a ponder gives up after this many nodes, a few moves' worth, if nobody stops it sooner
+    private static final long MAX_PONDER_NODES = 1 << 21;
+
+    //thrown through the search once the deadline has passed
+    private static final class OutOfTime extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        OutOfTime() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final OutOfTime OUT_OF_TIME = new OutOfTime();
+
+    //threads searching mrx's moves at the same time
+    private final int threads;
+
+    //picks between equally good moves
+    private final Random random;
+
+    //results of earlier searches, kept for the whole game (about 12MB) and shared by all threads
+    private final TranspositionTable table = new TranspositionTable(1 << 19);
+
+    //leaf evaluations by where everyone stands, kept for the whole game (about 1MB) and shared by all threads
+    private final EvalCache evals = new EvalCache(1 << 16);
+
+    //runs the threads, started with the first search and shut down with the game
+    private ForkJoinPool pool;
+
+    //one per thread, the history of cut-offs is kept for the whole game
+    private MoveOrderer[] orderers;
+
+    //searches the position after mrx's move while the detectives move, null unless the game has
+    //started and pondering is enabled
+    private Ponderer ponderer;
+
+    //orders the moves of the ponder search, which runs on a thread of its own
+    private MoveOrderer ponderOrderer;
+
+    //positions searched by the last ponder
+    private long pondered;
+
     /**
-     * Apply the move to a given board using the advance method
-     * @param board
-     * @param move
-     * @return
+     * Searches on one thread per core, unless the system property scotlandyard.ai.threads says
+     * otherwise. Equally good moves are picked at random, seeded by the system property
+     * scotlandyard.ai.seed if it is set.
      */
-    private Board makeMove (Board board, Move move){
-        return ((Board.GameState) board).advance(move);
+    public MiniMaxAiForMrX() {
+        this(Integer.getInteger("scotlandyard.ai.threads", Runtime.getRuntime().availableProcessors()),
+                Long.getLong("scotlandyard.ai.seed", System.nanoTime()));
     }
 
     /**
-     * Check if MrX is in the remaining player
-     * @param board
-     * @return
+     * Without a time limit the picked move only depends on the board and the seed, not on the
+     * number of threads or how they are scheduled.
+     * @param threads the number of threads searching at the same time
+     * @param seed the seed for picking between equally good moves
      */
-    private boolean isMrXRemaining(Board board) {
-        for (Move move : board.getAvailableMoves()) {
-            if (move.commencedBy().isMrX()) {
-                return true;
-            }
-        }
-        return false;
+    public MiniMaxAiForMrX(int threads, long seed) {
+        if (threads < 1) throw new IllegalArgumentException("Threads out of range: " + threads);
+        this.threads = threads;
+        this.random = new Random(seed);
     }
 
     /**
-     * Apply all the detective moves to the board
-     * @param board
-     * @return
+     * The search of one thread. Every worker has its own copy of the board and its own buffers,
+     * they only share the transposition table.
      */
-    private List<Board> applyAllDetectiveMoves (Board board){
-        if (isMrXRemaining(board)) {
-            return List.of(board);
+    private final class Worker {
+
+        private final SearchBoard board;
+
+        //moves of every ply, each ply appends its moves and truncates them once done
+        private final MoveList searchMoves = new MoveList(1024);
+
+        //distinct positions the detectives can reach in one round, whatever order they move in
+        private final JointMoveGenerator jointMoves = new JointMoveGenerator();
+
+        //receives transposition table entries
+        private final TranspositionTable.Entry entry = new TranspositionTable.Entry();
+
+        //puts mrx's most promising moves first
+        private final MoveOrderer orderer;
+
+        //how well the moves were ordered
+        private final CutoffStats stats = new CutoffStats();
+
+        //positions searched for the current decision
+        private long nodes;
+
+        //whether the running iteration stopped anywhere because of its depth
+        private boolean depthLimited;
+
+        //System.nanoTime() after which the running iteration is given up
+        private long deadline;
+
+        //whether the worker ponders, it then also gives up once the ponderer is stopped or the nodes run out
+        private boolean pondering;
+
+        private Worker(SearchBoard board, MoveOrderer orderer) {
+            this.board = board;
+            this.orderer = orderer;
         }
-        List<Board> boards = new ArrayList<>();
-        for (Move move : board.getAvailableMoves()){
-            boards.addAll(applyAllDetectiveMoves(makeMove(board, move)));
+
+        /**
+         * Searches one of mrx's moves
+         * @param move
+         * @param depth the depth of the root, the move included
+         * @param alpha
+         * @return the value of the move, or at most alpha
+         */
+        private int search(Move move, int depth, int alpha) {
+            board.make(move);
+            int eval = minimax(board, depth - 1, false, alpha, (int)Double.POSITIVE_INFINITY);
+            board.unmake();
+            return eval;
+        }
+
+        /**
+         * Takes mrx's moves off the shared counter until none are left
+         * @param moves
+         * @param depth
+         * @param evals receives the value of each move
+         * @param next the index of the next move nobody has taken yet
+         * @param best the best value so far
+         */
+        private void searchRemaining(List<Move> moves, int depth, int[] evals, AtomicInteger next, AtomicInteger best) {
+            for (int i = next.getAndIncrement(); i < moves.size(); i = next.getAndIncrement()) {
+                //just below the best so far, so moves as good as the best still get their exact value
+                int alpha = Math.max(best.get(), (int)Double.NEGATIVE_INFINITY + 1) - 1;
+                evals[i] = search(moves.get(i), depth, alpha);
+                best.accumulateAndGet(evals[i], Math::max);
+            }
+        }
+
+        /**
+         * Apply all the detective moves to the board, evaluating every position where MrX is next to move
+         * @param board
+         * @param depth
+         * @param alpha
+         * @param beta
+         * @return
+         */
+        private int applyAllDetectiveMoves(SearchBoard board, int depth, int alpha, int beta) {
+            //minEval, beta and the positions searched, updated by the visitor
+            int[] bounds = {(int)Double.POSITIVE_INFINITY, beta, 0};
+            boolean finished = jointMoves.forEach(board, (position, moves) -> {
+                int eval = minimax(position, depth - 1, true, alpha, bounds[1]);
+                bounds[0] = Math.min(bounds[0], eval);
+                bounds[1] = Math.min(bounds[1], eval);
+                bounds[2]++;
+                return bounds[1] > alpha;
+            });
+            if (finished) {
+                stats.searched(depth);
+            } else {
+                stats.cutoff(depth, bounds[2]);
+            }
+            return bounds[0];
+        }
+
+        /**
+         * Min-Max algorithm for the AI, sort through the possible moves and score them
+         * @param board
+         * @param depth
+         * @param isMrX
+         * @param alpha
+         * @param beta
+         * @return
+         */
+        private int minimax(SearchBoard board, int depth, boolean isMrX, int alpha, int beta){
+            if ((++nodes & (CLOCK_INTERVAL - 1)) == 0
+                    && (System.nanoTime() - deadline > 0
+                        || pondering && (ponderer.stopped() || nodes >= MAX_PONDER_NODES))){
+                throw OUT_OF_TIME;
+            }
+            if (!board.getWinner().isEmpty()){
+                return 0;
+            }
+            if (depth == 0){
+                depthLimited = true;
+                return evaluate(board);
+            }
+            //the same position may have been searched already, through other moves or by another thread
+            long hash = board.hash();
+            long bestMove = MoveCodec.NONE;
+            if (table.probe(hash, entry)){
+                bestMove = entry.move();
+                //only as deep: a deeper result would make the value depend on which thread stored it first
+                if (entry.depth() == depth){
+                    int stored = entry.score();
+                    int bound = entry.bound();
+                    //the stored search may have been cut short by its depth
+                    depthLimited = true;
+                    if (bound == TranspositionTable.EXACT){
+                        return stored;
+                    } else if (bound == TranspositionTable.LOWER){
+                        alpha = Math.max(alpha, stored);
+                    } else {
+                        beta = Math.min(beta, stored);
+                    }
+                    if (beta <= alpha){
+                        return stored;
+                    }
+                }
+            }
+            int originalAlpha = alpha;
+            int originalBeta = beta;
+            int eval;
+            if (isMrX){
+                //mrx's round
+                int maxEval = (int)Double.NEGATIVE_INFINITY;
+                int start = searchMoves.size();
+                board.generateMoves(searchMoves);
+                int end = searchMoves.size();
+                try {
+                    //the best move last time goes first, then the moves that caused cut-offs elsewhere
+                    int ply = board.depth();
+                    orderer.score(board, searchMoves, start, ply, bestMove);
+                    boolean cutoff = false;
+                    for (int i = start; i < end && !cutoff; i++){
+                        orderer.next(searchMoves, start, i, end);
+                        long move = searchMoves.get(i);
+                        board.make(move);
+                        int value = minimax(board, depth-1, false, alpha, beta);
+                        board.unmake();
+                        if (value > maxEval){
+                            maxEval = value;
+                            bestMove = move;
+                        }
+                        alpha = Math.max(alpha, value);
+                        if (beta <= alpha){
+                            cutoff = true;
+                            orderer.cutoff(move, ply, depth);
+                            stats.cutoff(depth, i - start + 1);
+                        }
+                    }
+                    if (!cutoff){
+                        stats.searched(depth);
+                    }
+                } finally {
+                    searchMoves.truncate(start);
+                }
+                eval = maxEval;
+            } else {
+                //detectives' round, every detective searchMoves before mrx searchMoves again
+                eval = applyAllDetectiveMoves(board, depth, alpha, beta);
+                bestMove = MoveCodec.NONE;
+            }
+            int bound = eval <= originalAlpha ? TranspositionTable.UPPER
+                    : eval >= originalBeta ? TranspositionTable.LOWER
+                    : TranspositionTable.EXACT;
+            table.store(hash, depth, bound, eval, bestMove);
+            return eval;
         }
-        return boards;
     }
 
     /**
-     * Min-Max algorithm for the AI, sort through the possible moves and score them
+     * The score of the board, cached: it only depends on where the players are
      * @param board
-     * @param depth
-     * @param isMrX
-     * @param mrXLocation
-     * @param alpha
-     * @param beta
      * @return
      */
-    private int minimax(Board board, int depth, boolean isMrX, int mrXLocation, int alpha, int beta){
-        if (!board.getWinner().isEmpty()){
-            return 0;
-        }
-        if (depth == 0){
-            return score(mrXLocation, board);
-        }
-        if (isMrX){
-            //mrx's round
-            int maxEval = (int)Double.NEGATIVE_INFINITY;
-            for (Move move : board.getAvailableMoves()){
-                Board moveMade = makeMove(board, move);
-                int eval = minimax(moveMade, depth-1, false, move.accept(visitor), alpha, beta);
-                maxEval = Math.max(maxEval, eval);
-                alpha = Math.max(alpha, eval);
-                if (beta <= alpha) break;
-            }
-            return maxEval;
-        } else {
-            //detectives' round
-            int minEval = (int)Double.POSITIVE_INFINITY;
-            for (Board boardDetective : applyAllDetectiveMoves(board)){
-                int eval = minimax(boardDetective, depth-1, true, mrXLocation, alpha, beta);
-                minEval = Math.min(minEval, eval);
-                beta = Math.min(beta, eval);
-                if (beta <= alpha) break;
-            }
-            return minEval;
-
+    private int evaluate(SearchBoard board) {
+        long key = EvalCache.key(board);
+        long cached = evals.get(key);
+        if (cached != EvalCache.MISS) {
+            return (int) cached;
         }
+        int eval = score(board);
+        evals.put(key, eval);
+        return eval;
     }
 
     /**
      * score method
-     * @param mrXLocation
      * @param board
      * @return
      */
-    private int score(int mrXLocation, Board board) {
-        ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> graph = board.getSetup().graph;
-        int freedom = graph.adjacentNodes(mrXLocation).size();
-        int distance = dijkstra.score(mrXLocation, board);
+    private int score(SearchBoard board) {
+        int freedom = dijkstra.table().degree(board.locationIndex(0));
+        int distance = dijkstra.score(board);
         int rate;
         if(distance <= 5){
             rate = 4;
@@ -120,38 +329,207 @@ public class MiniMaxAiForMrX implements Ai {
 
 
 
+    /**
+     * The number of nodes adjacent to the move's destination
+     * @param table
+     * @param move
+     * @return
+     */
+    private int degree(TransportTable table, Move move) {
+        return table.degree(table.indexOf(move.accept(visitor)));
+    }
+
     //entrance method
 
-    private Move applyMiniMax(Board board, int depth){
-        int maxEval = (int)Double.NEGATIVE_INFINITY;
-        int alpha = (int)Double.NEGATIVE_INFINITY;
-        int beta = (int)Double.POSITIVE_INFINITY;
+    /**
+     * Searches every move of mrx to the given depth. The first move is searched alone, the others
+     * are shared out between the workers and searched against the best value found so far.
+     * @param workers
+     * @param moves mrx's moves, the likely best first
+     * @param depth
+     * @return the best move
+     */
+    private Move applyMiniMax(List<Worker> workers, List<Move> moves, int depth){
+        int[] evals = new int[moves.size()];
+        evals[0] = workers.get(0).search(moves.get(0), depth, (int)Double.NEGATIVE_INFINITY);
+        AtomicInteger best = new AtomicInteger(evals[0]);
+        AtomicInteger next = new AtomicInteger(1);
+        if (workers.size() == 1){
+            workers.get(0).searchRemaining(moves, depth, evals, next, best);
+        } else {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (Worker worker : workers){
+                tasks.add(() -> {
+                    worker.searchRemaining(moves, depth, evals, next, best);
+                    return null;
+                });
+            }
+            //returns once every worker has finished, the first failure is passed on
+            for (Future<Void> future : pool.invokeAll(tasks)){
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw OUT_OF_TIME;
+                } catch (ExecutionException e) {
+                    Throwables.throwIfUnchecked(e.getCause());
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
 
+        //moves not as good as the best have failed low, so every move tied for the best has its exact value
+        int maxEval = best.get();
+        TransportTable table = TransportTable.of(workers.get(0).board.getSetup());
         List<Move> possibleMoves = new ArrayList<>();
-        ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> graph = board.getSetup().graph;
-        int bestIndex = -1;
-
-        ImmutableList<Move> moves = board.getAvailableMoves().asList();
+        int maxDegree = -1;
         for (int i = 0; i < moves.size(); i++) {
-            Move move = moves.get(i);
-            makeMove(board, move);
-            int eval = minimax(board, depth - 1, false, move.accept(visitor), alpha, beta);
-            if (eval > maxEval || (eval == maxEval && graph.adjacentNodes(move.accept(visitor)).size() > graph.adjacentNodes(moves.get(bestIndex).accept(visitor)).size())){
-                maxEval = eval;
-                bestIndex = i;
-                possibleMoves = new ArrayList<>();
-                possibleMoves.add(move);
-            } else if (eval == maxEval && graph.adjacentNodes(move.accept(visitor)).size() > graph.adjacentNodes(moves.get(bestIndex).accept(visitor)).size()){
-                possibleMoves.add(move);
+            if (evals[i] != maxEval) continue;
+            int degree = degree(table, moves.get(i));
+            if (degree > maxDegree){
+                maxDegree = degree;
+                possibleMoves.clear();
+            }
+            if (degree == maxDegree){
+                possibleMoves.add(moves.get(i));
             }
         }
-        Random rand = new Random();
-        return possibleMoves.get(rand.nextInt(possibleMoves.size()));
+        return possibleMoves.get(random.nextInt(possibleMoves.size()));
+    }
+
+    /**
+     * Iterative deepening: searches one level deeper at a time until the time is up, keeping the
+     * move of the deepest search that finished
+     * @param board
+     * @param timeoutPair the time for this move, the search depth is fixed if there is none
+     * @return the best move
+     */
+    private Move iterativeDeepening(Board board, Pair<Long, TimeUnit> timeoutPair) {
+        long start = System.nanoTime();
+        long budget = timeoutPair == null ? 0 : timeoutPair.right().toNanos(timeoutPair.left());
+        long end = start + Math.max(0, budget - Math.max(budget / 10, MIN_MARGIN_NANOS));
+        int maxDepth = timeoutPair == null ? DEFAULT_DEPTH : MAX_DEPTH;
+
+        List<Move> moves = new ArrayList<>(board.getAvailableMoves());
+        //all of mrx's moves start where he is
+        SearchBoard search = SearchBoard.of(board, moves.get(0).source());
+        //a search given up on the clock leaves its board where it was
+        SearchBoard root = ponderer == null ? null : search.copy();
+        if (orderers == null) {
+            orderers = new MoveOrderer[threads];
+            for (int i = 0; i < threads; i++) {
+                orderers[i] = new MoveOrderer(DistanceOracle.hops(board.getSetup()));
+            }
+        }
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            orderers[i].newSearch();
+            workers.add(new Worker(i == 0 ? search : search.copy(), orderers[i]));
+        }
+        if (threads > 1 && pool == null) {
+            pool = new ForkJoinPool(threads);
+        }
+        Move best = null;
+        int reached = 0;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            //the first iteration always finishes, so there is a move to return
+            for (Worker worker : workers) {
+                worker.deadline = depth == 1 || timeoutPair == null ? start + Long.MAX_VALUE : end;
+                worker.depthLimited = false;
+            }
+            try {
+                best = applyMiniMax(workers, moves, depth);
+            } catch (OutOfTime e) {
+                break;
+            }
+            reached = depth;
+            //search the best move first next time, the cut-offs come sooner
+            moves.remove(best);
+            moves.add(0, best);
+            //every line reached the end of the game, searching deeper changes nothing
+            if (workers.stream().noneMatch(worker -> worker.depthLimited)) break;
+            //the next iteration takes several times longer, don't start what can't finish
+            if (timeoutPair != null && System.nanoTime() - start > (end - start) / 2) break;
+        }
+        long elapsed = System.nanoTime() - start;
+        long nodes = workers.stream().mapToLong(worker -> worker.nodes).sum();
+        LOG.info("Picked {} at depth {}: {} nodes ({} pondered) in {} ms, {} nodes/s",
+                best, reached, nodes, pondered, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                elapsed == 0 ? 0 : nodes * TimeUnit.SECONDS.toNanos(1) / elapsed);
+        if (LOG.isDebugEnabled()) {
+            CutoffStats stats = new CutoffStats();
+            workers.forEach(worker -> stats.add(worker.stats));
+            LOG.debug("Cut-offs by depth left:\n{}", stats);
+            LOG.debug("Evaluation cache: {} hits, {} misses, {}% hit rate",
+                    evals.hits(), evals.misses(), Math.round(evals.hitRate() * 100));
+        }
+        pondered = 0;
+        if (ponderer != null) ponder(root, best, reached);
+        return best;
+    }
+
+    /**
+     * Deepens the search of the position after mrx's move until the ponderer is stopped or
+     * {@link #MAX_PONDER_NODES} are searched, so the transposition table holds deeper results for
+     * whatever the detectives reply
+     * @param board a board before the move, of its own
+     * @param move mrx's move
+     * @param reached the depth the move was picked at
+     */
+    private void ponder(SearchBoard board, Move move, int reached) {
+        board.make(move);
+        if (!board.getWinner().isEmpty()) return;
+        if (ponderOrderer == null) {
+            ponderOrderer = new MoveOrderer(DistanceOracle.hops(board.getSetup()));
+        }
+        ponderOrderer.newSearch();
+        Worker worker = new Worker(board, ponderOrderer);
+        worker.deadline = System.nanoTime() + Long.MAX_VALUE;
+        worker.pondering = true;
+        ponderer.start(() -> {
+            try {
+                //the position was searched one shallower than the move
+                for (int depth = Math.max(2, reached); depth <= MAX_DEPTH; depth++) {
+                    worker.depthLimited = false;
+                    worker.minimax(board, depth, false, (int)Double.NEGATIVE_INFINITY, (int)Double.POSITIVE_INFINITY);
+                    if (!worker.depthLimited) break;
+                }
+            } catch (OutOfTime e) {
+                //stopped
+            } finally {
+                pondered = worker.nodes;
+            }
+        });
     }
 
     @Nonnull
     @Override public String name() { return "MiniMaxAiForMrX"; }
 
+    @Override public boolean plays(@Nonnull Piece side) { return side.isMrX(); }
+
+    @Override
+    public void onStart() {
+        //a game left without onTerminate may still be pondering
+        if (ponderer != null) ponderer.close();
+        ponderer = Ponderer.enabled() ? new Ponderer("minimax") : null;
+    }
+
+    @Override
+    public void onTerminate() {
+        if (ponderer != null) {
+            ponderer.close();
+            ponderer = null;
+        }
+        table.clear();
+        evals.clear();
+        orderers = null;
+        ponderOrderer = null;
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+
     //Dijkstra metrics
     private DijkstraScoreFactory.Dijkstra dijkstra;
 
@@ -173,9 +551,11 @@ public class MiniMaxAiForMrX implements Ai {
     public Move pickMove(
             @Nonnull Board board,
             Pair<Long, TimeUnit> timeoutPair) {
+        //the table and the orderers are only ever searched by one search at a time
+        if (ponderer != null) ponderer.stop();
         dijkstra = new DijkstraScoreFactory().syncBuild(board);
-        Move move = applyMiniMax(board, 2);
-        return move;
+        table.newSearch();
+        return iterativeDeepening(board, timeoutPair);
     }
 }
 
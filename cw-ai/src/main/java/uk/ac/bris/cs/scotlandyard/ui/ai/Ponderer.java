@@ -0,0 +1,87 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs an ai's search on a background thread while the other side is moving, one search at a time.
+ * The search polls {@link #stopped()} and returns once it is set; {@link #stop()} waits for that,
+ * so whatever the search wrote is visible to the caller afterwards.
+ */
+final class Ponderer {
+
+    private final ExecutorService executor;
+
+    //the running search, null if there is none
+    private Future<?> running;
+
+    private volatile boolean stopped;
+
+    /**
+     * @param name names the thread
+     */
+    Ponderer(String name) {
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat(name + "-ponder-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * Off unless asked for: a pondering ai takes cpu from its opponent while the opponent is on the
+     * clock, which would skew headless simulations and tournaments
+     * @return whether ais ponder, only if the system property scotlandyard.ai.ponder is true
+     */
+    static boolean enabled() {
+        return Boolean.getBoolean("scotlandyard.ai.ponder");
+    }
+
+    /**
+     * Stops the running search, if any, and starts another
+     * @param search
+     */
+    void start(Runnable search) {
+        stop();
+        stopped = false;
+        running = executor.submit(search);
+    }
+
+    /**
+     * @return whether the search should return
+     */
+    boolean stopped() { return stopped; }
+
+    /**
+     * Tells the running search to return and waits until it has
+     * @throws IllegalStateException wrapping what the search threw, if it failed
+     */
+    void stop() {
+        if (running == null) return;
+        stopped = true;
+        try {
+            Uninterruptibles.getUninterruptibly(running);
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            running = null;
+        }
+    }
+
+    /**
+     * Stops the running search and the thread
+     */
+    void close() {
+        try {
+            stop();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
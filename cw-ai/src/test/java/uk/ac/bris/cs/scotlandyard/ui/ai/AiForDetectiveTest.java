@@ -0,0 +1,79 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.AiRegistry;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests the detective AI over several games, as the setup screen starts them
+ */
+public class AiForDetectiveTest {
+
+	private static final Pair<Long, TimeUnit> TIMEOUT = Pair.pair(1L, TimeUnit.SECONDS);
+
+	private static GameState newGame(int seed) throws Exception {
+		var detectives = ImmutableList.<Player>builder();
+		var locations = ScotlandYard.generateDetectiveLocations(seed, ScotlandYard.DETECTIVES.size());
+		for (int i = 0; i < locations.size(); i++) {
+			detectives.add(new Player(ScotlandYard.DETECTIVES.asList().get(i),
+					ScotlandYard.defaultDetectiveTickets(), locations.get(i)));
+		}
+		return new MyGameStateFactory().build(
+				new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24MOVES),
+				new Player(Piece.MrX.MRX, ScotlandYard.defaultMrXTickets(),
+						ScotlandYard.generateMrXLocation(seed)),
+				detectives.build());
+	}
+
+	// plays until the game is over or MrX has made the given number of moves, MrX moves at random
+	private static GameState play(GameState state, Ai detectives, Random random, int mrXMoves) {
+		while (state.getWinner().isEmpty() && state.getMrXTravelLog().size() < mrXMoves) {
+			var moves = state.getAvailableMoves().asList();
+			Move move = moves.get(0).commencedBy().isMrX()
+					? moves.get(random.nextInt(moves.size()))
+					: detectives.pickMove(state, TIMEOUT);
+			assertThat(moves).contains(move);
+			state = state.advance(move);
+		}
+		return state;
+	}
+
+	@Test public void testAbandonedGameLeavesNothingForTheNext() throws Exception {
+		var random = new Random(3);
+		Ai first = AiRegistry.create(AiForDetective.class);
+		first.onStart();
+		// abandoned midgame without onTerminate, like a reset of the window
+		GameState abandoned = play(newGame(1), first, random, 4);
+		assertThat(abandoned.getWinner()).isEmpty();
+		assertThat(abandoned.getMrXTravelLog()).hasSizeGreaterThanOrEqualTo(4);
+
+		Ai second = AiRegistry.create(first.getClass());
+		second.onStart();
+		GameState over = play(newGame(2), second, random, Integer.MAX_VALUE);
+		second.onTerminate();
+		assertThat(over.getWinner()).isNotEmpty();
+
+		// the first AI still follows the abandoned game, it can't play another
+		GameState next = play(newGame(2), second, random, 1);
+		assertThatThrownBy(() -> first.pickMove(next, TIMEOUT))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Travel log went back");
+	}
+}
@@ -0,0 +1,64 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+import uk.ac.bris.cs.scotlandyard.model.SearchBoard;
+import uk.ac.bris.cs.scotlandyard.model.TransportTable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that the distances are those of the graph of the board they are built for
+ */
+public class DijkstraScoreFactoryTest {
+
+    private static GameState game(GameSetup setup, int mrX, int detective) {
+        return new MyGameStateFactory().build(setup,
+                new Player(Piece.MrX.MRX, ScotlandYard.defaultMrXTickets(), mrX),
+                ImmutableList.of(new Player(Piece.Detective.RED,
+                        ScotlandYard.defaultDetectiveTickets(), detective)));
+    }
+
+    @Test public void testEveryGraphHasItsOwnDistances() throws Exception {
+        var standard = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24MOVES);
+        //1 - 2 - 3 - 4 - 5 by taxi, 1 - 5 by bus
+        ImmutableValueGraph<Integer, ImmutableSet<Transport>> line = ValueGraphBuilder.undirected()
+                .<Integer, ImmutableSet<Transport>>immutable()
+                .putEdgeValue(1, 2, ImmutableSet.of(Transport.TAXI))
+                .putEdgeValue(2, 3, ImmutableSet.of(Transport.TAXI))
+                .putEdgeValue(3, 4, ImmutableSet.of(Transport.TAXI))
+                .putEdgeValue(4, 5, ImmutableSet.of(Transport.TAXI))
+                .putEdgeValue(1, 5, ImmutableSet.of(Transport.BUS))
+                .build();
+        var small = new GameSetup(line, ScotlandYard.STANDARD24MOVES);
+
+        var factory = new DijkstraScoreFactory();
+        var first = factory.syncBuild(game(standard, 35, 50));
+        assertThat(first.table()).isSameAs(TransportTable.of(standard));
+
+        GameState state = game(small, 3, 5);
+        var second = factory.syncBuild(state);
+        assertThat(second.table()).isSameAs(TransportTable.of(small));
+        //a bus journey costs 2, as much as two taxi journeys
+        assertThat(second.dijkstra(1, 5)).isEqualTo(2);
+        assertThat(second.dijkstra(2, 5)).isEqualTo(3);
+        assertThat(second.score(3, state)).isEqualTo(2);
+        var search = SearchBoard.of(state, 3);
+        assertThat(second.score(search)).isEqualTo(2);
+        assertThat(second.table().degree(search.locationIndex(0))).isEqualTo(2);
+        //and the first graph is still scored on its own distances
+        assertThat(factory.syncBuild(game(standard, 35, 50)).table()).isSameAs(first.table());
+    }
+}
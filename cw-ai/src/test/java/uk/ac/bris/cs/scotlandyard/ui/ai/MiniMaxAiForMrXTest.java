@@ -0,0 +1,67 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that the parallel search picks the same moves as the sequential one
+ */
+public class MiniMaxAiForMrXTest {
+
+    private static GameState newGame(GameSetup setup, int seed) {
+        var detectives = ImmutableList.<Player>builder();
+        var locations = ScotlandYard.generateDetectiveLocations(seed, ScotlandYard.DETECTIVES.size());
+        for (int i = 0; i < locations.size(); i++) {
+            detectives.add(new Player(ScotlandYard.DETECTIVES.asList().get(i),
+                    ScotlandYard.defaultDetectiveTickets(), locations.get(i)));
+        }
+        return new MyGameStateFactory().build(setup,
+                new Player(Piece.MrX.MRX, ScotlandYard.defaultMrXTickets(),
+                        ScotlandYard.generateMrXLocation(seed)),
+                detectives.build());
+    }
+
+    @Test public void testSameSeedPicksTheSameMoveOnAnyNumberOfThreads() throws Exception {
+        var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24MOVES);
+        //both play the same games, so their tables and histories see the same searches
+        var sequential = new MiniMaxAiForMrX(1, 42);
+        var parallel = new MiniMaxAiForMrX(8, 42);
+        //the games themselves are random, the same on every run
+        var random = new Random(7);
+        int positions = 0;
+        for (int game = 0; positions < 100; game++) {
+            sequential.onStart();
+            parallel.onStart();
+            try {
+                GameState state = newGame(setup, game);
+                while (state.getWinner().isEmpty()) {
+                    var moves = state.getAvailableMoves().asList();
+                    if (moves.get(0).commencedBy().isMrX()) {
+                        Move picked = sequential.pickMove(state, null);
+                        assertThat(parallel.pickMove(state, null))
+                                .as("game %d, move %d", game, state.getMrXTravelLog().size())
+                                .isEqualTo(picked);
+                        positions++;
+                    }
+                    state = state.advance(moves.get(random.nextInt(moves.size())));
+                }
+            } finally {
+                sequential.onTerminate();
+                parallel.onTerminate();
+            }
+        }
+    }
+}
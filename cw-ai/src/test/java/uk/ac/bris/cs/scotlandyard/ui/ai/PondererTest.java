@@ -0,0 +1,104 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests starting, stopping and closing a background search
+ */
+public class PondererTest {
+
+    //searches until stopped
+    private static final class Search implements Runnable {
+        private final Ponderer ponderer;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile Thread thread;
+        //not volatile, stop() alone makes it visible
+        private boolean returned;
+
+        Search(Ponderer ponderer) { this.ponderer = ponderer; }
+
+        @Override public void run() {
+            thread = Thread.currentThread();
+            started.countDown();
+            while (!ponderer.stopped()) Thread.onSpinWait();
+            returned = true;
+        }
+
+        void awaitStarted() throws InterruptedException {
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test public void testStopWaitsForTheSearch() throws Exception {
+        var ponderer = new Ponderer("test");
+        try {
+            var first = new Search(ponderer);
+            ponderer.start(first);
+            first.awaitStarted();
+            assertThat(ponderer.stopped()).isFalse();
+            //starting another stops the first
+            var second = new Search(ponderer);
+            ponderer.start(second);
+            assertThat(first.returned).isTrue();
+            second.awaitStarted();
+            ponderer.stop();
+            assertThat(ponderer.stopped()).isTrue();
+            //returned, so whatever it wrote is visible
+            assertThat(second.returned).isTrue();
+            assertThat(second.thread.getName()).startsWith("test-ponder-");
+            assertThat(second.thread.isDaemon()).isTrue();
+            //nothing is running any more
+            ponderer.stop();
+        } finally {
+            ponderer.close();
+        }
+    }
+
+    @Test public void testFailureComesOutOfStop() {
+        var ponderer = new Ponderer("test");
+        try {
+            var failure = new IllegalArgumentException("search failed");
+            ponderer.start(() -> { throw failure; });
+            assertThatThrownBy(ponderer::stop).isSameAs(failure);
+            //reported once, the next search starts afresh
+            ponderer.stop();
+            ponderer.start(() -> {});
+            ponderer.stop();
+        } finally {
+            ponderer.close();
+        }
+    }
+
+    @Test public void testCloseStopsTheSearchAndTheThread() throws Exception {
+        var ponderer = new Ponderer("test");
+        var search = new Search(ponderer);
+        ponderer.start(search);
+        search.awaitStarted();
+        ponderer.close();
+        assertThat(ponderer.stopped()).isTrue();
+        search.thread.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(search.thread.isAlive()).isFalse();
+        assertThatThrownBy(() -> ponderer.start(() -> {}))
+                .isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test public void testOffUnlessAskedFor() {
+        String previous = System.getProperty("scotlandyard.ai.ponder");
+        try {
+            System.clearProperty("scotlandyard.ai.ponder");
+            assertThat(Ponderer.enabled()).isFalse();
+            System.setProperty("scotlandyard.ai.ponder", "true");
+            assertThat(Ponderer.enabled()).isTrue();
+        } finally {
+            if (previous == null) System.clearProperty("scotlandyard.ai.ponder");
+            else System.setProperty("scotlandyard.ai.ponder", previous);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Throughput of the game state factories on the positions of {@link Positions}.
+ * <br>
+ * States compute their moves on first access and keep them, so every benchmark that asks for
+ * moves asks a state it just made: {@link #availableMoves()} includes a {@link #build()} and
+ * {@link #detectiveMoves()} an {@link #advance()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStateBenchmark {
+
+	@Param({"OPENING", "MIDGAME", "ENDGAME"})
+	public Positions.Phase phase;
+
+	@Param({"my", "packed"})
+	public String factory;
+
+	private Factory<GameState> states;
+	private GameSetup setup;
+	private Player mrX;
+	private ImmutableList<Player> detectives;
+
+	// a state of the position with its moves generated, and the first of them
+	private GameState state;
+	private Move move;
+
+	@Setup public void setUp() {
+		switch (factory) {
+			case "my": states = new MyGameStateFactory(); break;
+			case "packed": states = new PackedGameStateFactory(); break;
+			default: throw new IllegalArgumentException("Unknown factory: " + factory);
+		}
+		Positions positions = Positions.of(phase);
+		setup = positions.setup();
+		mrX = positions.mrX();
+		detectives = positions.detectives();
+		state = states.build(setup, mrX, detectives);
+		move = state.getAvailableMoves().iterator().next();
+	}
+
+	/**
+	 * @return a new game of the position
+	 */
+	@Benchmark public GameState build() {
+		return states.build(setup, mrX, detectives);
+	}
+
+	/**
+	 * @return MrX's moves in a new game of the position
+	 */
+	@Benchmark public Object availableMoves() {
+		return states.build(setup, mrX, detectives).getAvailableMoves();
+	}
+
+	/**
+	 * @return the state after MrX's move
+	 */
+	@Benchmark public GameState advance() {
+		return state.advance(move);
+	}
+
+	/**
+	 * @return the detectives' moves after MrX's move
+	 */
+	@Benchmark public Object detectiveMoves() {
+		return state.advance(move).getAvailableMoves();
+	}
+}
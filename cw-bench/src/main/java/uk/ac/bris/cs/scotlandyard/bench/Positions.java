@@ -0,0 +1,149 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Positions of a five detective game on the standard graph for the benchmarks to start from.
+ * <br>
+ * A position is reached by random moves from the starting locations of a seed, the same for every
+ * run, and always has MrX to move. Its players carry the tickets they have left, so a new game
+ * built from them starts in the same spot, only with an empty travel log.
+ */
+public final class Positions {
+
+	/**
+	 * How far into the game a position is
+	 */
+	public enum Phase {
+		/** Before MrX's first move */
+		OPENING(0),
+		/** Between MrX's second and third reveals, on moves 8 and 13 */
+		MIDGAME(10),
+		/** Four moves before MrX wins */
+		ENDGAME(20);
+
+		private final int moves;
+
+		Phase(int moves) { this.moves = moves; }
+
+		/**
+		 * @return the number of moves MrX has made before the position
+		 */
+		public int moves() { return moves; }
+	}
+
+	private static final int DETECTIVES = 5;
+
+	private final GameSetup setup;
+	private final GameState state;
+	private final Player mrX;
+	private final ImmutableList<Player> detectives;
+
+	private Positions(GameSetup setup, GameState state) {
+		this.setup = setup;
+		this.state = state;
+		var detectives = ImmutableList.<Player>builder();
+		Player mrX = null;
+		for (Piece piece : ScotlandYard.ALL_PIECES) {
+			if (!state.getPlayers().contains(piece)) continue;
+			var player = new Player(piece, tickets(state, piece), location(state, piece));
+			if (piece.isMrX()) mrX = player;
+			else detectives.add(player);
+		}
+		this.mrX = mrX;
+		this.detectives = detectives.build();
+	}
+
+	/**
+	 * @param phase how far into the game
+	 * @return the position of the phase
+	 */
+	@Nonnull public static Positions of(@Nonnull Phase phase) {
+		GameSetup setup;
+		try {
+			setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24MOVES);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		// random games do not always last, the next seed is tried until one does
+		for (int seed = 0; ; seed++) {
+			GameState state = play(setup, seed, phase.moves());
+			if (state != null) return new Positions(setup, state);
+		}
+	}
+
+	// the state after MrX's given number of moves, or null if the game ended before
+	private static GameState play(GameSetup setup, int seed, int mrXMoves) {
+		var locations = ScotlandYard.generateDetectiveLocations(seed, DETECTIVES);
+		var pieces = ScotlandYard.DETECTIVES.asList();
+		var detectives = ImmutableList.<Player>builder();
+		for (int i = 0; i < DETECTIVES; i++) {
+			detectives.add(new Player(pieces.get(i), ScotlandYard.defaultDetectiveTickets(), locations.get(i)));
+		}
+		var mrX = new Player(Piece.MrX.MRX, ScotlandYard.defaultMrXTickets(), ScotlandYard.generateMrXLocation(seed));
+		GameState state = new MyGameStateFactory().build(setup, mrX, detectives.build());
+		var random = new Random(seed);
+		while (true) {
+			if (!state.getWinner().isEmpty()) return null;
+			var moves = state.getAvailableMoves().asList();
+			boolean mrXToMove = moves.get(0).commencedBy().isMrX();
+			if (mrXToMove && state.getMrXTravelLog().size() >= mrXMoves) return state;
+			// single moves keep the log at one entry per move of MrX
+			if (mrXToMove) moves = moves.stream()
+					.filter(move -> move instanceof Move.SingleMove)
+					.collect(ImmutableList.toImmutableList());
+			if (moves.isEmpty()) return null;
+			state = state.advance(moves.get(random.nextInt(moves.size())));
+		}
+	}
+
+	private static ImmutableMap<Ticket, Integer> tickets(Board board, Piece piece) {
+		var tickets = ImmutableMap.<Ticket, Integer>builder();
+		var counts = board.getPlayerTickets(piece).orElseThrow();
+		for (Ticket ticket : Ticket.values()) tickets.put(ticket, counts.getCount(ticket));
+		return tickets.build();
+	}
+
+	private static int location(GameState state, Piece piece) {
+		if (piece.isDetective()) return state.getDetectiveLocation((Piece.Detective) piece).orElseThrow();
+		// the position always has MrX to move, so his moves start where he is
+		return state.getAvailableMoves().iterator().next().source();
+	}
+
+	/**
+	 * @return the game setup, on the standard graph
+	 */
+	@Nonnull public GameSetup setup() { return setup; }
+
+	/**
+	 * @return the state of the game reaching the position, travel log and all
+	 */
+	@Nonnull public GameState state() { return state; }
+
+	/**
+	 * @return MrX in the position
+	 */
+	@Nonnull public Player mrX() { return mrX; }
+
+	/**
+	 * @return the detectives in the position
+	 */
+	@Nonnull public ImmutableList<Player> detectives() { return detectives; }
+}
@@ -0,0 +1,99 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.bris.cs.scotlandyard.bench.Positions;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.SearchBoard;
+
+/**
+ * Throughput of MrX's evaluation and search on the positions of {@link Positions}.
+ * <br>
+ * Lives in the package of the ais to reach {@link DijkstraScoreFactory.Dijkstra}. The search runs
+ * on one thread to its fixed depth, without a time limit or pondering, and starts every move with
+ * an empty transposition table, as on the first move of a game.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AiBenchmark {
+
+	@Param({"OPENING", "MIDGAME", "ENDGAME"})
+	public Positions.Phase phase;
+
+	private GameState board;
+	private int mrXLocation;
+	private SearchBoard search;
+	private DijkstraScoreFactory.Dijkstra dijkstra;
+
+	/**
+	 * The search of {@link #pickMove}, a state of its own so that its reset before every call does
+	 * not also run before the score benchmarks
+	 */
+	@State(Scope.Benchmark)
+	public static class Search {
+
+		private MiniMaxAiForMrX ai;
+
+		@Setup public void setUp() {
+			ai = new MiniMaxAiForMrX(1, 42);
+		}
+
+		// forgets what the last search learned
+		@Setup(Level.Invocation) public void newGame() {
+			ai.onTerminate();
+		}
+
+		@TearDown public void tearDown() {
+			ai.onTerminate();
+		}
+	}
+
+	@Setup public void setUp() {
+		Positions positions = Positions.of(phase);
+		board = positions.state();
+		mrXLocation = positions.mrX().location();
+		search = SearchBoard.of(board, mrXLocation);
+		dijkstra = new DijkstraScoreFactory().syncBuild(board);
+	}
+
+	/**
+	 * @return the distance from MrX to the nearest detective, read through the board
+	 */
+	@Benchmark public int score() {
+		return dijkstra.score(mrXLocation, board);
+	}
+
+	/**
+	 * @return the same distance, read from the search board
+	 */
+	@Benchmark public int scoreSearchBoard() {
+		return dijkstra.score(search);
+	}
+
+	/**
+	 * @param search the search, reset before every call
+	 * @return MrX's move
+	 */
+	@Benchmark public Move pickMove(Search search) {
+		return search.ai.pickMove(board, null);
+	}
+}
@@ -0,0 +1,70 @@
+package uk.ac.bris.cs.scotlandyard;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+
+import java.lang.reflect.Modifier;
+import java.util.ServiceLoader;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+
+/**
+ * The AIs to offer in a game, found through {@link ServiceLoader}.
+ * <br>
+ * An AI is listed by its class name in {@code META-INF/services/uk.ac.bris.cs.scotlandyard.model.Ai}
+ * of its jar and needs a public no-argument constructor. Discovery only reads those files, where
+ * {@link ResourceManager#scanAis()} reads every class on the classpath; the scan is still used,
+ * instead of the service files, if the system property scotlandyard.ai.scan is true.
+ * <br>
+ * Classes are looked up on first use, once per process. AIs keep state between moves and are not
+ * thread-safe, so every game creates AIs of its own with {@link #create(Class)}; a game may be
+ * abandoned without {@link Ai#onTerminate()}, or played at the same time as another.
+ */
+public final class AiRegistry {
+
+	private static final Supplier<ImmutableList<Class<? extends Ai>>> CLASSES = Suppliers.memoize(() ->
+			discover(Boolean.getBoolean("scotlandyard.ai.scan")));
+
+	private AiRegistry() {}
+
+	static ImmutableList<Class<? extends Ai>> discover(boolean scan) {
+		if (scan) {
+			return ResourceManager.scanAiClasses().stream()
+					.filter(cls -> !Modifier.isAbstract(cls.getModifiers()))
+					.collect(ImmutableList.toImmutableList());
+		}
+		return ServiceLoader.load(Ai.class).stream()
+				.map(ServiceLoader.Provider::type)
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * @return the classes of every AI, in the order they were found
+	 */
+	@Nonnull public static ImmutableList<Class<? extends Ai>> classes() { return CLASSES.get(); }
+
+	/**
+	 * @return a new instance of every AI, to list them by name; a game creates its own from their
+	 * classes
+	 */
+	@Nonnull public static ImmutableList<Ai> ais() {
+		return CLASSES.get().stream().map(AiRegistry::create).collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * @param cls the class of an AI
+	 * @return a new instance, for a game of its own
+	 * @throws IllegalArgumentException if the class has no public no-argument constructor or it
+	 * threw
+	 */
+	@Nonnull public static Ai create(@Nonnull Class<? extends Ai> cls) {
+		try {
+			return cls.getConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Unable to create Ai instance of class " + cls, e);
+		}
+	}
+}
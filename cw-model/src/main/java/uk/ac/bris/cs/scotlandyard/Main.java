@@ -3,11 +3,15 @@ package uk.ac.bris.cs.scotlandyard;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.stage.Stage;
+import uk.ac.bris.cs.scotlandyard.metrics.Metrics;
 import uk.ac.bris.cs.scotlandyard.ui.Utils;
 import uk.ac.bris.cs.scotlandyard.ui.controller.LocalGameController;
 
 /**
  * Main entry point
+ * <br>
+ * Run with -Dscotlandyard.startup.report=true to print how long each phase of starting took once
+ * everything is loaded; the same phases are in {@link Metrics#STARTUP}.
  */
 public final class Main {
 
@@ -18,12 +22,24 @@ public final class Main {
 		@Override public void start(Stage stage) {
 			Thread.currentThread().setUncaughtExceptionHandler(
 					(thread, throwable) -> Utils.handleFatalException(throwable));
-			controller = LocalGameController.newGame(Utils.setupResources(), stage);
+			ResourceManager manager = Utils.setupResources();
+			// the setup screen needs everything but the map, which the map views wait for
+			// themselves; setupResources reports a failure, so there is nothing to show then
+			manager.ready().thenRunAsync(() -> {
+				try {
+					controller = LocalGameController.newGame(manager, stage);
+					Metrics.STARTUP.recordSinceJvmStart("setupScreen");
+				} catch (RuntimeException e) {
+					Utils.handleFatalException(e);
+				}
+			}, Platform::runLater);
+			if (Boolean.getBoolean("scotlandyard.startup.report"))
+				manager.loaded().thenRunAsync(() -> System.err.print(Metrics.STARTUP), Platform::runLater);
 		}
 
 		@Override
 		public void stop() throws Exception {
-			controller.onApplicationStop();
+			if (controller != null) controller.onApplicationStop();
 		}
 	}
 
@@ -4,11 +4,17 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
@@ -16,6 +22,7 @@ import javax.annotation.Nonnull;
 import io.github.fastclasspathscanner.FastClasspathScanner;
 import javafx.geometry.Point2D;
 import javafx.scene.image.Image;
+import uk.ac.bris.cs.scotlandyard.metrics.Metrics;
 import uk.ac.bris.cs.scotlandyard.model.Ai;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
@@ -32,48 +39,153 @@ public final class ResourceManager {
 
 	public enum ImageResource {ICON, MAP, UOB_LOGO}
 
-	private Map<ImageResource, Image> imageResources;
-	private Map<Ticket, Image> ticketResources;
-	private Map<Integer, Entry<Integer, Integer>> mapCoordinates;
-	private ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph;
+	// the map, the other images, the tickets, the positions and the graph all load at once
+	private static final int LOADERS = 5;
+
+	private CompletableFuture<Image> map;
+	private CompletableFuture<ImmutableMap<ImageResource, Image>> imageResources;
+	private CompletableFuture<ImmutableMap<Ticket, Image>> ticketResources;
+	private CompletableFuture<ImmutableMap<Integer, Entry<Integer, Integer>>> mapCoordinates;
+	private CompletableFuture<ImmutableValueGraph<Integer, ImmutableSet<Transport>>> graph;
+	private CompletableFuture<Void> ready;
+	private CompletableFuture<Void> loaded;
+
+	/**
+	 * Starts loading all resources, each on a thread of its own, and returns at once. Once
+	 * {@link #ready()} completes, the getters return the small resources without waiting, while
+	 * the map may still be decoding; {@link #mapImage()} tells when it is done.
+	 * <br>
+	 * How long each resource took is recorded in {@link Metrics#STARTUP}.
+	 *
+	 * @return completes when every resource is loaded, exceptionally if any cannot be
+	 * @throws IllegalStateException if loading was started before
+	 */
+	@Nonnull public synchronized CompletableFuture<Void> loadAllResourcesAsync() {
+		if (loaded != null) throw new IllegalStateException("Resources are already loading");
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(LOADERS, new ThreadFactoryBuilder()
+				.setNameFormat("resources-%d")
+				.setDaemon(true)
+				.build());
+		try {
+			// the map is by far the largest, so it starts first
+			map = load(executor, "resources.map",
+					() -> new Image(ScotlandYard.pngMapAsStream(), -1, -1, true, true));
+			imageResources = load(executor, "resources.images", () -> ImmutableMap.of(
+					ImageResource.UOB_LOGO, loadImage("/uob_logo.png"),
+					ImageResource.ICON, loadImage("/icon.png")));
+			ticketResources = load(executor, "resources.tickets", () -> ImmutableMap.copyOf(
+					Stream.of(Ticket.values()).collect(toMap(
+							identity(),
+							ticket -> loadImage(format("/tickets/%s.png", ticket.name().toLowerCase()))))));
+			mapCoordinates = load(executor, "resources.positions",
+					() -> ImmutableMap.copyOf(ScotlandYard.pngMapPositionEntries()));
+			graph = load(executor, "resources.graph", ScotlandYard::standardGraph);
+		} finally {
+			// lets the tasks above finish and then the threads exit
+			executor.shutdown();
+		}
+		ready = CompletableFuture.allOf(imageResources, ticketResources, mapCoordinates, graph);
+		loaded = CompletableFuture.allOf(ready, map)
+				.whenComplete((ignored, e) -> Metrics.STARTUP.recordSince("resources", start));
+		return loaded;
+	}
 
 	/**
-	 * Loads all resources into memory <br>
+	 * Loads all resources into memory, as {@link #loadAllResourcesAsync()} does, and waits for
+	 * them <br>
 	 * This should be called before any resources are required
 	 *
 	 * @throws IOException if any of the resources cannot be found
 	 */
 	public void loadAllResources() throws IOException {
+		try {
+			loadAllResourcesAsync().join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException)
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			throw e;
+		}
+	}
 
-		// shared images
-		imageResources = ImmutableMap.of(
-				ImageResource.MAP, new Image(ScotlandYard.pngMapAsStream(), -1, -1, true, true),
-				ImageResource.UOB_LOGO, loadImage("/uob_logo.png"),
-				ImageResource.ICON, loadImage("/icon.png"));
-
-		ticketResources = ImmutableMap.copyOf(Stream.of(Ticket.values()).collect(toMap(
-				identity(),
-				ticket -> loadImage(format("/tickets/%s.png", ticket.name().toLowerCase())))));
+	private interface Loader<T> {
+		T load() throws IOException;
+	}
 
-		mapCoordinates = ImmutableMap.copyOf(ScotlandYard.pngMapPositionEntries());
-		graph = ScotlandYard.standardGraph();
+	private static <T> CompletableFuture<T> load(Executor executor, String phase, Loader<T> loader) {
+		return CompletableFuture.supplyAsync(() -> {
+			long start = System.nanoTime();
+			try {
+				return loader.load();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				Metrics.STARTUP.recordSince(phase, start);
+			}
+		}, executor);
 	}
 
 	private static Image loadImage(String path) {
 		return new Image(path, -1, -1, true, true, false);
 	}
 
-	public Image getImage(ImageResource resource) { return imageResources.get(resource); }
+	// never waits, callers on the FX thread must not block it
+	private static <T> T loadedNow(CompletableFuture<T> resource) {
+		if (resource == null || !resource.isDone())
+			throw new IllegalStateException("Resources have not been loaded");
+		return resource.join();
+	}
+
+	/**
+	 * @return completes when every resource but the map is loaded, exceptionally if any cannot be
+	 * @throws IllegalStateException if loading has not been started
+	 */
+	@Nonnull public CompletableFuture<Void> ready() {
+		if (ready == null) throw new IllegalStateException("Resources have not been loaded");
+		return ready;
+	}
+
+	/**
+	 * @return completes when every resource is loaded
+	 * @throws IllegalStateException if loading has not been started
+	 */
+	@Nonnull public CompletableFuture<Void> loaded() {
+		if (loaded == null) throw new IllegalStateException("Resources have not been loaded");
+		return loaded;
+	}
+
+	/**
+	 * @param resource the image
+	 * @return the image
+	 * @throws IllegalStateException if it has not been loaded, see {@link #ready()} and
+	 * {@link #mapImage()}
+	 */
+	public Image getImage(ImageResource resource) {
+		return resource == ImageResource.MAP ? getMap() : loadedNow(imageResources).get(resource);
+	}
+
+	/**
+	 * @return the map
+	 * @throws IllegalStateException if it has not been decoded yet, see {@link #mapImage()}
+	 */
+	@Nonnull public Image getMap() { return loadedNow(map); }
 
-	@Nonnull public Image getMap() { return getImage(ImageResource.MAP); }
+	/**
+	 * @return completes with the map once it is decoded
+	 * @throws IllegalStateException if loading has not been started
+	 */
+	@Nonnull public CompletableFuture<Image> mapImage() {
+		if (map == null) throw new IllegalStateException("Resources have not been loaded");
+		return map;
+	}
 
-	@Nonnull public Image getTicket(Ticket ticket) { return ticketResources.get(ticket); }
+	@Nonnull public Image getTicket(Ticket ticket) { return loadedNow(ticketResources).get(ticket); }
 
 	@Nonnull
-	public ImmutableValueGraph<Integer, ImmutableSet<Transport>> getGraph() { return graph; }
+	public ImmutableValueGraph<Integer, ImmutableSet<Transport>> getGraph() { return loadedNow(graph); }
 
 	@javax.annotation.Nullable public Point2D coordinateAtNode(int node) {
-		var entry = mapCoordinates.get(node);
+		var entry = loadedNow(mapCoordinates).get(node);
 		return new Point2D(entry.getKey(), entry.getValue());
 	}
 
@@ -88,7 +200,22 @@ public final class ResourceManager {
 		}
 	}
 
-	@SuppressWarnings("unchecked") public static ImmutableList<Ai> scanAis() {
+	/**
+	 * Scans the whole classpath, which takes seconds on large classpaths; {@link AiRegistry} finds
+	 * the AIs listed in service files much faster.
+	 *
+	 * @return a new instance of every Ai on the classpath
+	 */
+	public static ImmutableList<Ai> scanAis() {
+		return scanAiClasses().stream()
+				.map(ResourceManager::instantiateAi)
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * @return every class on the classpath implementing Ai, without creating any
+	 */
+	@SuppressWarnings("unchecked") public static ImmutableList<Class<Ai>> scanAiClasses() {
 		var found = new FastClasspathScanner()
 				.enableAllInfo()
 				.enableExternalClasses()
@@ -99,7 +226,7 @@ public final class ResourceManager {
 				Class<Ai> clazz = (Class<Ai>) c.loadClass();
 				if (!Ai.class.isAssignableFrom(clazz))
 					throw new IllegalArgumentException(c + " does not implement " + Ai.class);
-				return instantiateAi(clazz);
+				return clazz;
 			} catch (Exception e) { throw new RuntimeException(e); }
 		}).collect(ImmutableList.toImmutableList());
 	}
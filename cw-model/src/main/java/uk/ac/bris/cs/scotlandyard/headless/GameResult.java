@@ -0,0 +1,96 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+
+/**
+ * The result of one simulated game.
+ */
+public final class GameResult {
+
+	/**
+	 * How a game ended
+	 */
+	public enum Outcome {
+		/** MrX won */
+		MRX_WINS,
+		/** The detectives won */
+		DETECTIVES_WIN,
+		/** Nobody could move and nobody won, see {@link uk.ac.bris.cs.scotlandyard.model.Board#getWinner()} */
+		NO_WINNER,
+		/** An AI threw or picked a move that was not available */
+		FAILED,
+		/** An AI took longer than the timeout for a move, with time control on */
+		TIMED_OUT
+	}
+
+	private final int seed;
+	private final Outcome outcome;
+	private final int rounds;
+	private final long[] mrXNanos;
+	private final long[] detectiveNanos;
+	private final Throwable failure;
+	private final Piece faulted;
+
+	GameResult(int seed, Outcome outcome, int rounds,
+	           long[] mrXNanos, long[] detectiveNanos, Throwable failure, Piece faulted) {
+		this.seed = seed;
+		this.outcome = outcome;
+		this.rounds = rounds;
+		this.mrXNanos = mrXNanos;
+		this.detectiveNanos = detectiveNanos;
+		this.failure = failure;
+		this.faulted = faulted;
+	}
+
+	/**
+	 * @return the seed the starting locations were generated from
+	 */
+	public int seed() { return seed; }
+
+	/**
+	 * @return how the game ended
+	 */
+	@Nonnull public Outcome outcome() { return outcome; }
+
+	/**
+	 * @return the number of entries in MrX's travel log when the game ended
+	 */
+	public int rounds() { return rounds; }
+
+	/**
+	 * @return the time MrX's AI took for each of its moves, in nanoseconds
+	 */
+	@Nonnull public long[] mrXNanos() { return mrXNanos.clone(); }
+
+	/**
+	 * @return the time the detectives' AI took for each of its moves, in nanoseconds
+	 */
+	@Nonnull public long[] detectiveNanos() { return detectiveNanos.clone(); }
+
+	// without copying, for the report
+	long[] nanos(boolean mrX) { return mrX ? mrXNanos : detectiveNanos; }
+
+	/**
+	 * @return what went wrong if the game {@link Outcome#FAILED}
+	 */
+	@Nonnull public Optional<Throwable> failure() { return Optional.ofNullable(failure); }
+
+	/**
+	 * @return the piece whose AI was picking a move when the game {@link Outcome#FAILED} or
+	 * {@link Outcome#TIMED_OUT}, the side it plays for loses
+	 */
+	@Nonnull public Optional<Piece> faulted() { return Optional.ofNullable(faulted); }
+
+	@Override public String toString() {
+		return "GameResult{" +
+				"seed=" + seed +
+				", outcome=" + outcome +
+				", rounds=" + rounds +
+				", moves=" + (mrXNanos.length + detectiveNanos.length) +
+				'}';
+	}
+}
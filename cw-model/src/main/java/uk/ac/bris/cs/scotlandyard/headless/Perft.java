@@ -0,0 +1,124 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Counts the states a game can reach in a number of moves, as chess engines do with perft.
+ * <br>
+ * Every move is one ply, whether MrX or a detective makes it, and only the states reached after
+ * exactly that many moves are counted: a game that is over earlier ends its branch without adding
+ * to the count. Two factories that agree on every count, down to each root move, generate the same
+ * game tree, so the counts of {@link uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory} check any
+ * other factory; the time taken measures how fast a factory generates moves.
+ * <br>
+ * {@link #divide(GameState, int)} counts the subtree of each root move on its own thread, up to
+ * the number of threads asked for.
+ */
+public final class Perft {
+
+	private final int threads;
+
+	/**
+	 * @param threads the number of threads to count subtrees on
+	 */
+	public Perft(int threads) {
+		if (threads < 1) throw new IllegalArgumentException("Threads out of range: " + threads);
+		this.threads = threads;
+	}
+
+	/**
+	 * Counts on the calling thread.
+	 *
+	 * @param state the state to start from
+	 * @param depth the number of moves, at least 0
+	 * @return the number of states reached after exactly that many moves
+	 */
+	public static long count(@Nonnull GameState state, int depth) {
+		if (depth < 0) throw new IllegalArgumentException("Negative depth: " + depth);
+		return leaves(Objects.requireNonNull(state), depth);
+	}
+
+	private static long leaves(GameState state, int depth) {
+		if (depth == 0) return 1;
+		var moves = state.getAvailableMoves();
+		// the states after the last move need not be made to be counted
+		if (depth == 1) return moves.size();
+		long leaves = 0;
+		for (Move move : moves) leaves += leaves(state.advance(move), depth - 1);
+		return leaves;
+	}
+
+	/**
+	 * Counts the subtree of every move available in the state.
+	 *
+	 * @param state the state to start from
+	 * @param depth the number of moves, at least 1
+	 * @return the counts of each root move
+	 * @throws InterruptedException if interrupted while waiting for the counts
+	 */
+	@Nonnull public PerftReport divide(@Nonnull GameState state, int depth) throws InterruptedException {
+		Objects.requireNonNull(state);
+		if (depth < 1) throw new IllegalArgumentException("Depth out of range: " + depth);
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("perft-%d")
+				.setDaemon(true)
+				.build());
+		try {
+			long start = System.nanoTime();
+			// states are only advanced by one thread at a time, so the children are made here
+			var moves = ImmutableList.copyOf(state.getAvailableMoves());
+			var futures = new ArrayList<Future<Long>>(moves.size());
+			for (Move move : moves) {
+				GameState child = state.advance(move);
+				futures.add(executor.submit(() -> leaves(child, depth - 1)));
+			}
+			var counts = ImmutableMap.<Move, Long>builderWithExpectedSize(moves.size());
+			for (int i = 0; i < moves.size(); i++) {
+				try {
+					counts.put(moves.get(i), futures.get(i).get());
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("Counting " + moves.get(i) + " failed", e.getCause());
+				}
+			}
+			return new PerftReport(depth, counts.build(), System.nanoTime() - start, threads);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Counts the subtree of every move available at the start of a new game.
+	 *
+	 * @param factory makes the game
+	 * @param setup the game setup
+	 * @param mrX MrX
+	 * @param detectives the detectives
+	 * @param depth the number of moves, at least 1
+	 * @return the counts of each of MrX's first moves
+	 * @throws InterruptedException if interrupted while waiting for the counts
+	 */
+	@Nonnull public PerftReport divide(@Nonnull Factory<GameState> factory,
+	                                   @Nonnull GameSetup setup,
+	                                   @Nonnull Player mrX,
+	                                   @Nonnull ImmutableList<Player> detectives,
+	                                   int depth) throws InterruptedException {
+		return divide(factory.build(setup, mrX, detectives), depth);
+	}
+}
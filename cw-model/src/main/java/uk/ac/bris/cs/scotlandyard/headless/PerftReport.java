@@ -0,0 +1,86 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+/**
+ * The counts of a {@link Perft#divide(uk.ac.bris.cs.scotlandyard.model.Board.GameState, int)}:
+ * the states each root move leads to, their total and how fast they were counted.
+ */
+public final class PerftReport {
+
+	private final int depth;
+	private final ImmutableMap<Move, Long> counts;
+	private final long wallNanos;
+	private final int threads;
+
+	PerftReport(int depth, ImmutableMap<Move, Long> counts, long wallNanos, int threads) {
+		this.depth = depth;
+		this.counts = counts;
+		this.wallNanos = wallNanos;
+		this.threads = threads;
+	}
+
+	/**
+	 * @return the number of moves counted to, the root move included
+	 */
+	public int depth() { return depth; }
+
+	/**
+	 * @return the number of states reached through each root move, in the order the state
+	 * listed its moves
+	 */
+	@Nonnull public ImmutableMap<Move, Long> counts() { return counts; }
+
+	/**
+	 * @return the number of states reached through all root moves
+	 */
+	public long total() {
+		return counts.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	/**
+	 * @return the number of threads the subtrees were counted on
+	 */
+	public int threads() { return threads; }
+
+	/**
+	 * @return the time the count took, in nanoseconds
+	 */
+	public long wallNanos() { return wallNanos; }
+
+	/**
+	 * @return the number of states counted per second of wall time
+	 */
+	public double statesPerSecond() {
+		return wallNanos == 0 ? 0 : total() * (double) TimeUnit.SECONDS.toNanos(1) / wallNanos;
+	}
+
+	/**
+	 * @param other the counts of another factory, or of the same one, from the same state
+	 * @return the root moves only one of the reports has or that they count differently, empty if
+	 * both generate the same tree
+	 */
+	@Nonnull public ImmutableSet<Move> differences(@Nonnull PerftReport other) {
+		Objects.requireNonNull(other);
+		return Sets.union(counts.keySet(), other.counts.keySet()).stream()
+				.filter(move -> !Objects.equals(counts.get(move), other.counts.get(move)))
+				.collect(ImmutableSet.toImmutableSet());
+	}
+
+	@Override public String toString() {
+		var builder = new StringBuilder();
+		counts.forEach((move, count) -> builder.append(String.format("%s: %d%n", move, count)));
+		builder.append(String.format("%d moves, %d states at depth %d on %d threads in %.2fs, %.0f states/s%n",
+				counts.size(), total(), depth, threads, wallNanos / 1e9, statesPerSecond()));
+		return builder.toString();
+	}
+}
@@ -0,0 +1,120 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.headless.GameResult.Outcome;
+
+/**
+ * Summary of a batch of simulated games: throughput, win rates and how long the AIs took per
+ * move.
+ */
+public final class SimulationReport {
+
+	private final ImmutableList<GameResult> results;
+	private final long wallNanos;
+	private final int threads;
+	// sorted, for percentiles
+	private final long[] mrXNanos;
+	private final long[] detectiveNanos;
+
+	SimulationReport(ImmutableList<GameResult> results, long wallNanos, int threads) {
+		this.results = results;
+		this.wallNanos = wallNanos;
+		this.threads = threads;
+		this.mrXNanos = sorted(results, true);
+		this.detectiveNanos = sorted(results, false);
+	}
+
+	private static long[] sorted(ImmutableList<GameResult> results, boolean mrX) {
+		long[] nanos = results.stream().flatMapToLong(r -> Arrays.stream(r.nanos(mrX))).toArray();
+		Arrays.sort(nanos);
+		return nanos;
+	}
+
+	/**
+	 * @return the results of the games, in the order of their seeds
+	 */
+	@Nonnull public ImmutableList<GameResult> results() { return results; }
+
+	/**
+	 * @return the number of games played
+	 */
+	public int games() { return results.size(); }
+
+	/**
+	 * @return the number of threads the games were played on
+	 */
+	public int threads() { return threads; }
+
+	/**
+	 * @return the time from the first game starting to the last game ending, in nanoseconds
+	 */
+	public long wallNanos() { return wallNanos; }
+
+	/**
+	 * @return the number of games finished per second of wall time
+	 */
+	public double gamesPerSecond() {
+		return wallNanos == 0 ? 0 : games() * (double) TimeUnit.SECONDS.toNanos(1) / wallNanos;
+	}
+
+	/**
+	 * @param outcome the outcome
+	 * @return the number of games that ended with the given outcome
+	 */
+	public int count(@Nonnull Outcome outcome) {
+		return (int) results.stream().filter(r -> r.outcome() == outcome).count();
+	}
+
+	/**
+	 * @param outcome the outcome
+	 * @return the fraction of games that ended with the given outcome, 0 if no games were played
+	 */
+	public double rate(@Nonnull Outcome outcome) {
+		return results.isEmpty() ? 0 : count(outcome) / (double) results.size();
+	}
+
+	/**
+	 * @param mrX whether to look at MrX's moves rather than the detectives' moves
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the time within which the given percentage of the side's moves were picked, in
+	 * nanoseconds (nearest rank); 0 if the side made no moves
+	 * @throws IllegalArgumentException if the percentile is out of range
+	 */
+	public long latencyNanos(boolean mrX, double percentile) {
+		if (!(percentile >= 0 && percentile <= 100))
+			throw new IllegalArgumentException("Percentile out of range: " + percentile);
+		long[] nanos = mrX ? mrXNanos : detectiveNanos;
+		if (nanos.length == 0) return 0;
+		int rank = (int) Math.ceil(percentile / 100 * nanos.length);
+		return nanos[Math.max(rank - 1, 0)];
+	}
+
+	/**
+	 * @param mrX whether to count MrX's moves rather than the detectives' moves
+	 * @return the number of moves the side made over all games
+	 */
+	public int moves(boolean mrX) { return (mrX ? mrXNanos : detectiveNanos).length; }
+
+	@Override public String toString() {
+		var builder = new StringBuilder();
+		builder.append(String.format("%d games on %d threads in %.2fs, %.2f games/s%n",
+				games(), threads, wallNanos / 1e9, gamesPerSecond()));
+		for (Outcome outcome : Outcome.values()) {
+			builder.append(String.format("  %-14s %6d (%5.1f%%)%n",
+					outcome, count(outcome), rate(outcome) * 100));
+		}
+		for (boolean mrX : new boolean[]{true, false}) {
+			builder.append(String.format("  %-10s %7d moves, ms p50 %.2f p90 %.2f p99 %.2f max %.2f%n",
+					mrX ? "MrX" : "detectives", moves(mrX),
+					latencyNanos(mrX, 50) / 1e6, latencyNanos(mrX, 90) / 1e6,
+					latencyNanos(mrX, 99) / 1e6, latencyNanos(mrX, 100) / 1e6));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,215 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.headless.GameResult.Outcome;
+import uk.ac.bris.cs.scotlandyard.metrics.Metrics;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Plays whole games between two {@link Ai}s without any UI, on as many threads as asked for.
+ * <br>
+ * Game {@code i} of a batch starts from the locations {@link ScotlandYard#generateMrXLocation(int)}
+ * and {@link ScotlandYard#generateDetectiveLocations(int, int)} produce for seed
+ * {@code firstSeed + i}, with the default tickets, so batches are repeatable. Every game gets its
+ * own AI instances from the suppliers, as AIs are free to keep state between moves; they see the
+ * game state itself, just like in the UI. Games run on {@link PackedGameStateFactory} states.
+ */
+public final class Simulator {
+
+	private final GameSetup setup;
+	private final int detectives;
+	private final Supplier<? extends Ai> mrXAi;
+	private final Supplier<? extends Ai> detectiveAi;
+	private final Pair<Long, TimeUnit> timeout;
+	private final boolean timeControl;
+	private final Factory<GameState> factory = new PackedGameStateFactory();
+
+	/**
+	 * @param setup the game setup
+	 * @param detectives the number of detectives, 1 to 5
+	 * @param mrXAi creates MrX's AI for each game
+	 * @param detectiveAi creates the detectives' AI for each game
+	 * @param timeout the time the AIs are told they have per move; it is not enforced
+	 */
+	public Simulator(@Nonnull GameSetup setup,
+	                 int detectives,
+	                 @Nonnull Supplier<? extends Ai> mrXAi,
+	                 @Nonnull Supplier<? extends Ai> detectiveAi,
+	                 @Nonnull Pair<Long, TimeUnit> timeout) {
+		this(setup, detectives, mrXAi, detectiveAi, timeout, false);
+	}
+
+	/**
+	 * @param setup the game setup
+	 * @param detectives the number of detectives, 1 to 5
+	 * @param mrXAi creates MrX's AI for each game
+	 * @param detectiveAi creates the detectives' AI for each game
+	 * @param timeout the time the AIs are told they have per move
+	 * @param timeControl whether a move picked after the timeout ends the game as
+	 * {@link Outcome#TIMED_OUT}; AIs are never interrupted, so the move is judged once it is picked
+	 */
+	public Simulator(@Nonnull GameSetup setup,
+	                 int detectives,
+	                 @Nonnull Supplier<? extends Ai> mrXAi,
+	                 @Nonnull Supplier<? extends Ai> detectiveAi,
+	                 @Nonnull Pair<Long, TimeUnit> timeout,
+	                 boolean timeControl) {
+		if (detectives < 1 || detectives > ScotlandYard.DETECTIVES.size())
+			throw new IllegalArgumentException("Detectives out of range: " + detectives);
+		this.setup = Objects.requireNonNull(setup);
+		this.detectives = detectives;
+		this.mrXAi = Objects.requireNonNull(mrXAi);
+		this.detectiveAi = Objects.requireNonNull(detectiveAi);
+		this.timeout = Objects.requireNonNull(timeout);
+		this.timeControl = timeControl;
+	}
+
+	/**
+	 * Plays a batch of games.
+	 *
+	 * @param games the number of games
+	 * @param firstSeed the seed of the first game
+	 * @param threads the number of threads to play on
+	 * @return the results
+	 * @throws InterruptedException if interrupted while waiting for the games
+	 */
+	@Nonnull public SimulationReport run(int games, int firstSeed, int threads)
+			throws InterruptedException {
+		if (games < 0) throw new IllegalArgumentException("Negative games: " + games);
+		if (threads < 1) throw new IllegalArgumentException("Threads out of range: " + threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("simulation-%d")
+				.setDaemon(true)
+				.build());
+		try {
+			long start = System.nanoTime();
+			var futures = new ArrayList<Future<GameResult>>(games);
+			for (int i = 0; i < games; i++) {
+				int seed = firstSeed + i;
+				futures.add(executor.submit(() -> play(seed)));
+			}
+			var results = ImmutableList.<GameResult>builderWithExpectedSize(games);
+			for (Future<GameResult> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					// play reports AI failures in the result, anything else is a bug here
+					throw new IllegalStateException("Simulation failed", e.getCause());
+				}
+			}
+			return new SimulationReport(results.build(), System.nanoTime() - start, threads);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Plays one game on the calling thread.
+	 *
+	 * @param seed the seed of the starting locations
+	 * @return the result
+	 */
+	@Nonnull public GameResult play(int seed) {
+		var locations = ScotlandYard.generateDetectiveLocations(seed, detectives);
+		var players = ImmutableList.<Player>builder();
+		var pieces = ScotlandYard.DETECTIVES.asList();
+		for (int i = 0; i < detectives; i++) {
+			players.add(new Player(pieces.get(i),
+					ScotlandYard.defaultDetectiveTickets(), locations.get(i)));
+		}
+		var mrX = new Player(Piece.MrX.MRX,
+				ScotlandYard.defaultMrXTickets(), ScotlandYard.generateMrXLocation(seed));
+		GameState state = factory.build(setup, mrX, players.build());
+
+		Ai mrXPlayer = mrXAi.get();
+		Ai detectivePlayer = detectiveAi.get();
+		var mrXNanos = new LongList();
+		var detectiveNanos = new LongList();
+		Outcome outcome;
+		Throwable failure = null;
+		// the piece whose AI is picking a move, if any
+		Piece mover = null;
+		Piece faulted = null;
+		long limit = timeout.right().toNanos(timeout.left());
+		try {
+			mrXPlayer.onStart();
+			detectivePlayer.onStart();
+			while (true) {
+				mover = null;
+				var winner = state.getWinner();
+				var moves = state.getAvailableMoves();
+				if (!winner.isEmpty()) {
+					outcome = winner.contains(Piece.MrX.MRX) ? Outcome.MRX_WINS : Outcome.DETECTIVES_WIN;
+					break;
+				}
+				if (moves.isEmpty()) {
+					outcome = Outcome.NO_WINNER;
+					break;
+				}
+				mover = moves.iterator().next().commencedBy();
+				boolean mrXToMove = mover.isMrX();
+				Ai ai = mrXToMove ? mrXPlayer : detectivePlayer;
+				long start = System.nanoTime();
+				Move move = ai.pickMove(state, timeout);
+				long nanos = System.nanoTime() - start;
+				(mrXToMove ? mrXNanos : detectiveNanos).add(nanos);
+				Metrics.AI_DECISION.record(nanos);
+				if (timeControl && nanos > limit) {
+					outcome = Outcome.TIMED_OUT;
+					faulted = mover;
+					break;
+				}
+				if (!moves.contains(move)) {
+					throw new IllegalStateException("Ai(" + ai.name() + ") selected an invalid move, got: "
+							+ move + ", was expecting one of " + moves);
+				}
+				state = state.advance(move);
+			}
+		} catch (RuntimeException e) {
+			outcome = Outcome.FAILED;
+			failure = e;
+			faulted = mover;
+		} finally {
+			mrXPlayer.onTerminate();
+			detectivePlayer.onTerminate();
+		}
+		return new GameResult(seed, outcome, state.getMrXTravelLog().size(),
+				mrXNanos.toArray(), detectiveNanos.toArray(), failure, faulted);
+	}
+
+	// move times of one game
+	private static final class LongList {
+		private long[] values = new long[32];
+		private int size;
+
+		void add(long value) {
+			if (size == values.length) values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+
+		long[] toArray() { return Arrays.copyOf(values, size); }
+	}
+}
@@ -0,0 +1,227 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.AiRegistry;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+/**
+ * Plays AIs against each other, every AI as MrX against every other AI as the detectives, and
+ * rates them, without any UI.
+ * <br>
+ * AIs only take the seats they declare with {@link Ai#plays}: an AI that plays MrX alone never
+ * plays the detectives, and one that plays neither side is listed without any games.
+ * <br>
+ * Each pairing plays the same seeds, see {@link Simulator}, and all games of all pairings share
+ * one pool of threads. Time control is on: an AI that picks a move after the timeout loses the
+ * game, as does one that fails.
+ * <br>
+ * {@link #main(String[])} runs a tournament from the command line, between the AIs of
+ * {@link AiRegistry} unless told otherwise, and writes its standings as CSV. From cw-ai, for
+ * example:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=uk.ac.bris.cs.scotlandyard.headless.Tournament \
+ *     -Dexec.args="--games 20 --timeout 2 --out tournament"
+ * </pre>
+ * JavaFX is never started.
+ */
+public final class Tournament {
+
+	private final GameSetup setup;
+	private final int detectives;
+	private final ImmutableMap<String, Supplier<? extends Ai>> ais;
+	private final Pair<Long, TimeUnit> timeout;
+	private final ImmutableSet<String> mrXAis;
+	private final ImmutableSet<String> detectiveAis;
+
+	/**
+	 * @param setup the game setup
+	 * @param detectives the number of detectives, 1 to 5
+	 * @param ais creates each AI for each game, by name; at least two, and at least one of them
+	 * playing MrX against another playing the detectives
+	 * @param timeout the time an AI has per move
+	 */
+	public Tournament(@Nonnull GameSetup setup,
+	                  int detectives,
+	                  @Nonnull ImmutableMap<String, Supplier<? extends Ai>> ais,
+	                  @Nonnull Pair<Long, TimeUnit> timeout) {
+		if (detectives < 1 || detectives > ScotlandYard.DETECTIVES.size())
+			throw new IllegalArgumentException("Detectives out of range: " + detectives);
+		if (ais.size() < 2)
+			throw new IllegalArgumentException("A tournament needs at least two AIs, got " + ais.keySet());
+		this.setup = Objects.requireNonNull(setup);
+		this.detectives = detectives;
+		this.ais = ais;
+		this.timeout = Objects.requireNonNull(timeout);
+		var mrXAis = ImmutableSet.<String>builder();
+		var detectiveAis = ImmutableSet.<String>builder();
+		var pieces = ScotlandYard.DETECTIVES.asList().subList(0, detectives);
+		ais.forEach((name, supplier) -> {
+			// an instance of its own, never started, only asked which sides it plays
+			Ai ai = supplier.get();
+			if (ai.plays(Piece.MrX.MRX)) mrXAis.add(name);
+			if (pieces.stream().allMatch(ai::plays)) detectiveAis.add(name);
+		});
+		this.mrXAis = mrXAis.build();
+		this.detectiveAis = detectiveAis.build();
+		if (this.mrXAis.stream().noneMatch(mrX -> this.detectiveAis.stream().anyMatch(d -> !d.equals(mrX))))
+			throw new IllegalArgumentException("No AI playing MrX has another AI playing the detectives, MrX: "
+					+ this.mrXAis + ", detectives: " + this.detectiveAis);
+	}
+
+	/**
+	 * @return the names of the AIs that play MrX
+	 */
+	@Nonnull public ImmutableSet<String> mrXAis() { return mrXAis; }
+
+	/**
+	 * @return the names of the AIs that play the detectives
+	 */
+	@Nonnull public ImmutableSet<String> detectiveAis() { return detectiveAis; }
+
+	/**
+	 * Plays every pairing of an AI playing MrX with another AI playing the detectives.
+	 *
+	 * @param games the number of games of each pairing
+	 * @param firstSeed the seed of the first game of each pairing
+	 * @param threads the number of threads to play on
+	 * @return the standings
+	 * @throws InterruptedException if interrupted while waiting for the games
+	 */
+	@Nonnull public TournamentReport run(int games, int firstSeed, int threads) throws InterruptedException {
+		if (games < 0) throw new IllegalArgumentException("Negative games: " + games);
+		if (threads < 1) throw new IllegalArgumentException("Threads out of range: " + threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("tournament-%d")
+				.setDaemon(true)
+				.build());
+		try {
+			long start = System.nanoTime();
+			var pairings = new ArrayList<Pair<String, String>>();
+			var futures = new ArrayList<Future<GameResult>>();
+			for (String mrX : mrXAis) {
+				for (String detective : detectiveAis) {
+					if (mrX.equals(detective)) continue;
+					var simulator = new Simulator(setup, detectives, ais.get(mrX), ais.get(detective), timeout, true);
+					for (int i = 0; i < games; i++) {
+						int seed = firstSeed + i;
+						pairings.add(new Pair<>(mrX, detective));
+						futures.add(executor.submit(() -> simulator.play(seed)));
+					}
+				}
+			}
+			var played = ImmutableList.<TournamentReport.Game>builderWithExpectedSize(futures.size());
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					var pairing = pairings.get(i);
+					played.add(new TournamentReport.Game(pairing.left(), pairing.right(), futures.get(i).get()));
+				} catch (ExecutionException e) {
+					// play reports AI failures in the result, anything else is a bug here
+					throw new IllegalStateException("Tournament failed", e.getCause());
+				}
+			}
+			return new TournamentReport(ais.keySet().asList(), played.build(), System.nanoTime() - start, threads);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static final ImmutableSet<String> OPTIONS = ImmutableSet.of(
+			"--games", "--detectives", "--timeout", "--threads", "--seed", "--out", "--ai");
+
+	private static final String USAGE = "Options:\n"
+			+ "  --games N       games per pairing, default 10\n"
+			+ "  --detectives N  detectives per game, default 5\n"
+			+ "  --timeout S     seconds per move, default 5\n"
+			+ "  --threads N     games played at once, default 1\n"
+			+ "  --seed N        seed of the first game of each pairing, default 0\n"
+			+ "  --out DIR       where to write standings.csv and games.csv, default tournament\n"
+			+ "  --ai CLASS      an Ai to play, may be repeated; default every Ai of the registry\n"
+			+ "Every Ai playing MrX meets every other Ai playing the detectives. An Ai only plays the\n"
+			+ "sides it declares with Ai.plays, by default both; one that plays neither gets no games.\n"
+			+ "Moves are timed on the wall clock and an Ai may search on every core, so games are played\n"
+			+ "one at a time. To play more at once, also limit each Ai to one search thread with\n"
+			+ "-Dscotlandyard.ai.threads=1, or the games compete for cores and the results depend on the\n"
+			+ "load of the machine rather than on the AIs.";
+
+	/**
+	 * Runs a tournament, prints its standings and writes them as CSV. Options come in pairs like
+	 * {@code --games 20}, see the usage message for all of them.
+	 *
+	 * @param args the options
+	 * @throws Exception if the tournament cannot be run
+	 */
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<>();
+		var classes = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			String option = args[i];
+			if (!OPTIONS.contains(option) || i + 1 == args.length)
+				throw new IllegalArgumentException("Expected an option and its value at " + option + "\n" + USAGE);
+			String value = args[++i];
+			if (option.equals("--ai")) classes.add(value);
+			else options.put(option, value);
+		}
+		int games = Integer.parseInt(options.getOrDefault("--games", "10"));
+		int detectives = Integer.parseInt(options.getOrDefault("--detectives", "5"));
+		long timeout = Long.parseLong(options.getOrDefault("--timeout", "5"));
+		int threads = Integer.parseInt(options.getOrDefault("--threads", "1"));
+		int seed = Integer.parseInt(options.getOrDefault("--seed", "0"));
+		Path out = Path.of(options.getOrDefault("--out", "tournament"));
+
+		var tournament = new Tournament(new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24MOVES),
+				detectives, ais(classes), new Pair<>(timeout, TimeUnit.SECONDS));
+		System.out.println("MrX: " + String.join(", ", tournament.mrXAis())
+				+ "; detectives: " + String.join(", ", tournament.detectiveAis()));
+		var report = tournament.run(games, seed, threads);
+		System.out.print(report);
+		report.writeCsv(out);
+		System.out.println("Standings written to " + out.toAbsolutePath());
+	}
+
+	// the named classes, or every Ai of the registry
+	private static ImmutableMap<String, Supplier<? extends Ai>> ais(List<String> classes) {
+		var found = new ArrayList<Class<? extends Ai>>();
+		if (classes.isEmpty()) found.addAll(AiRegistry.classes());
+		for (String name : classes) {
+			Class<?> cls;
+			try {
+				cls = Class.forName(name);
+			} catch (ClassNotFoundException e) {
+				throw new IllegalArgumentException("No such class: " + name, e);
+			}
+			if (!Ai.class.isAssignableFrom(cls))
+				throw new IllegalArgumentException(cls + " does not implement " + Ai.class);
+			found.add(cls.asSubclass(Ai.class));
+		}
+		var ais = new LinkedHashMap<String, Supplier<? extends Ai>>();
+		for (Class<? extends Ai> cls : found) {
+			String name = AiRegistry.create(cls).name();
+			if (ais.put(name, () -> AiRegistry.create(cls)) != null)
+				throw new IllegalArgumentException("Two AIs are called " + name);
+		}
+		return ImmutableMap.copyOf(ais);
+	}
+}
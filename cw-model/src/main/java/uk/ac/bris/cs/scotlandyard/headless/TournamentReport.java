@@ -0,0 +1,298 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.headless.GameResult.Outcome;
+import uk.ac.bris.cs.scotlandyard.metrics.Histogram;
+
+/**
+ * Standings of a {@link Tournament}: Elo ratings, win rates and move times of every AI.
+ * <br>
+ * Every AI starts at {@value #INITIAL_RATING} and ratings are updated game by game, in the order
+ * the games were scheduled, with a K-factor of {@value #K}. A game counts 1 for the side that won,
+ * 0.5 each if nobody could move, and a failed or timed out game is lost by the side whose AI was
+ * at fault. Games that failed before anyone moved are not rated.
+ */
+public final class TournamentReport {
+
+	/**
+	 * The rating of an AI before its first game
+	 */
+	public static final double INITIAL_RATING = 1500;
+
+	/**
+	 * How far a single game moves a rating
+	 */
+	public static final double K = 16;
+
+	/**
+	 * One game of the tournament
+	 */
+	public static final class Game {
+		private final String mrX;
+		private final String detectives;
+		private final GameResult result;
+
+		Game(String mrX, String detectives, GameResult result) {
+			this.mrX = mrX;
+			this.detectives = detectives;
+			this.result = result;
+		}
+
+		/**
+		 * @return the name of the AI playing MrX
+		 */
+		@Nonnull public String mrX() { return mrX; }
+
+		/**
+		 * @return the name of the AI playing the detectives
+		 */
+		@Nonnull public String detectives() { return detectives; }
+
+		/**
+		 * @return how the game went
+		 */
+		@Nonnull public GameResult result() { return result; }
+
+		// what the game scores for MrX's side, NaN if it is not rated
+		double mrXScore() {
+			switch (result.outcome()) {
+				case MRX_WINS: return 1;
+				case DETECTIVES_WIN: return 0;
+				case NO_WINNER: return 0.5;
+				default: return result.faulted().map(piece -> piece.isMrX() ? 0.0 : 1.0).orElse(Double.NaN);
+			}
+		}
+	}
+
+	// the standing of one AI
+	private static final class Standing {
+		double rating = INITIAL_RATING;
+		int games;
+		double points;
+		int mrXGames;
+		double mrXPoints;
+		int detectiveGames;
+		double detectivePoints;
+		int failures;
+		int timeOuts;
+		final Histogram moveNanos = new Histogram("Time to pick a move", "nanoseconds", true);
+	}
+
+	private final ImmutableList<Game> games;
+	private final long wallNanos;
+	private final int threads;
+	private final ImmutableMap<String, Standing> standings;
+
+	TournamentReport(ImmutableList<String> ais, ImmutableList<Game> games, long wallNanos, int threads) {
+		this.games = games;
+		this.wallNanos = wallNanos;
+		this.threads = threads;
+		Map<String, Standing> standings = new LinkedHashMap<>();
+		for (String ai : ais) standings.put(ai, new Standing());
+		for (Game game : games) {
+			Standing mrX = standings.get(game.mrX);
+			Standing detectives = standings.get(game.detectives);
+			GameResult result = game.result;
+			for (long nanos : result.nanos(true)) mrX.moveNanos.record(nanos);
+			for (long nanos : result.nanos(false)) detectives.moveNanos.record(nanos);
+			result.faulted().ifPresent(piece -> {
+				Standing faulted = piece.isMrX() ? mrX : detectives;
+				if (result.outcome() == Outcome.TIMED_OUT) faulted.timeOuts++;
+				else faulted.failures++;
+			});
+			double score = game.mrXScore();
+			if (Double.isNaN(score)) {
+				mrX.failures++;
+				detectives.failures++;
+				continue;
+			}
+			double expected = 1 / (1 + Math.pow(10, (detectives.rating - mrX.rating) / 400));
+			mrX.rating += K * (score - expected);
+			detectives.rating -= K * (score - expected);
+			mrX.games++;
+			mrX.mrXGames++;
+			mrX.points += score;
+			mrX.mrXPoints += score;
+			detectives.games++;
+			detectives.detectiveGames++;
+			detectives.points += 1 - score;
+			detectives.detectivePoints += 1 - score;
+		}
+		// best first
+		var ranked = ImmutableMap.<String, Standing>builder();
+		standings.entrySet().stream()
+				.sorted(Comparator.comparingDouble((Map.Entry<String, Standing> e) -> -e.getValue().rating))
+				.forEach(ranked::put);
+		this.standings = ranked.build();
+	}
+
+	private Standing standing(String ai) {
+		Standing standing = standings.get(Objects.requireNonNull(ai));
+		if (standing == null) throw new IllegalArgumentException("Not in the tournament: " + ai);
+		return standing;
+	}
+
+	private static double rate(double points, int games) {
+		return games == 0 ? 0 : points / games;
+	}
+
+	/**
+	 * @return the names of the AIs, highest rated first
+	 */
+	@Nonnull public ImmutableList<String> ais() { return standings.keySet().asList(); }
+
+	/**
+	 * @return every game, in the order they were scheduled
+	 */
+	@Nonnull public ImmutableList<Game> games() { return games; }
+
+	/**
+	 * @return the number of threads the games were played on
+	 */
+	public int threads() { return threads; }
+
+	/**
+	 * @return the time from the first game starting to the last game ending, in nanoseconds
+	 */
+	public long wallNanos() { return wallNanos; }
+
+	/**
+	 * @param ai the name of an AI
+	 * @return its Elo rating after all games
+	 */
+	public double rating(@Nonnull String ai) { return standing(ai).rating; }
+
+	/**
+	 * @param ai the name of an AI
+	 * @return the number of rated games it played, on either side
+	 */
+	public int games(@Nonnull String ai) { return standing(ai).games; }
+
+	/**
+	 * @param ai the name of an AI
+	 * @return its points per rated game, a draw being half a point; 0 without games
+	 */
+	public double winRate(@Nonnull String ai) {
+		Standing standing = standing(ai);
+		return rate(standing.points, standing.games);
+	}
+
+	/**
+	 * @param ai the name of an AI
+	 * @param mrX whether to look at its games as MrX rather than as the detectives
+	 * @return its points per rated game on that side; 0 without games
+	 */
+	public double winRate(@Nonnull String ai, boolean mrX) {
+		Standing standing = standing(ai);
+		return mrX ? rate(standing.mrXPoints, standing.mrXGames)
+				: rate(standing.detectivePoints, standing.detectiveGames);
+	}
+
+	/**
+	 * @param ai the name of an AI
+	 * @return the number of games it lost by failing, including games that failed before anyone moved
+	 */
+	public int failures(@Nonnull String ai) { return standing(ai).failures; }
+
+	/**
+	 * @param ai the name of an AI
+	 * @return the number of games it lost by picking a move too late
+	 */
+	public int timeOuts(@Nonnull String ai) { return standing(ai).timeOuts; }
+
+	/**
+	 * @param ai the name of an AI
+	 * @return the times it took to pick its moves, in nanoseconds
+	 */
+	@Nonnull public Histogram moveNanos(@Nonnull String ai) { return standing(ai).moveNanos; }
+
+	/**
+	 * Writes standings.csv, one row per AI, and games.csv, one row per game.
+	 *
+	 * @param directory where to write, created if missing
+	 * @throws IOException if a file cannot be written
+	 */
+	public void writeCsv(@Nonnull Path directory) throws IOException {
+		Files.createDirectories(directory);
+		try (var out = new PrintWriter(Files.newBufferedWriter(
+				directory.resolve("standings.csv"), StandardCharsets.UTF_8))) {
+			out.println("ai,elo,games,win_rate,mrx_games,mrx_win_rate,detective_games,detective_win_rate,"
+					+ "failures,time_outs,moves,move_ms_mean,move_ms_p50,move_ms_p90,move_ms_p99,move_ms_max");
+			for (var entry : standings.entrySet()) {
+				Standing s = entry.getValue();
+				Histogram moves = s.moveNanos;
+				out.println(String.join(",", csv(entry.getKey()),
+						format("%.1f", s.rating),
+						Integer.toString(s.games),
+						format("%.4f", rate(s.points, s.games)),
+						Integer.toString(s.mrXGames),
+						format("%.4f", rate(s.mrXPoints, s.mrXGames)),
+						Integer.toString(s.detectiveGames),
+						format("%.4f", rate(s.detectivePoints, s.detectiveGames)),
+						Integer.toString(s.failures),
+						Integer.toString(s.timeOuts),
+						Long.toString(moves.getCount()),
+						format("%.3f", moves.getMean() / 1e6),
+						format("%.3f", moves.getP50() / 1e6),
+						format("%.3f", moves.getP90() / 1e6),
+						format("%.3f", moves.getP99() / 1e6),
+						format("%.3f", moves.getMax() / 1e6)));
+			}
+		}
+		try (var out = new PrintWriter(Files.newBufferedWriter(
+				directory.resolve("games.csv"), StandardCharsets.UTF_8))) {
+			out.println("mrx,detectives,seed,outcome,rounds,faulted");
+			for (Game game : games) {
+				GameResult result = game.result;
+				out.println(String.join(",", csv(game.mrX), csv(game.detectives),
+						Integer.toString(result.seed()),
+						result.outcome().name(),
+						Integer.toString(result.rounds()),
+						result.faulted().map(Object::toString).orElse("")));
+			}
+		}
+	}
+
+	// a side the AI does not play has no games, and no rate to show
+	private static String percent(double points, int games) {
+		return games == 0 ? "-" : format("%.1f%%", rate(points, games) * 100);
+	}
+
+	private static String format(String format, double value) {
+		return String.format(Locale.ROOT, format, value);
+	}
+
+	// quotes names that would break the row
+	private static String csv(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	@Override public String toString() {
+		var builder = new StringBuilder();
+		builder.append(String.format("%d games on %d threads in %.2fs%n", games.size(), threads, wallNanos / 1e9));
+		builder.append(String.format("  %-24s %7s %6s %6s %6s %6s %5s %9s%n",
+				"ai", "elo", "games", "win", "as x", "as det", "fail", "ms p50"));
+		standings.forEach((ai, s) -> builder.append(String.format(
+				"  %-24s %7.1f %6d %6s %6s %6s %5d %9.2f%n",
+				ai, s.rating, s.games, percent(s.points, s.games),
+				percent(s.mrXPoints, s.mrXGames), percent(s.detectivePoints, s.detectiveGames),
+				s.failures + s.timeOuts, s.moveNanos.getP50() / 1e6)));
+		return builder.toString();
+	}
+}
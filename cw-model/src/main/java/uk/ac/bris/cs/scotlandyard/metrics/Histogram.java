@@ -0,0 +1,141 @@
+package uk.ac.bris.cs.scotlandyard.metrics;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Counts non-negative values in log-linear buckets, like an HDR histogram: every power of two is
+ * split into {@value #SUB_BUCKETS} buckets of equal width, so a bucket is at most 1/32 of its
+ * values wide, from nanoseconds to centuries, in a fixed {@value #BUCKETS} counters.
+ * <br>
+ * Recording is a few atomic increments without locks or allocation, cheap enough to keep on in
+ * the game loop, and any number of threads may record at once. Reads do not stop recording, so a
+ * value recorded during a read may be seen by one statistic and not by another.
+ */
+public final class Histogram implements HistogramMXBean {
+
+	// values below SUB_BUCKETS get a bucket each, each power of two above gets SUB_BUCKETS
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+	private final String description;
+	private final String unit;
+	private final boolean enabled;
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param description what the values measure
+	 * @param unit the unit of the values
+	 * @param enabled whether values are recorded, a disabled histogram stays empty
+	 */
+	public Histogram(@Nonnull String description, @Nonnull String unit, boolean enabled) {
+		this.description = Objects.requireNonNull(description);
+		this.unit = Objects.requireNonNull(unit);
+		this.enabled = enabled;
+	}
+
+	static int bucket(long value) {
+		if (value < SUB_BUCKETS) return (int) value;
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BITS;
+		// the top SUB_BITS + 1 bits of the value, from SUB_BUCKETS to 2 * SUB_BUCKETS - 1
+		int mantissa = (int) (value >>> shift);
+		return (shift + 1) * SUB_BUCKETS + mantissa - SUB_BUCKETS;
+	}
+
+	// the highest value that falls in the bucket
+	static long highest(int bucket) {
+		if (bucket < SUB_BUCKETS) return bucket;
+		int shift = bucket / SUB_BUCKETS - 1;
+		long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+		return (mantissa << shift) + (1L << shift) - 1;
+	}
+
+	/**
+	 * @param value the value, negative values count as 0
+	 */
+	public void record(long value) {
+		if (!enabled) return;
+		value = Math.max(value, 0);
+		counts.incrementAndGet(bucket(value));
+		count.increment();
+		sum.add(value);
+		long seen = max.get();
+		while (value > seen && !max.compareAndSet(seen, value)) seen = max.get();
+	}
+
+	/**
+	 * Records the time since a {@link System#nanoTime()}.
+	 *
+	 * @param startNanos when the measured work started
+	 */
+	public void recordSince(long startNanos) {
+		if (enabled) record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * @return whether values are recorded
+	 */
+	public boolean enabled() { return enabled; }
+
+	/**
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the value the given percentage of the values is at or below, 0 if there are none
+	 * @throws IllegalArgumentException if the percentile is out of range
+	 */
+	public long percentile(double percentile) {
+		if (!(percentile >= 0 && percentile <= 100))
+			throw new IllegalArgumentException("Percentile out of range: " + percentile);
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) total += counts.get(i);
+		if (total == 0) return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) return Math.min(highest(i), max.get());
+		}
+		return max.get();
+	}
+
+	@Override public String getDescription() { return description; }
+
+	@Override public String getUnit() { return unit; }
+
+	@Override public long getCount() { return count.sum(); }
+
+	@Override public double getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : sum.sum() / (double) count;
+	}
+
+	@Override public long getMax() { return max.get(); }
+
+	@Override public long getP50() { return percentile(50); }
+
+	@Override public long getP90() { return percentile(90); }
+
+	@Override public long getP99() { return percentile(99); }
+
+	@Override public long getP999() { return percentile(99.9); }
+
+	@Override public void reset() {
+		for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+
+	@Override public String toString() {
+		return String.format("%s: %d values, mean %.1f p50 %d p99 %d max %d %s",
+				description, getCount(), getMean(), getP50(), getP99(), getMax(), unit);
+	}
+}
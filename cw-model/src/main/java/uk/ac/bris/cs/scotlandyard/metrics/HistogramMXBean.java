@@ -0,0 +1,58 @@
+package uk.ac.bris.cs.scotlandyard.metrics;
+
+/**
+ * What JMX sees of a {@link Histogram}. Percentiles are the highest value of the bucket they fall
+ * in, at most 1/32 above the value recorded.
+ */
+public interface HistogramMXBean {
+
+	/**
+	 * @return what the values measure
+	 */
+	String getDescription();
+
+	/**
+	 * @return the unit of the values, e.g. nanoseconds
+	 */
+	String getUnit();
+
+	/**
+	 * @return the number of values recorded
+	 */
+	long getCount();
+
+	/**
+	 * @return the mean of the values, 0 if there are none
+	 */
+	double getMean();
+
+	/**
+	 * @return the largest value, 0 if there are none
+	 */
+	long getMax();
+
+	/**
+	 * @return the median
+	 */
+	long getP50();
+
+	/**
+	 * @return the 90th percentile
+	 */
+	long getP90();
+
+	/**
+	 * @return the 99th percentile
+	 */
+	long getP99();
+
+	/**
+	 * @return the 99.9th percentile
+	 */
+	long getP999();
+
+	/**
+	 * Forgets every value recorded so far.
+	 */
+	void reset();
+}
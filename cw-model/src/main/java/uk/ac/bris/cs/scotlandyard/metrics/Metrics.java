@@ -0,0 +1,110 @@
+package uk.ac.bris.cs.scotlandyard.metrics;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.lang.management.ManagementFactory;
+
+import javax.annotation.Nonnull;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Where the time of a game goes, measured all the time and exported over JMX.
+ * <br>
+ * Every histogram is registered with the platform MBean server as
+ * {@code uk.ac.bris.cs.scotlandyard:type=Metrics,name=<name>}, so JConsole or any other JMX client
+ * can watch a running game. Recording can be switched off with the system property
+ * scotlandyard.metrics=false, the histograms then stay empty and nothing is registered. The
+ * phases of starting the game are kept apart, in {@link #STARTUP}.
+ */
+public final class Metrics {
+
+	/**
+	 * The JMX domain of the histograms
+	 */
+	public static final String DOMAIN = "uk.ac.bris.cs.scotlandyard";
+
+	private static final boolean ENABLED =
+			Boolean.parseBoolean(System.getProperty("scotlandyard.metrics", "true"));
+
+	private static final String NANOSECONDS = "nanoseconds";
+
+	/**
+	 * Time to build a game state or advance one by a move
+	 */
+	public static final Histogram STATE_CONSTRUCTION =
+			new Histogram("Time to build a game state or advance one by a move", NANOSECONDS, ENABLED);
+
+	/**
+	 * Number of moves available in a state, recorded when they are generated
+	 */
+	public static final Histogram MOVES_GENERATED =
+			new Histogram("Number of moves available in a state", "moves", ENABLED);
+
+	/**
+	 * Time to notify every observer of a model about a move
+	 */
+	public static final Histogram OBSERVER_FAN_OUT =
+			new Histogram("Time to notify every observer of a model about a move", NANOSECONDS, ENABLED);
+
+	/**
+	 * Time an ai takes to pick a move
+	 */
+	public static final Histogram AI_DECISION =
+			new Histogram("Time an ai takes to pick a move", NANOSECONDS, ENABLED);
+
+	/**
+	 * Phases of starting the game, registered as {@code uk.ac.bris.cs.scotlandyard:type=Startup}
+	 */
+	public static final Startup STARTUP = new Startup(ENABLED);
+
+	private static final ImmutableMap<String, Histogram> HISTOGRAMS = ImmutableMap.of(
+			"stateConstruction", STATE_CONSTRUCTION,
+			"movesGenerated", MOVES_GENERATED,
+			"observerFanOut", OBSERVER_FAN_OUT,
+			"aiDecision", AI_DECISION);
+
+	static {
+		if (ENABLED) {
+			var server = ManagementFactory.getPlatformMBeanServer();
+			HISTOGRAMS.forEach((name, histogram) -> {
+				try {
+					server.registerMBean(histogram, objectName(name));
+				} catch (InstanceAlreadyExistsException e) {
+					// another class loader has loaded these metrics already, the first stays
+				} catch (JMException e) {
+					throw new IllegalStateException("Cannot register metric " + name, e);
+				}
+			});
+			try {
+				server.registerMBean(STARTUP, new ObjectName(DOMAIN + ":type=Startup"));
+			} catch (InstanceAlreadyExistsException e) {
+				// as above
+			} catch (JMException e) {
+				throw new IllegalStateException("Cannot register startup phases", e);
+			}
+		}
+	}
+
+	private Metrics() {}
+
+	/**
+	 * @param name the name of a histogram
+	 * @return the name it is registered under
+	 * @throws JMException if the name is not a valid object name
+	 */
+	@Nonnull public static ObjectName objectName(@Nonnull String name) throws JMException {
+		return new ObjectName(DOMAIN + ":type=Metrics,name=" + name);
+	}
+
+	/**
+	 * @return whether metrics are recorded
+	 */
+	public static boolean enabled() { return ENABLED; }
+
+	/**
+	 * @return every histogram by the name it is registered under
+	 */
+	@Nonnull public static ImmutableMap<String, Histogram> histograms() { return HISTOGRAMS; }
+}
@@ -0,0 +1,92 @@
+package uk.ac.bris.cs.scotlandyard.metrics;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * How long each phase of starting the game took and when it finished, to catch cold start
+ * regressions.
+ * <br>
+ * A phase is recorded once, the first time it finishes; later windows of the same process reuse
+ * what was loaded and would only hide the cold start. Recording is thread-safe, phases that run in
+ * parallel may finish in any order.
+ */
+public final class Startup implements StartupMXBean {
+
+	private final boolean enabled;
+	private final long jvmStart;
+	// duration and finish time, since the JVM started, of every phase; guarded by this
+	private final Map<String, long[]> phases = new LinkedHashMap<>();
+
+	/**
+	 * @param enabled whether to record anything
+	 */
+	public Startup(boolean enabled) {
+		this(enabled, System.nanoTime()
+				- TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime()));
+	}
+
+	Startup(boolean enabled, long jvmStart) {
+		this.enabled = enabled;
+		this.jvmStart = jvmStart;
+	}
+
+	/**
+	 * @return whether phases are recorded
+	 */
+	public boolean enabled() { return enabled; }
+
+	/**
+	 * @return when the JVM started, in {@link System#nanoTime()}, to millisecond precision
+	 */
+	public long jvmStart() { return jvmStart; }
+
+	/**
+	 * Records a phase that ends now, unless it was recorded before.
+	 *
+	 * @param phase the name of the phase
+	 * @param start when it started, from {@link System#nanoTime()}
+	 */
+	public void recordSince(@Nonnull String phase, long start) {
+		Objects.requireNonNull(phase);
+		if (!enabled) return;
+		long now = System.nanoTime();
+		synchronized (this) {
+			phases.putIfAbsent(phase, new long[]{now - start, now - jvmStart});
+		}
+	}
+
+	/**
+	 * Records a phase that started with the JVM and ends now, such as the first window showing.
+	 *
+	 * @param phase the name of the phase
+	 */
+	public void recordSinceJvmStart(@Nonnull String phase) { recordSince(phase, jvmStart); }
+
+	private synchronized ImmutableMap<String, Long> column(int column) {
+		var builder = ImmutableMap.<String, Long>builder();
+		phases.forEach((phase, values) -> builder.put(phase, values[column]));
+		return builder.build();
+	}
+
+	@Override public ImmutableMap<String, Long> getPhaseNanos() { return column(0); }
+
+	@Override public ImmutableMap<String, Long> getFinishedNanos() { return column(1); }
+
+	@Override public synchronized void reset() { phases.clear(); }
+
+	@Override public synchronized String toString() {
+		var builder = new StringBuilder("Startup, milliseconds:\n");
+		builder.append(String.format("  %-24s %9s %9s%n", "phase", "took", "finished"));
+		phases.forEach((phase, values) -> builder.append(String.format("  %-24s %9.1f %9.1f%n",
+				phase, values[0] / 1e6, values[1] / 1e6)));
+		return builder.toString();
+	}
+}
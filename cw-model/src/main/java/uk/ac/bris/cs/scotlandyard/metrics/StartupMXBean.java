@@ -0,0 +1,24 @@
+package uk.ac.bris.cs.scotlandyard.metrics;
+
+import java.util.Map;
+
+/**
+ * What JMX sees of {@link Startup}. Phases are listed in the order they finished.
+ */
+public interface StartupMXBean {
+
+	/**
+	 * @return how long each phase took, in nanoseconds
+	 */
+	Map<String, Long> getPhaseNanos();
+
+	/**
+	 * @return when each phase finished, in nanoseconds since the JVM started
+	 */
+	Map<String, Long> getFinishedNanos();
+
+	/**
+	 * Forgets every phase, so the next start of a window can be measured
+	 */
+	void reset();
+}
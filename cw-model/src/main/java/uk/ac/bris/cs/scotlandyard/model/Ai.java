@@ -19,6 +19,15 @@ public interface Ai {
 	 */
 	@Nonnull String name();
 
+	/**
+	 * Whether this Ai can play a side, headless tournaments only seat it on the sides it plays
+	 * Defaults to every side
+	 *
+	 * @param side MrX or a detective
+	 * @return whether this Ai can pick moves for the side
+	 */
+	default boolean plays(@Nonnull Piece side) { return true; }
+
 	/**
 	 * Called before the game starts
 	 * Defaults to no-op
@@ -0,0 +1,116 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Counts, per remaining search depth, how many nodes were expanded and how many of them were cut
+ * off, and how often the first move searched already caused the cut-off. The better the moves are
+ * ordered, the more nodes are cut off and the more of those cut-offs come from the first move.
+ * <br>
+ * Counters are plain fields; give every search thread its own and {@link #add} them up.
+ */
+public final class CutoffStats {
+
+	private long[] expanded = new long[16];
+	private long[] cutoffs = new long[16];
+	private long[] firstCutoffs = new long[16];
+
+	private void ensure(int depth) {
+		if (depth < 0) throw new IllegalArgumentException("Negative depth: " + depth);
+		if (depth >= expanded.length) {
+			int length = Math.max(depth + 1, expanded.length * 2);
+			expanded = Arrays.copyOf(expanded, length);
+			cutoffs = Arrays.copyOf(cutoffs, length);
+			firstCutoffs = Arrays.copyOf(firstCutoffs, length);
+		}
+	}
+
+	/**
+	 * Records a node whose moves were all searched.
+	 *
+	 * @param depth the depth left at the node
+	 */
+	public void searched(int depth) {
+		ensure(depth);
+		expanded[depth]++;
+	}
+
+	/**
+	 * Records a node that was cut off.
+	 *
+	 * @param depth the depth left at the node
+	 * @param moveNumber the number of moves searched before the cut-off, 1 for the first
+	 */
+	public void cutoff(int depth, int moveNumber) {
+		ensure(depth);
+		expanded[depth]++;
+		cutoffs[depth]++;
+		if (moveNumber == 1) firstCutoffs[depth]++;
+	}
+
+	/**
+	 * @param other counts to add to these
+	 */
+	public void add(@Nonnull CutoffStats other) {
+		ensure(other.expanded.length - 1);
+		for (int depth = 0; depth < other.expanded.length; depth++) {
+			expanded[depth] += other.expanded[depth];
+			cutoffs[depth] += other.cutoffs[depth];
+			firstCutoffs[depth] += other.firstCutoffs[depth];
+		}
+	}
+
+	/**
+	 * Resets every count to zero.
+	 */
+	public void clear() {
+		Arrays.fill(expanded, 0);
+		Arrays.fill(cutoffs, 0);
+		Arrays.fill(firstCutoffs, 0);
+	}
+
+	/**
+	 * @param depth the depth left
+	 * @return the number of nodes expanded with the given depth left
+	 */
+	public long nodes(int depth) { return depth < expanded.length ? expanded[depth] : 0; }
+
+	/**
+	 * @param depth the depth left
+	 * @return the number of those nodes that were cut off
+	 */
+	public long cutoffs(int depth) { return depth < cutoffs.length ? cutoffs[depth] : 0; }
+
+	/**
+	 * @param depth the depth left
+	 * @return the fraction of nodes that were cut off, 0 if there were none
+	 */
+	public double cutoffRate(int depth) {
+		long nodes = nodes(depth);
+		return nodes == 0 ? 0 : cutoffs(depth) / (double) nodes;
+	}
+
+	/**
+	 * @param depth the depth left
+	 * @return the fraction of cut-offs caused by the first move searched, 0 if there were none
+	 */
+	public double firstMoveRate(int depth) {
+		long count = cutoffs(depth);
+		return count == 0 ? 0 : (depth < firstCutoffs.length ? firstCutoffs[depth] : 0) / (double) count;
+	}
+
+	/**
+	 * @return one line per depth with expanded nodes, from the deepest
+	 */
+	@Override public String toString() {
+		var builder = new StringBuilder();
+		for (int depth = expanded.length - 1; depth >= 0; depth--) {
+			if (expanded[depth] == 0) continue;
+			builder.append(String.format("depth %2d: %10d nodes, %5.1f%% cut off, %5.1f%% by the first move%n",
+					depth, expanded[depth], cutoffRate(depth) * 100, firstMoveRate(depth) * 100));
+		}
+		return builder.toString();
+	}
+}
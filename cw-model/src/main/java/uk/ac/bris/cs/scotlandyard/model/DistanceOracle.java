@@ -0,0 +1,205 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * Shortest distances between all pairs of nodes of a graph, precomputed into one flat table.
+ * <br>
+ * An edge costs the smallest weight of the {@link TransportTable#tickets(int)} that can pay for
+ * it, so with every ticket weighing 1 ({@link #hops(GameSetup)}) distances count journeys.
+ * Occupied nodes and ticket counts are ignored. Tables are indexed by {@link TransportTable} node
+ * index, so {@link #distance(int, int)} is two array lookups.
+ * <br>
+ * Oracles are built once per graph and weights and cached for as long as the graph is reachable.
+ */
+public final class DistanceOracle {
+
+	/**
+	 * The distance between nodes that are not connected
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final ImmutableList<Integer> HOPS =
+			Arrays.stream(TICKETS).map(ticket -> 1).collect(ImmutableList.toImmutableList());
+
+	private static final LoadingCache<ImmutableValueGraph<Integer, ImmutableSet<Transport>>,
+			Map<ImmutableList<Integer>, DistanceOracle>> CACHE = CacheBuilder.newBuilder()
+			.weakKeys() // compares graphs by identity
+			.build(CacheLoader.from(graph -> new ConcurrentHashMap<>()));
+
+	private final TransportTable table;
+	private final int nodes;
+	// distance from node index i to node index j at i * nodes + j
+	private final int[] distances;
+
+	/**
+	 * @param setup the game setup
+	 * @return the oracle counting journeys on the setup's graph
+	 */
+	@Nonnull public static DistanceOracle hops(@Nonnull GameSetup setup) {
+		return of(setup.graph, HOPS);
+	}
+
+	/**
+	 * @param setup the game setup
+	 * @param weight the cost of a journey paid with the given ticket, at least 1
+	 * @return the oracle of the setup's graph with the given ticket weights
+	 * @throws IllegalArgumentException if a weight is below 1
+	 */
+	@Nonnull public static DistanceOracle weighted(@Nonnull GameSetup setup,
+	                                               @Nonnull ToIntFunction<Ticket> weight) {
+		var weights = ImmutableList.<Integer>builderWithExpectedSize(TICKETS.length);
+		for (Ticket ticket : TICKETS) {
+			int w = weight.applyAsInt(ticket);
+			if (w < 1) throw new IllegalArgumentException("Weight of " + ticket + " below 1: " + w);
+			weights.add(w);
+		}
+		return of(setup.graph, weights.build());
+	}
+
+	private static DistanceOracle of(ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph,
+	                                 ImmutableList<Integer> weights) {
+		return CACHE.getUnchecked(Objects.requireNonNull(graph))
+				.computeIfAbsent(weights, w -> new DistanceOracle(TransportTable.of(graph), w));
+	}
+
+	private DistanceOracle(TransportTable table, ImmutableList<Integer> weights) {
+		this.table = table;
+		this.nodes = table.nodeCount();
+		int[] costs = new int[table.edgeCount()];
+		boolean unit = true;
+		for (int edge = 0; edge < costs.length; edge++) {
+			int cost = UNREACHABLE;
+			for (int bits = table.tickets(edge); bits != 0; bits &= bits - 1)
+				cost = Math.min(cost, weights.get(Integer.numberOfTrailingZeros(bits)));
+			costs[edge] = cost;
+			unit &= cost == 1 || cost == UNREACHABLE;
+		}
+		distances = new int[nodes * nodes];
+		Arrays.fill(distances, UNREACHABLE);
+		int[] queue = new int[nodes];
+		Heap heap = unit ? null : new Heap(nodes);
+		for (int source = 0; source < nodes; source++) {
+			if (unit) breadthFirst(source, costs, queue);
+			else dijkstra(source, costs, heap);
+		}
+	}
+
+	private void breadthFirst(int source, int[] costs, int[] queue) {
+		int base = source * nodes;
+		distances[base + source] = 0;
+		int head = 0, tail = 0;
+		queue[tail++] = source;
+		while (head < tail) {
+			int from = queue[head++];
+			int next = distances[base + from] + 1;
+			for (int edge = table.start(from), end = table.end(from); edge < end; edge++) {
+				int to = table.target(edge);
+				if (costs[edge] != UNREACHABLE && distances[base + to] == UNREACHABLE) {
+					distances[base + to] = next;
+					queue[tail++] = to;
+				}
+			}
+		}
+	}
+
+	private void dijkstra(int source, int[] costs, Heap heap) {
+		int base = source * nodes;
+		distances[base + source] = 0;
+		heap.push(source, 0);
+		while (!heap.isEmpty()) {
+			long entry = heap.pop();
+			int from = (int) entry;
+			int distance = (int) (entry >>> 32);
+			if (distance > distances[base + from]) continue;
+			for (int edge = table.start(from), end = table.end(from); edge < end; edge++) {
+				if (costs[edge] == UNREACHABLE) continue;
+				int to = table.target(edge);
+				int next = distance + costs[edge];
+				if (next < distances[base + to]) {
+					distances[base + to] = next;
+					heap.push(to, next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param from the source node number
+	 * @param to the target node number
+	 * @return the distance between the nodes; {@link #UNREACHABLE} if they are not connected
+	 * @throws IllegalArgumentException if either node is not part of the graph
+	 */
+	public int distance(int from, int to) {
+		return distances[MyGameStateFactory.indexOf(table, from) * nodes
+				+ MyGameStateFactory.indexOf(table, to)];
+	}
+
+	/**
+	 * @param from the source {@link TransportTable} node index
+	 * @param to the target {@link TransportTable} node index
+	 * @return the distance between the nodes; {@link #UNREACHABLE} if they are not connected
+	 */
+	public int distanceByIndex(int from, int to) { return distances[from * nodes + to]; }
+
+	/**
+	 * @return the table the node indices refer to
+	 */
+	@Nonnull public TransportTable table() { return table; }
+
+	// binary min heap of distance and node index pairs, stale entries are left for callers to skip
+	private static final class Heap {
+		private long[] entries;
+		private int size;
+
+		Heap(int capacity) { entries = new long[Math.max(capacity, 1)]; }
+
+		boolean isEmpty() { return size == 0; }
+
+		void push(int node, int distance) {
+			if (size == entries.length) entries = Arrays.copyOf(entries, size * 2);
+			long entry = (long) distance << 32 | node;
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (entries[parent] <= entry) break;
+				entries[i] = entries[parent];
+				i = parent;
+			}
+			entries[i] = entry;
+		}
+
+		// the entry with the smallest distance, the distance in the upper 32 bits
+		long pop() {
+			long top = entries[0];
+			long last = entries[--size];
+			int i = 0;
+			while (2 * i + 1 < size) {
+				int child = 2 * i + 1;
+				if (child + 1 < size && entries[child + 1] < entries[child]) child++;
+				if (entries[child] >= last) break;
+				entries[i] = entries[child];
+				i = child;
+			}
+			entries[i] = last;
+			return top;
+		}
+	}
+}
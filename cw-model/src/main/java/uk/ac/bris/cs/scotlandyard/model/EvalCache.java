@@ -0,0 +1,174 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A fixed-size cache of evaluations keyed by where every player stands, for evaluations that
+ * depend on nothing else.
+ * <br>
+ * Keys are {@link #key(SearchBoard)}: the node index of each player packed into one long, so
+ * equal keys are equal positions. Entries live in buckets of {@value #WAYS}, picked by a hash
+ * of the key, and a bucket evicts with the clock algorithm: every hit marks its entry, and an
+ * insertion replaces the first unmarked entry from the bucket's hand, clearing the marks it
+ * passes over. Positions evaluated again and again stay while one-off positions come and go.
+ * <br>
+ * Like {@link TranspositionTable}, everything is stored in primitive arrays without locks and one
+ * cache can be shared by threads searching at the same time. Each slot keeps the key xor-ed with
+ * its value, so a slot torn by concurrent writes reads as missing; concurrent insertions may lose
+ * entries or marks. Hits and misses are counted with {@link LongAdder}s.
+ */
+public final class EvalCache {
+
+	/**
+	 * Returned by {@link #get(long)} for positions that are not cached
+	 */
+	public static final long MISS = Long.MIN_VALUE;
+
+	// entries per bucket
+	private static final int WAYS = 4;
+	// bits per player in a key, enough for 1024 nodes; six players fill 60 bits
+	private static final int LOCATION_BITS = 10;
+	private static final int MAX_PLAYERS = Long.SIZE / LOCATION_BITS;
+	// data layout: value (32 bits), used (1 bit)
+	private static final long USED = 1L << 32;
+
+	private final long[] keys;
+	private final long[] data;
+	private final byte[] marks;
+	private final byte[] hands;
+	private final int mask;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param capacity the number of entries, rounded up to a power of two and at least
+	 * {@value #WAYS}
+	 * @throws IllegalArgumentException if the capacity is not positive or above 2^30
+	 */
+	public EvalCache(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("Capacity out of range: " + capacity);
+		int size = Math.max(WAYS, capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1);
+		keys = new long[size];
+		data = new long[size];
+		marks = new byte[size];
+		hands = new byte[size / WAYS];
+		mask = size / WAYS - 1;
+	}
+
+	/**
+	 * @param board the board
+	 * @return the locations of every player of the board, packed into a key
+	 * @throws IllegalArgumentException if the board has more than six players or a node index
+	 * above 1023
+	 */
+	public static long key(@Nonnull SearchBoard board) {
+		int players = board.playerCount();
+		if (players > MAX_PLAYERS)
+			throw new IllegalArgumentException("Too many players for a key: " + players);
+		long key = 0;
+		for (int player = 0; player < players; player++) {
+			int index = board.locationIndex(player);
+			if (index >>> LOCATION_BITS != 0)
+				throw new IllegalArgumentException("Node index too large for a key: " + index);
+			key = key << LOCATION_BITS | index;
+		}
+		return key;
+	}
+
+	/**
+	 * @return the number of entries the cache can hold
+	 */
+	public int capacity() { return keys.length; }
+
+	private int bucket(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash >>> 32) & mask;
+	}
+
+	/**
+	 * Looks up a position and counts a hit or a miss.
+	 *
+	 * @param key the position's {@link #key(SearchBoard)}
+	 * @return the cached value, or {@link #MISS}
+	 */
+	public long get(long key) {
+		int first = bucket(key) * WAYS;
+		for (int slot = first; slot < first + WAYS; slot++) {
+			long d = data[slot];
+			if (d != 0 && (keys[slot] ^ d) == key) {
+				if (marks[slot] == 0) marks[slot] = 1;
+				hits.increment();
+				return (int) d;
+			}
+		}
+		misses.increment();
+		return MISS;
+	}
+
+	/**
+	 * Caches the value of a position, evicting an entry of its bucket if it is full.
+	 *
+	 * @param key the position's {@link #key(SearchBoard)}
+	 * @param value the value
+	 */
+	public void put(long key, int value) {
+		int bucket = bucket(key);
+		int first = bucket * WAYS;
+		long d = (value & 0xFFFFFFFFL) | USED;
+		for (int slot = first; slot < first + WAYS; slot++) {
+			long old = data[slot];
+			if (old == 0 || (keys[slot] ^ old) == key) {
+				write(slot, key, d);
+				return;
+			}
+		}
+		// every entry gets a second chance, so at most one full turn of the hand
+		int hand = hands[bucket];
+		for (int i = 0; i < 2 * WAYS; i++, hand = (hand + 1) % WAYS) {
+			if (marks[first + hand] == 0) break;
+			marks[first + hand] = 0;
+		}
+		hands[bucket] = (byte) ((hand + 1) % WAYS);
+		write(first + hand, key, d);
+	}
+
+	private void write(int slot, long key, long d) {
+		keys[slot] = key ^ d;
+		data[slot] = d;
+		marks[slot] = 0;
+	}
+
+	/**
+	 * Removes all entries and resets the counts.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(data, 0);
+		Arrays.fill(marks, (byte) 0);
+		Arrays.fill(hands, (byte) 0);
+		hits.reset();
+		misses.reset();
+	}
+
+	/**
+	 * @return the number of lookups that found their position
+	 */
+	public long hits() { return hits.sum(); }
+
+	/**
+	 * @return the number of lookups that did not
+	 */
+	public long misses() { return misses.sum(); }
+
+	/**
+	 * @return the fraction of lookups that found their position, 0 if there were none
+	 */
+	public double hitRate() {
+		long hits = hits(), lookups = hits + misses();
+		return lookups == 0 ? 0 : hits / (double) lookups;
+	}
+}
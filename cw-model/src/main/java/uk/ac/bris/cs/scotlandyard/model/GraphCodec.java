@@ -0,0 +1,209 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.EndpointPair;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.ValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Resources;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * Reads and writes the map graph in a compact binary form, the precompiled counterpart of
+ * graph.txt that {@link ScotlandYard#standardGraph()} loads.
+ * <br>
+ * The layout, big-endian, is the magic number {@value #MAGIC}, a version byte, the node and the
+ * edge count (16 bits each), every node (16 bits each) and then every edge as its two nodes (16
+ * bits each) and the set of its transports as a byte with bit {@link Transport#ordinal()} set for
+ * each. Transports between the same two nodes share one edge, so the standard map takes about
+ * 2.5 KB against 6.3 KB of text. Node numbers must be below 65536.
+ * <br>
+ * {@link #load(Path)} and {@link #load(URL)} memory-map the file where they can and keep every
+ * graph they decode, keyed by a hash of its bytes, for the rest of the process: loading the same
+ * content again, from any file, only hashes it and returns the graph decoded the first time.
+ * <br>
+ * {@link #main(String[])} converts graph.txt:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=uk.ac.bris.cs.scotlandyard.model.GraphCodec \
+ *     -Dexec.args="src/main/resources/graph.txt src/main/resources/graph.bin"
+ * </pre>
+ */
+public final class GraphCodec {
+
+	/**
+	 * The first four bytes of every encoded graph, "SYGB"
+	 */
+	public static final int MAGIC = 0x53594742;
+
+	/**
+	 * The version of the layout
+	 */
+	public static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = Integer.BYTES + 1 + 2 * Short.BYTES;
+	private static final int EDGE_BYTES = 2 * Short.BYTES + 1;
+	private static final int NODE_MASK = 0xFFFF;
+
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	// decoded graphs by the hash of their encoding
+	private static final Map<HashCode, ImmutableValueGraph<Integer, ImmutableSet<Transport>>> CACHE =
+			new ConcurrentHashMap<>();
+
+	private GraphCodec() {}
+
+	/**
+	 * @param graph the graph to encode
+	 * @return the encoded graph
+	 * @throws IllegalArgumentException if the graph is directed or has a node or an edge count
+	 * outside 0 to 65535, or an edge without transports
+	 */
+	@Nonnull public static byte[] encode(@Nonnull ValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		if (graph.isDirected()) throw new IllegalArgumentException("Directed graph");
+		int nodes = graph.nodes().size();
+		int edges = graph.edges().size();
+		if (nodes > NODE_MASK || edges > NODE_MASK)
+			throw new IllegalArgumentException("Too many nodes or edges: " + nodes + ", " + edges);
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + nodes * Short.BYTES + edges * EDGE_BYTES);
+		buffer.putInt(MAGIC).put((byte) VERSION).putShort((short) nodes).putShort((short) edges);
+		for (int node : graph.nodes()) buffer.putShort((short) node(node));
+		for (EndpointPair<Integer> edge : graph.edges()) {
+			int transports = 0;
+			//noinspection ConstantConditions
+			for (Transport transport : graph.edgeValue(edge).orElseThrow())
+				transports |= 1 << transport.ordinal();
+			if (transports == 0) throw new IllegalArgumentException("Edge without transports: " + edge);
+			buffer.putShort((short) node(edge.nodeU()))
+					.putShort((short) node(edge.nodeV()))
+					.put((byte) transports);
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Decodes a graph without looking at or filling the cache.
+	 *
+	 * @param buffer the encoded graph, from its position to its limit
+	 * @return the graph
+	 * @throws IllegalArgumentException if the buffer does not hold exactly one encoded graph
+	 */
+	@Nonnull public static ImmutableValueGraph<Integer, ImmutableSet<Transport>>
+	decode(@Nonnull ByteBuffer buffer) {
+		try {
+			if (buffer.getInt() != MAGIC) throw new IllegalArgumentException("Not an encoded graph");
+			int version = buffer.get();
+			if (version != VERSION) throw new IllegalArgumentException("Unknown version " + version);
+			int nodes = buffer.getShort() & NODE_MASK;
+			int edges = buffer.getShort() & NODE_MASK;
+			var builder = ValueGraphBuilder.undirected()
+					.expectedNodeCount(nodes)
+					.<Integer, ImmutableSet<Transport>>immutable();
+			for (int i = 0; i < nodes; i++) builder.addNode(buffer.getShort() & NODE_MASK);
+			for (int i = 0; i < edges; i++) {
+				int u = buffer.getShort() & NODE_MASK;
+				int v = buffer.getShort() & NODE_MASK;
+				int transports = buffer.get() & 0xFF;
+				if (transports == 0 || transports >>> TRANSPORTS.length != 0)
+					throw new IllegalArgumentException("Bad transports " + transports + " at edge " + i);
+				var value = ImmutableSet.<Transport>builder();
+				for (Transport transport : TRANSPORTS)
+					if ((transports & 1 << transport.ordinal()) != 0) value.add(transport);
+				builder.putEdgeValue(u, v, value.build());
+			}
+			if (buffer.hasRemaining())
+				throw new IllegalArgumentException(buffer.remaining() + " trailing bytes");
+			var graph = builder.build();
+			if (graph.nodes().size() != nodes || graph.edges().size() != edges)
+				throw new IllegalArgumentException("Duplicate nodes or edges");
+			return graph;
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated graph", e);
+		}
+	}
+
+	/**
+	 * Loads an encoded graph by memory-mapping the file, or from the cache if the same bytes were
+	 * loaded before.
+	 *
+	 * @param file the encoded graph
+	 * @return the graph
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if the file does not hold exactly one encoded graph
+	 */
+	@Nonnull public static ImmutableValueGraph<Integer, ImmutableSet<Transport>>
+	load(@Nonnull Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return cached(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Loads an encoded graph like {@link #load(Path)}, reading it into memory if the URL is not a
+	 * file, such as a resource inside a jar.
+	 *
+	 * @param url the encoded graph
+	 * @return the graph
+	 * @throws IOException if the URL cannot be read
+	 * @throws IllegalArgumentException if the URL does not hold exactly one encoded graph
+	 */
+	@Nonnull public static ImmutableValueGraph<Integer, ImmutableSet<Transport>>
+	load(@Nonnull URL url) throws IOException {
+		if (url.getProtocol().equals("file")) {
+			try {
+				return load(Path.of(url.toURI()));
+			} catch (URISyntaxException e) {
+				throw new IOException("Bad file URL " + url, e);
+			}
+		}
+		return cached(ByteBuffer.wrap(Resources.toByteArray(url)));
+	}
+
+	private static ImmutableValueGraph<Integer, ImmutableSet<Transport>> cached(ByteBuffer buffer) {
+		HashCode hash = Hashing.murmur3_128().hashBytes(buffer.duplicate());
+		var graph = CACHE.get(hash);
+		if (graph != null) return graph;
+		// decode outside computeIfAbsent, so a bad graph throws without touching the map
+		graph = decode(buffer.duplicate());
+		var previous = CACHE.putIfAbsent(hash, graph);
+		return previous == null ? graph : previous;
+	}
+
+	private static int node(int node) {
+		if ((node & ~NODE_MASK) != 0) throw new IllegalArgumentException("Node out of range: " + node);
+		return node;
+	}
+
+	/**
+	 * Converts a graph from the text format of {@link ScotlandYard#readGraph(String)}.
+	 *
+	 * @param args the text graph to read and the file to write the encoded graph to
+	 * @throws IOException if either file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2)
+			throw new IllegalArgumentException("Usage: GraphCodec <graph.txt> <graph.bin>");
+		var graph = ScotlandYard.readGraph(Files.readString(Path.of(args[0]), StandardCharsets.UTF_8));
+		byte[] encoded = encode(graph);
+		Files.write(Path.of(args[1]), encoded);
+		System.out.printf("Wrote %d nodes and %d edges in %d bytes to %s%n",
+				graph.nodes().size(), graph.edges().size(), encoded.length, args[1]);
+	}
+}
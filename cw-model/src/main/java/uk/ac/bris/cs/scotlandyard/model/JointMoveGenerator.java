@@ -0,0 +1,155 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Walks the joint moves of the detectives: every position a {@link SearchBoard} can reach by
+ * letting the detectives yet to move make their moves, in any order, until MrX is next to move
+ * or the game ends.
+ * <br>
+ * Detectives moving in a different order mostly reach the same position, so trying every order
+ * visits the same positions over and over. The generator remembers the {@link Zobrist} hash of
+ * every position it has passed through and never expands a position twice, which visits each
+ * distinct final position exactly once and keeps the work close to the number of those
+ * positions. Positions are handed to a {@link Visitor} one at a time while the board is at them,
+ * so nothing is collected.
+ * <br>
+ * Generators are not thread safe, but visitors may walk nested joint moves with the same
+ * generator; each nesting level keeps its own buffers.
+ */
+public final class JointMoveGenerator {
+
+	/**
+	 * Receives the positions reached by the joint moves.
+	 */
+	@FunctionalInterface
+	public interface Visitor {
+
+		/**
+		 * @param board the board, at the reached position; it must be back at that position
+		 * when the visitor returns
+		 * @param moves the moves made to reach the position, in the order they were made; only
+		 * valid until the visitor returns
+		 * @return whether to go on with the next position
+		 */
+		boolean visit(@Nonnull SearchBoard board, @Nonnull MoveList moves);
+	}
+
+	// buffers of one nesting level
+	private static final class Level {
+		final MoveList pending = new MoveList(256);
+		final MoveList path = new MoveList(8);
+		final LongSet seen = new LongSet();
+	}
+
+	private final List<Level> levels = new ArrayList<>();
+	private int level;
+
+	/**
+	 * Visits every distinct position the detectives can reach before MrX moves again or the game
+	 * ends. If the detectives are not to move, the board's position is the only one and is
+	 * visited with no moves.
+	 *
+	 * @param board the board; it is back at its position when this returns
+	 * @param visitor receives the reached positions
+	 * @return false if the visitor stopped the walk, true otherwise
+	 */
+	public boolean forEach(@Nonnull SearchBoard board, @Nonnull Visitor visitor) {
+		if (level == levels.size()) levels.add(new Level());
+		Level buffers = levels.get(level++);
+		try {
+			buffers.seen.clear();
+			buffers.path.clear();
+			buffers.pending.clear();
+			return expand(board, visitor, buffers);
+		} finally {
+			level--;
+		}
+	}
+
+	/**
+	 * @param board the board; it is back at its position when this returns
+	 * @return the number of distinct positions {@link #forEach} visits
+	 */
+	public int count(@Nonnull SearchBoard board) {
+		int[] count = {0};
+		forEach(board, (position, moves) -> {
+			count[0]++;
+			return true;
+		});
+		return count[0];
+	}
+
+	private boolean expand(SearchBoard board, Visitor visitor, Level buffers) {
+		MoveList pending = buffers.pending;
+		int start = pending.size();
+		board.generateMoves(pending);
+		int end = pending.size();
+		try {
+			if (start == end || MoveCodec.piece(pending.get(start)).isMrX())
+				return visitor.visit(board, buffers.path);
+			for (int i = start; i < end; i++) {
+				long move = pending.get(i);
+				board.make(move);
+				buffers.path.add(move);
+				boolean go = !buffers.seen.add(board.hash()) || expand(board, visitor, buffers);
+				buffers.path.truncate(buffers.path.size() - 1);
+				board.unmake();
+				if (!go) return false;
+			}
+			return true;
+		} finally {
+			pending.truncate(start);
+		}
+	}
+
+	// open addressing set of hashes, cleared by starting a new generation
+	private static final class LongSet {
+
+		private long[] keys = new long[1024];
+		private int[] generations = new int[1024];
+		private int generation = 1;
+		private int size;
+
+		void clear() {
+			size = 0;
+			if (++generation == 0) {
+				Arrays.fill(generations, 0);
+				generation = 1;
+			}
+		}
+
+		// returns false if the hash was in the set already
+		boolean add(long hash) {
+			if (2 * (size + 1) > keys.length) grow();
+			if (!insert(keys, generations, hash)) return false;
+			size++;
+			return true;
+		}
+
+		private boolean insert(long[] keys, int[] generations, long hash) {
+			int mask = keys.length - 1;
+			int slot = (int) (hash ^ (hash >>> 32)) & mask;
+			while (generations[slot] == generation) {
+				if (keys[slot] == hash) return false;
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = hash;
+			generations[slot] = generation;
+			return true;
+		}
+
+		private void grow() {
+			long[] oldKeys = keys;
+			int[] oldGenerations = generations;
+			keys = new long[oldKeys.length * 2];
+			generations = new int[oldKeys.length * 2];
+			for (int i = 0; i < oldKeys.length; i++)
+				if (oldGenerations[i] == generation) insert(keys, generations, oldKeys[i]);
+		}
+	}
+}
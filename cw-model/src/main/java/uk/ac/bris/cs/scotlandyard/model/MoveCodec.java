@@ -0,0 +1,184 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Packs a {@link Move} into a single {@code long}.
+ * <br>
+ * The layout, from the lowest bit, is the source node (16 bits), the first destination (16 bits,
+ * the destination of a single move), the second destination (16 bits, zero for single moves),
+ * the index of the piece in {@link ScotlandYard#ALL_PIECES} (3 bits), the first and the second
+ * ticket ordinals (3 bits each) and one bit that is set for double moves. Encoded moves are never
+ * negative, so {@link #NONE} can be used as a sentinel. Node numbers must be below 65536.
+ */
+public final class MoveCodec {
+
+	/**
+	 * Encodes no move at all
+	 */
+	public static final long NONE = -1L;
+
+	private static final int NODE_BITS = 16;
+	private static final int NODE_MASK = (1 << NODE_BITS) - 1;
+	private static final int DESTINATION1_SHIFT = NODE_BITS;
+	private static final int DESTINATION2_SHIFT = 2 * NODE_BITS;
+	private static final int PIECE_SHIFT = 3 * NODE_BITS;
+	private static final int TICKET1_SHIFT = PIECE_SHIFT + 3;
+	private static final int TICKET2_SHIFT = TICKET1_SHIFT + 3;
+	private static final int DOUBLE_SHIFT = TICKET2_SHIFT + 3;
+
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private MoveCodec() {}
+
+	/**
+	 * @param piece the piece index, see {@link MoveTable#pieceIndex(Piece)}
+	 * @param source the source node
+	 * @param ticket the ticket used
+	 * @param destination the destination node
+	 * @return the encoded single move
+	 */
+	public static long single(int piece, int source, @Nonnull Ticket ticket, int destination) {
+		return (long) node(source)
+				| (long) node(destination) << DESTINATION1_SHIFT
+				| (long) piece(piece) << PIECE_SHIFT
+				| (long) ticket.ordinal() << TICKET1_SHIFT;
+	}
+
+	/**
+	 * @param piece the piece index, see {@link MoveTable#pieceIndex(Piece)}
+	 * @param source the source node
+	 * @param ticket1 the ticket used for the first journey
+	 * @param destination1 the destination of the first journey
+	 * @param ticket2 the ticket used for the second journey
+	 * @param destination2 the destination of the second journey
+	 * @return the encoded double move
+	 */
+	public static long x2(int piece, int source,
+	                      @Nonnull Ticket ticket1, int destination1,
+	                      @Nonnull Ticket ticket2, int destination2) {
+		return (long) node(source)
+				| (long) node(destination1) << DESTINATION1_SHIFT
+				| (long) node(destination2) << DESTINATION2_SHIFT
+				| (long) piece(piece) << PIECE_SHIFT
+				| (long) ticket1.ordinal() << TICKET1_SHIFT
+				| (long) ticket2.ordinal() << TICKET2_SHIFT
+				| 1L << DOUBLE_SHIFT;
+	}
+
+	private static int node(int node) {
+		if ((node & ~NODE_MASK) != 0)
+			throw new IllegalArgumentException("Node out of range: " + node);
+		return node;
+	}
+
+	private static int piece(int piece) {
+		if (piece < 0 || piece >= ScotlandYard.ALL_PIECES.size())
+			throw new IllegalArgumentException("Unknown piece index: " + piece);
+		return piece;
+	}
+
+	/**
+	 * @param move the move
+	 * @return the encoded move
+	 * @throws IllegalArgumentException if the piece is not one of {@link ScotlandYard#ALL_PIECES}
+	 * or a node is out of range
+	 */
+	public static long encode(@Nonnull Move move) {
+		int piece = MoveTable.pieceIndex(move.commencedBy());
+		if (move instanceof Move.SingleMove single) {
+			return single(piece, single.source(), single.ticket, single.destination);
+		}
+		var x2 = (Move.DoubleMove) move;
+		return x2(piece, x2.source(), x2.ticket1, x2.destination1, x2.ticket2, x2.destination2);
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return a new move equal to the encoded one, see {@link MoveTable#canonical(long)} for the
+	 * canonical instance
+	 */
+	@Nonnull public static Move decode(long move) {
+		return isDouble(move)
+				? new Move.DoubleMove(piece(move), source(move),
+						ticket1(move), destination1(move), ticket2(move), destination2(move))
+				: new Move.SingleMove(piece(move), source(move), ticket1(move), destination1(move));
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return whether the move is a double move
+	 */
+	public static boolean isDouble(long move) { return (move >>> DOUBLE_SHIFT & 1) != 0; }
+
+	/**
+	 * @param move the encoded move
+	 * @return the index of the moving piece in {@link ScotlandYard#ALL_PIECES}
+	 */
+	public static int pieceIndex(long move) { return (int) (move >>> PIECE_SHIFT & 7); }
+
+	/**
+	 * @param move the encoded move
+	 * @return the moving piece
+	 */
+	@Nonnull public static Piece piece(long move) {
+		return ScotlandYard.ALL_PIECES.get(pieceIndex(move));
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return the source node
+	 */
+	public static int source(long move) { return (int) (move & NODE_MASK); }
+
+	/**
+	 * @param move the encoded move
+	 * @return the destination of a single move or the first destination of a double move
+	 */
+	public static int destination1(long move) {
+		return (int) (move >>> DESTINATION1_SHIFT & NODE_MASK);
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return the second destination of a double move, 0 for single moves
+	 */
+	public static int destination2(long move) {
+		return (int) (move >>> DESTINATION2_SHIFT & NODE_MASK);
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return the node the piece ends up on
+	 */
+	public static int destination(long move) {
+		return isDouble(move) ? destination2(move) : destination1(move);
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return the ticket of a single move or the first ticket of a double move
+	 */
+	@Nonnull public static Ticket ticket1(long move) {
+		return TICKETS[(int) (move >>> TICKET1_SHIFT & 7)];
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return the second ticket of a double move, {@link Ticket#TAXI} (ordinal 0) for single
+	 * moves
+	 */
+	@Nonnull public static Ticket ticket2(long move) {
+		return TICKETS[(int) (move >>> TICKET2_SHIFT & 7)];
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return the move in a readable form, for debugging
+	 */
+	@Nonnull public static String toString(long move) {
+		return move == NONE ? "NONE" : decode(move).toString();
+	}
+}
@@ -0,0 +1,126 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A growable list of moves encoded with {@link MoveCodec}.
+ * <br>
+ * Lists are meant to be reused: searches can keep one list per ply, or one list for the whole
+ * search where each ply appends its moves and {@link #truncate(int)}s back once done.
+ */
+public final class MoveList {
+
+	private long[] moves;
+	private int size;
+
+	public MoveList() { this(32); }
+
+	/**
+	 * @param capacity the initial capacity
+	 */
+	public MoveList(int capacity) {
+		if (capacity < 0) throw new IllegalArgumentException("Negative capacity: " + capacity);
+		moves = new long[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * @return the number of moves in the list
+	 */
+	public int size() { return size; }
+
+	/**
+	 * @return whether the list is empty
+	 */
+	public boolean isEmpty() { return size == 0; }
+
+	/**
+	 * @param move the encoded move to append
+	 */
+	public void add(long move) {
+		if (size == moves.length) moves = Arrays.copyOf(moves, size * 2);
+		moves[size++] = move;
+	}
+
+	/**
+	 * @param other the moves to append
+	 */
+	public void addAll(@Nonnull MoveList other) {
+		if (size + other.size > moves.length)
+			moves = Arrays.copyOf(moves, Math.max(size + other.size, size * 2));
+		System.arraycopy(other.moves, 0, moves, size, other.size);
+		size += other.size;
+	}
+
+	/**
+	 * @param index the index
+	 * @return the encoded move at the index
+	 */
+	public long get(int index) {
+		checkIndex(index);
+		return moves[index];
+	}
+
+	/**
+	 * @param index the index
+	 * @param move the encoded move to store at the index
+	 */
+	public void set(int index, long move) {
+		checkIndex(index);
+		moves[index] = move;
+	}
+
+	/**
+	 * @param i the index of one move
+	 * @param j the index of the other move
+	 */
+	public void swap(int i, int j) {
+		checkIndex(i);
+		checkIndex(j);
+		long move = moves[i];
+		moves[i] = moves[j];
+		moves[j] = move;
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return whether the list contains the move
+	 */
+	public boolean contains(long move) {
+		for (int i = 0; i < size; i++)
+			if (moves[i] == move) return true;
+		return false;
+	}
+
+	/**
+	 * @param size the number of moves to keep, no larger than the current size
+	 */
+	public void truncate(int size) {
+		if (size < 0 || size > this.size)
+			throw new IndexOutOfBoundsException("Size " + size + " out of bounds for " + this.size);
+		this.size = size;
+	}
+
+	/**
+	 * Removes all moves, keeping the capacity
+	 */
+	public void clear() { size = 0; }
+
+	/**
+	 * @return a copy of the encoded moves
+	 */
+	@Nonnull public long[] toArray() { return Arrays.copyOf(moves, size); }
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size);
+	}
+
+	@Override public String toString() {
+		var joiner = new StringJoiner(", ", "[", "]");
+		for (int i = 0; i < size; i++) joiner.add(MoveCodec.toString(moves[i]));
+		return joiner.toString();
+	}
+}
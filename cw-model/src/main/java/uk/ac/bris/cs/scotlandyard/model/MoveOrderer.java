@@ -0,0 +1,176 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Orders the moves of a {@link SearchBoard} for alpha-beta searches, most promising first.
+ * <br>
+ * The best move stored in the {@link TranspositionTable} goes first, then the two killer moves of
+ * the ply (the latest moves that caused a cut-off at the same ply elsewhere in the tree), then the
+ * rest by their history (how often and how deep the same journey caused cut-offs anywhere) and
+ * finally by a static rank: MrX's moves ending farther from the nearest detective first and
+ * detectives' moves ending closer to MrX first, then moves ending on nodes with more edges.
+ * <br>
+ * Moves are scored once with {@link #score} and picked with {@link #next}: the first few one at a
+ * time, so a node that is cut off early does not pay for sorting, and the rest sorted in one go.
+ * Orderers are not thread safe; use one per search thread.
+ */
+public final class MoveOrderer {
+
+	// deepest ply with killer moves
+	private static final int MAX_PLY = 256;
+	private static final long HASH_MOVE = Long.MAX_VALUE;
+	private static final long FIRST_KILLER = Long.MAX_VALUE - 1;
+	private static final long SECOND_KILLER = Long.MAX_VALUE - 2;
+	// the static rank takes up the low bits of the score, below the history
+	private static final int HISTORY_SHIFT = 16;
+	private static final int MAX_DISTANCE = 0xFF;
+	private static final int MAX_HISTORY = Integer.MAX_VALUE >> 1;
+	// picked one at a time before sorting the rest, enough for the hash move and the killers
+	private static final int SELECTED = 3;
+	// sort keys carry the move's offset in their low bits
+	private static final int OFFSET_BITS = 16;
+
+	private final TransportTable table;
+	private final DistanceOracle distances;
+	private final int nodes;
+	// by double move flag, source index and final destination index
+	private final int[] history;
+	// two per ply, the latest first
+	private final long[] killers = new long[2 * MAX_PLY];
+	// scores of the moves at the same indices of the move list
+	private long[] scores = new long[256];
+	private long[] sortKeys = new long[256];
+	private long[] sortMoves = new long[256];
+
+	/**
+	 * @param distances the distances of the game's graph, counted in journeys
+	 */
+	public MoveOrderer(@Nonnull DistanceOracle distances) {
+		this.distances = distances;
+		this.table = distances.table();
+		this.nodes = table.nodeCount();
+		this.history = new int[2 * nodes * nodes];
+		Arrays.fill(killers, MoveCodec.NONE);
+	}
+
+	/**
+	 * Starts ordering for a new search: the killer moves are forgotten and the history is halved,
+	 * so it follows the game as it goes on.
+	 */
+	public void newSearch() {
+		Arrays.fill(killers, MoveCodec.NONE);
+		for (int i = 0; i < history.length; i++) history[i] >>= 1;
+	}
+
+	private int historyIndex(long move) {
+		int source = table.indexOf(MoveCodec.source(move));
+		int destination = table.indexOf(MoveCodec.destination(move));
+		return ((MoveCodec.isDouble(move) ? nodes : 0) + source) * nodes + destination;
+	}
+
+	/**
+	 * Scores the moves from the given index to the end of the list, all made by the player to move.
+	 *
+	 * @param board the board the moves were generated on
+	 * @param moves the moves
+	 * @param from the index of the first move to score
+	 * @param ply the number of moves made since the root of the search
+	 * @param hashMove the best move found here before, {@link MoveCodec#NONE} if there is none
+	 */
+	public void score(@Nonnull SearchBoard board, @Nonnull MoveList moves, int from, int ply, long hashMove) {
+		int end = moves.size();
+		if (end > scores.length) scores = Arrays.copyOf(scores, Math.max(end, scores.length * 2));
+		long killer1 = ply < MAX_PLY ? killers[2 * ply] : MoveCodec.NONE;
+		long killer2 = ply < MAX_PLY ? killers[2 * ply + 1] : MoveCodec.NONE;
+		for (int i = from; i < end; i++) {
+			long move = moves.get(i);
+			if (move == hashMove) scores[i] = HASH_MOVE;
+			else if (move == killer1) scores[i] = FIRST_KILLER;
+			else if (move == killer2) scores[i] = SECOND_KILLER;
+			else scores[i] = (long) history[historyIndex(move)] << HISTORY_SHIFT | rank(board, move);
+		}
+	}
+
+	// distance rank in the high byte, degree in the low byte
+	private int rank(SearchBoard board, long move) {
+		int destination = table.indexOf(MoveCodec.destination(move));
+		int distance;
+		if (MoveCodec.pieceIndex(move) == 0) {
+			distance = MAX_DISTANCE;
+			for (int player = 1; player < board.playerCount(); player++)
+				distance = Math.min(distance,
+						distances.distanceByIndex(board.locationIndex(player), destination));
+		} else {
+			distance = MAX_DISTANCE - Math.min(MAX_DISTANCE,
+					distances.distanceByIndex(destination, board.locationIndex(0)));
+		}
+		return distance << 8 | Math.min(table.degree(destination), 0xFF);
+	}
+
+	/**
+	 * Moves the best move not picked yet to the given index, scores and all.
+	 *
+	 * @param moves the moves scored by {@link #score}
+	 * @param from the index of the first scored move
+	 * @param index the index to fill, every move before it has been picked
+	 * @param end the end of the scored moves
+	 */
+	public void next(@Nonnull MoveList moves, int from, int index, int end) {
+		int picked = index - from;
+		boolean sortable = end - from <= 1 << OFFSET_BITS;
+		// sorted already
+		if (sortable && picked > SELECTED) return;
+		if (sortable && picked == SELECTED) {
+			sort(moves, index, end);
+			return;
+		}
+		int best = index;
+		for (int i = index + 1; i < end; i++)
+			if (scores[i] > scores[best]) best = i;
+		if (best != index) {
+			moves.swap(index, best);
+			long score = scores[index];
+			scores[index] = scores[best];
+			scores[best] = score;
+		}
+	}
+
+	// sorts by descending score; only history and rank are left, which fit above the offset
+	private void sort(MoveList moves, int from, int end) {
+		int count = end - from;
+		if (count > sortKeys.length) {
+			sortKeys = new long[Math.max(count, sortKeys.length * 2)];
+			sortMoves = new long[sortKeys.length];
+		}
+		for (int i = 0; i < count; i++) {
+			sortKeys[i] = scores[from + i] << OFFSET_BITS | i;
+			sortMoves[i] = moves.get(from + i);
+		}
+		Arrays.sort(sortKeys, 0, count);
+		for (int i = 0; i < count; i++) {
+			long key = sortKeys[count - 1 - i];
+			moves.set(from + i, sortMoves[(int) key & ((1 << OFFSET_BITS) - 1)]);
+			scores[from + i] = key >>> OFFSET_BITS;
+		}
+	}
+
+	/**
+	 * Records a move that caused a cut-off.
+	 *
+	 * @param move the move
+	 * @param ply the number of moves made since the root of the search
+	 * @param depth the depth left below the move's position
+	 */
+	public void cutoff(long move, int ply, int depth) {
+		if (ply < MAX_PLY && killers[2 * ply] != move) {
+			killers[2 * ply + 1] = killers[2 * ply];
+			killers[2 * ply] = move;
+		}
+		int index = historyIndex(move);
+		// saturates rather than overflowing into negative scores
+		history[index] = (int) Math.min(MAX_HISTORY, history[index] + (long) depth * depth);
+	}
+}
@@ -0,0 +1,354 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * Every move that can ever be made on a graph, interned and numbered.
+ * <br>
+ * Each {@link Move.SingleMove} of each piece in {@link ScotlandYard#ALL_PIECES} and each
+ * {@link Move.DoubleMove} of MrX that the graph permits (ignoring tickets and occupied nodes) is
+ * created once and given a dense integer id, so move generation can hand out the canonical
+ * instance and legality can be checked against an {@link IdSet} instead of hashing moves. Ids are
+ * grouped by source node: all moves of one piece from one node occupy a small contiguous range.
+ * <br>
+ * Use {@link #of(GameSetup)} to obtain the table; tables are built once per graph and cached for
+ * as long as the graph is reachable.
+ */
+public final class MoveTable {
+
+	private static final LoadingCache<ImmutableValueGraph<Integer, ImmutableSet<Transport>>,
+			MoveTable> CACHE = CacheBuilder.newBuilder()
+			.weakKeys() // compares graphs by identity
+			.build(CacheLoader.from(MoveTable::new));
+
+	private static final int PIECES = ScotlandYard.ALL_PIECES.size();
+	private static final int MRX = 0;
+
+	// tickets that can pay for a single journey, DOUBLE never does
+	private static final int SLOTS = 4;
+	private static final Ticket[] SLOT_TICKETS =
+			{Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND, Ticket.SECRET};
+
+	private final TransportTable table;
+	// the node each edge leaves
+	private final int[] sources;
+	// first id of the moves leaving each node
+	private final int[] nodeBase;
+	// running count of (edge1, edge2) pairs over the edges, pairs of one node are contiguous
+	private final int[] pairs;
+	private final Move[] moves;
+
+	/**
+	 * @param setup the game setup
+	 * @return the move table of the setup's graph
+	 */
+	@Nonnull public static MoveTable of(@Nonnull GameSetup setup) {
+		return of(setup.graph);
+	}
+
+	/**
+	 * @param graph the game graph
+	 * @return the move table of the given graph
+	 */
+	@Nonnull public static MoveTable of(
+			@Nonnull ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		return CACHE.getUnchecked(Objects.requireNonNull(graph));
+	}
+
+	private MoveTable(ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		table = TransportTable.of(graph);
+		int nodes = table.nodeCount();
+		sources = new int[table.edgeCount()];
+		for (int i = 0; i < nodes; i++) Arrays.fill(sources, table.start(i), table.end(i), i);
+		pairs = new int[table.edgeCount() + 1];
+		for (int edge = 0; edge < table.edgeCount(); edge++)
+			pairs[edge + 1] = pairs[edge] + table.degree(table.target(edge));
+		nodeBase = new int[nodes + 1];
+		for (int i = 0; i < nodes; i++) {
+			long size = (long) PIECES * SLOTS * table.degree(i)
+					+ (long) SLOTS * SLOTS * (pairs[table.end(i)] - pairs[table.start(i)]);
+			if (nodeBase[i] + size > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("Graph too large: " + nodes);
+			nodeBase[i + 1] = nodeBase[i] + (int) size;
+		}
+
+		moves = new Move[nodeBase[nodes]];
+		for (int from = 0; from < nodes; from++) {
+			int source = table.node(from);
+			for (int edge = table.start(from); edge < table.end(from); edge++) {
+				int destination = table.node(table.target(edge));
+				for (int slot = 0; slot < SLOTS; slot++) {
+					if (!permits(edge, slot)) continue;
+					for (int piece = 0; piece < PIECES; piece++) {
+						moves[singleId(piece, from, edge, slot)] = new Move.SingleMove(
+								ScotlandYard.ALL_PIECES.get(piece), source,
+								SLOT_TICKETS[slot], destination);
+					}
+				}
+			}
+			for (int edge1 = table.start(from); edge1 < table.end(from); edge1++) {
+				int middle = table.target(edge1);
+				int first = table.node(middle);
+				for (int edge2 = table.start(middle); edge2 < table.end(middle); edge2++) {
+					int second = table.node(table.target(edge2));
+					for (int slot1 = 0; slot1 < SLOTS; slot1++) {
+						if (!permits(edge1, slot1)) continue;
+						for (int slot2 = 0; slot2 < SLOTS; slot2++) {
+							if (!permits(edge2, slot2)) continue;
+							moves[doubleId(from, edge1, edge2, slot1, slot2)] = new Move.DoubleMove(
+									ScotlandYard.ALL_PIECES.get(MRX), source,
+									SLOT_TICKETS[slot1], first, SLOT_TICKETS[slot2], second);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// secret tickets work on any edge with a transport, the others only on their own transport
+	private boolean permits(int edge, int slot) {
+		int mask = table.tickets(edge);
+		return mask != 0 && (slot == SLOTS - 1 || (mask & TransportTable.bit(SLOT_TICKETS[slot])) != 0);
+	}
+
+	private static int slot(Ticket ticket) {
+		switch (ticket) {
+			case TAXI: return 0;
+			case BUS: return 1;
+			case UNDERGROUND: return 2;
+			case SECRET: return 3;
+			default: return -1;
+		}
+	}
+
+	private int singleId(int piece, int from, int edge, int slot) {
+		return nodeBase[from] + (piece * table.degree(from) + edge - table.start(from)) * SLOTS + slot;
+	}
+
+	private int doubleId(int from, int edge1, int edge2, int slot1, int slot2) {
+		int pair = pairs[edge1] - pairs[table.start(from)] + edge2 - table.start(table.target(edge1));
+		return nodeBase[from] + PIECES * SLOTS * table.degree(from) + (pair * SLOTS + slot1) * SLOTS + slot2;
+	}
+
+	/**
+	 * @return the transport table the moves were built from
+	 */
+	@Nonnull public TransportTable transports() { return table; }
+
+	/**
+	 * @return one past the largest move id
+	 */
+	public int size() { return moves.length; }
+
+	/**
+	 * @param piece the piece
+	 * @return the index of the piece in {@link ScotlandYard#ALL_PIECES}; -1 for unknown pieces
+	 */
+	public static int pieceIndex(@Nonnull Piece piece) {
+		return ScotlandYard.ALL_PIECES.indexOf(piece);
+	}
+
+	/**
+	 * @param id the move id
+	 * @return the canonical move with the given id, null if the id is not used by any move
+	 */
+	public Move move(int id) { return moves[id]; }
+
+	/**
+	 * @param piece the piece index, see {@link #pieceIndex(Piece)}
+	 * @param edge the {@link TransportTable} edge travelled along
+	 * @param ticket the ticket used
+	 * @return the id of the single move; -1 if the ticket cannot be used on the edge
+	 */
+	public int single(int piece, int edge, @Nonnull Ticket ticket) {
+		int slot = slot(ticket);
+		if (piece < 0 || piece >= PIECES || slot < 0 || !permits(edge, slot)) return -1;
+		return singleId(piece, sources[edge], edge, slot);
+	}
+
+	/**
+	 * @param edge1 the first {@link TransportTable} edge travelled along
+	 * @param edge2 the second edge, leaving the target of the first
+	 * @param ticket1 the ticket used on the first edge
+	 * @param ticket2 the ticket used on the second edge
+	 * @return the id of MrX's double move; -1 if the edges are not consecutive or a ticket
+	 * cannot be used on its edge
+	 */
+	public int x2(int edge1, int edge2, @Nonnull Ticket ticket1, @Nonnull Ticket ticket2) {
+		int slot1 = slot(ticket1), slot2 = slot(ticket2);
+		int middle = table.target(edge1);
+		if (edge2 < table.start(middle) || edge2 >= table.end(middle)) return -1;
+		if (slot1 < 0 || slot2 < 0 || !permits(edge1, slot1) || !permits(edge2, slot2)) return -1;
+		return doubleId(sources[edge1], edge1, edge2, slot1, slot2);
+	}
+
+	/**
+	 * @param move the move
+	 * @return the id of the move; -1 if the move cannot be made on this graph
+	 */
+	public int idOf(@Nonnull Move move) {
+		int piece = pieceIndex(move.commencedBy());
+		if (move instanceof Move.SingleMove single) {
+			return idOf(piece, single.source(), single.ticket, single.destination, null, 0);
+		} else if (move instanceof Move.DoubleMove x2) {
+			return idOf(piece, x2.source(), x2.ticket1, x2.destination1, x2.ticket2, x2.destination2);
+		}
+		return -1;
+	}
+
+	/**
+	 * @param move the move encoded with {@link MoveCodec}
+	 * @return the id of the move; -1 if the move cannot be made on this graph
+	 */
+	public int idOf(long move) {
+		if (move < 0) return -1;
+		return idOf(MoveCodec.pieceIndex(move), MoveCodec.source(move),
+				MoveCodec.ticket1(move), MoveCodec.destination1(move),
+				MoveCodec.isDouble(move) ? MoveCodec.ticket2(move) : null,
+				MoveCodec.destination2(move));
+	}
+
+	/**
+	 * @param move the move encoded with {@link MoveCodec}
+	 * @return the canonical instance of the move, null if the move cannot be made on this graph
+	 */
+	public Move canonical(long move) {
+		int id = idOf(move);
+		return id < 0 ? null : moves[id];
+	}
+
+	// ticket2 is null for single moves
+	private int idOf(int piece, int source, Ticket ticket1, int destination1,
+	                 Ticket ticket2, int destination2) {
+		int from = table.indexOf(source);
+		if (piece < 0 || from < 0) return -1;
+		int edge1 = edge(from, destination1);
+		if (edge1 < 0) return -1;
+		if (ticket2 == null) return single(piece, edge1, ticket1);
+		if (piece != MRX) return -1;
+		int edge2 = edge(table.target(edge1), destination2);
+		return edge2 < 0 ? -1 : x2(edge1, edge2, ticket1, ticket2);
+	}
+
+	private int edge(int from, int destination) {
+		int to = table.indexOf(destination);
+		return to < 0 ? -1 : table.edge(from, to);
+	}
+
+	/**
+	 * An immutable set of move ids, stored as the non-empty 64 bit words of a bitset over all
+	 * ids. Since ids are grouped by source node the moves available in a state span only a few
+	 * words, so the set stays small while {@link #contains(int)} is a binary search and a bit
+	 * test.
+	 */
+	public static final class IdSet {
+
+		private static final IdSet EMPTY = new IdSet(new int[0], new long[0], 0);
+
+		private final int[] blocks;
+		private final long[] words;
+		private final int size;
+
+		private IdSet(int[] blocks, long[] words, int size) {
+			this.blocks = blocks;
+			this.words = words;
+			this.size = size;
+		}
+
+		/**
+		 * @return the empty set
+		 */
+		@Nonnull public static IdSet of() { return EMPTY; }
+
+		/**
+		 * @param id the move id
+		 * @return whether the set contains the id
+		 */
+		public boolean contains(int id) {
+			if (id < 0) return false;
+			int block = Arrays.binarySearch(blocks, id >>> 6);
+			return block >= 0 && (words[block] & (1L << id)) != 0;
+		}
+
+		/**
+		 * @return the number of ids in the set
+		 */
+		public int size() { return size; }
+
+		/**
+		 * @return whether the set is empty
+		 */
+		public boolean isEmpty() { return size == 0; }
+
+		/**
+		 * @param action called for every id, in ascending order
+		 */
+		public void forEach(@Nonnull IntConsumer action) {
+			for (int i = 0; i < blocks.length; i++) {
+				for (long bits = words[i]; bits != 0; bits &= bits - 1)
+					action.accept((blocks[i] << 6) + Long.numberOfTrailingZeros(bits));
+			}
+		}
+
+		/**
+		 * @param table the table the ids belong to
+		 * @return the canonical moves of the ids
+		 */
+		@Nonnull public ImmutableSet<Move> toMoves(@Nonnull MoveTable table) {
+			var builder = ImmutableSet.<Move>builderWithExpectedSize(size);
+			forEach(id -> builder.add(table.move(id)));
+			return builder.build();
+		}
+
+		/**
+		 * Collects ids in any order, duplicates are allowed.
+		 */
+		public static final class Builder {
+			private int[] ids = new int[16];
+			private int count;
+
+			/**
+			 * @param id the move id to add
+			 * @return this builder
+			 */
+			public Builder add(int id) {
+				if (id < 0) throw new IllegalArgumentException("Invalid move id: " + id);
+				if (count == ids.length) ids = Arrays.copyOf(ids, count * 2);
+				ids[count++] = id;
+				return this;
+			}
+
+			/**
+			 * @return the set of the added ids
+			 */
+			@Nonnull public IdSet build() {
+				if (count == 0) return EMPTY;
+				Arrays.sort(ids, 0, count);
+				int[] blocks = new int[count];
+				long[] words = new long[count];
+				int used = 0, size = 0;
+				for (int i = 0; i < count; i++) {
+					int id = ids[i];
+					if (used == 0 || blocks[used - 1] != id >>> 6) blocks[used++] = id >>> 6;
+					long bit = 1L << id;
+					if ((words[used - 1] & bit) == 0) size++;
+					words[used - 1] |= bit;
+				}
+				return new IdSet(Arrays.copyOf(blocks, used), Arrays.copyOf(words, used), size);
+			}
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * The nodes MrX could be at, as far as the detectives can tell from his travel log.
+ * <br>
+ * The candidates are a bitset over {@link TransportTable} node indices. A reveal narrows them down
+ * to the revealed node, a hidden entry moves them along every edge the entry's ticket can pay for
+ * (any edge for {@link Ticket#SECRET}), and nodes held by detectives are taken out, as MrX would
+ * have been caught there. Each log entry costs one pass over the edges, so following a game with
+ * {@link #update(Board)} after every move only handles the entries added since the last call.
+ * Beliefs are not thread safe.
+ */
+public final class MrXBelief {
+
+	private final TransportTable table;
+	private final long[] start;
+	private long[] candidates;
+	// the candidates after the next hidden move is made
+	private long[] next;
+	// log entries taken in
+	private int entries;
+
+	/**
+	 * A belief with every node of the graph as a candidate.
+	 *
+	 * @param setup the game setup
+	 */
+	public MrXBelief(@Nonnull GameSetup setup) {
+		this.table = TransportTable.of(setup);
+		this.start = new long[words(table.nodeCount())];
+		for (int index = 0; index < table.nodeCount(); index++) set(start, index);
+		this.candidates = start.clone();
+		this.next = new long[start.length];
+	}
+
+	/**
+	 * A belief with the given starting locations as candidates.
+	 *
+	 * @param setup the game setup
+	 * @param locations where MrX may have started, such as {@link ScotlandYard#MRX_LOCATIONS}
+	 * @throws IllegalArgumentException if a location is not a node of the setup's graph
+	 */
+	public MrXBelief(@Nonnull GameSetup setup, @Nonnull Iterable<Integer> locations) {
+		this.table = TransportTable.of(setup);
+		this.start = new long[words(table.nodeCount())];
+		for (int location : locations) set(start, index(location));
+		this.candidates = start.clone();
+		this.next = new long[start.length];
+	}
+
+	private static int words(int bits) { return (bits + 63) >>> 6; }
+
+	private static void set(long[] bits, int index) { bits[index >>> 6] |= 1L << index; }
+
+	private static boolean get(long[] bits, int index) { return (bits[index >>> 6] & 1L << index) != 0; }
+
+	private int index(int location) {
+		int index = table.indexOf(location);
+		if (index < 0) throw new IllegalArgumentException("Location " + location + " is not on the graph");
+		return index;
+	}
+
+	/**
+	 * Goes back to the starting locations, before any log entry.
+	 */
+	public void reset() {
+		System.arraycopy(start, 0, candidates, 0, start.length);
+		entries = 0;
+	}
+
+	/**
+	 * Catches up with a game: takes in the log entries added since the last update and takes out
+	 * the detectives' current locations.
+	 *
+	 * @param board the game, the same one as the last update or the one after it
+	 * @throws IllegalArgumentException if the board's travel log is shorter than at the last update
+	 */
+	public void update(@Nonnull Board board) {
+		var log = board.getMrXTravelLog();
+		if (log.size() < entries)
+			throw new IllegalArgumentException("Travel log went back from " + entries + " to " + log.size() + " entries");
+		for (int i = entries; i < log.size(); i++) add(log.get(i));
+		for (Piece piece : board.getPlayers()) {
+			if (piece.isDetective())
+				board.getDetectiveLocation((Piece.Detective) piece).ifPresent(this::exclude);
+		}
+	}
+
+	/**
+	 * Takes in MrX's next log entry.
+	 *
+	 * @param entry the entry
+	 */
+	public void add(@Nonnull LogEntry entry) {
+		entries++;
+		if (entry.location().isPresent()) {
+			int index = index(entry.location().get());
+			Arrays.fill(candidates, 0);
+			set(candidates, index);
+			return;
+		}
+		int mask = entry.ticket() == Ticket.SECRET ? -1 : TransportTable.bit(entry.ticket());
+		Arrays.fill(next, 0);
+		for (int word = 0; word < candidates.length; word++) {
+			for (long bits = candidates[word]; bits != 0; bits &= bits - 1) {
+				int from = word << 6 | Long.numberOfTrailingZeros(bits);
+				for (int edge = table.start(from), end = table.end(from); edge < end; edge++)
+					if ((table.tickets(edge) & mask) != 0) set(next, table.target(edge));
+			}
+		}
+		long[] swap = candidates;
+		candidates = next;
+		next = swap;
+	}
+
+	/**
+	 * Rules out a node, for example one a detective stands on.
+	 *
+	 * @param location the node
+	 * @throws IllegalArgumentException if the location is not a node of the graph
+	 */
+	public void exclude(int location) {
+		int index = index(location);
+		candidates[index >>> 6] &= ~(1L << index);
+	}
+
+	/**
+	 * @return the number of log entries taken in since the start
+	 */
+	public int entries() { return entries; }
+
+	/**
+	 * @return the number of nodes MrX could be at
+	 */
+	public int count() {
+		int count = 0;
+		for (long word : candidates) count += Long.bitCount(word);
+		return count;
+	}
+
+	/**
+	 * @param location the node
+	 * @return whether MrX could be at the given node; false for nodes not on the graph
+	 */
+	public boolean contains(int location) {
+		int index = table.indexOf(location);
+		return index >= 0 && get(candidates, index);
+	}
+
+	/**
+	 * @param index the {@link TransportTable} node index
+	 * @return whether MrX could be at the node with the given index
+	 */
+	public boolean containsIndex(int index) { return get(candidates, index); }
+
+	/**
+	 * @return the nodes MrX could be at, in ascending order
+	 */
+	@Nonnull public int[] locations() {
+		int[] locations = new int[count()];
+		int i = 0;
+		for (int word = 0; word < candidates.length; word++) {
+			for (long bits = candidates[word]; bits != 0; bits &= bits - 1)
+				locations[i++] = table.node(word << 6 | Long.numberOfTrailingZeros(bits));
+		}
+		return locations;
+	}
+}
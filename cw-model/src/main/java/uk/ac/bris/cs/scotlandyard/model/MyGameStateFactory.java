@@ -6,6 +6,7 @@ import javax.annotation.Nonnull;
 
 import com.google.common.collect.ImmutableSet;
 import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.metrics.Metrics;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
 
 import java.util.*;
@@ -21,14 +22,29 @@ import static uk.ac.bris.cs.scotlandyard.model.LogEntry.reveal;
  */
 public final class  MyGameStateFactory implements Factory<GameState> {
 
+	//cached, Ticket.values() copies the array on every call
+	private static final ScotlandYard.Ticket[] TICKETS = ScotlandYard.Ticket.values();
+
+	//dense index of a node in the transport table
+	static int indexOf(TransportTable table, int node) {
+		int index = table.indexOf(node);
+		if (index < 0) {
+			throw new IllegalArgumentException("Node " + node + " is not an element of this graph");
+		}
+		return index;
+	}
+
 	@Nonnull @Override public GameState build(
 			GameSetup setup,
 			Player mrX,
 			ImmutableList<Player> detectives) {
-		return new MyGameState(setup, ImmutableSet.of(Piece.MrX.MRX), ImmutableList.of(), mrX, detectives);
+		long start = System.nanoTime();
+		GameState state = new MyGameState(setup, ImmutableSet.of(Piece.MrX.MRX), ImmutableList.of(), mrX, detectives);
+		Metrics.STATE_CONSTRUCTION.recordSince(start);
+		return state;
 	}
 
-	private class MyGameState implements GameState {
+	private class MyGameState implements PrimitiveBoard.GameState {
 
 		//setup model
 		private GameSetup setup;
@@ -42,14 +58,23 @@ public final class  MyGameStateFactory implements Factory<GameState> {
 		//travelLog model
 		private ImmutableList<LogEntry> travelLog;
 
-		//the winner data, to determine whether the games is over
+		//the winner data, to determine whether the games is over; computed on first access
 		private ImmutableSet<Piece> winner;
 
 		//the available player to move
 		private ImmutableSet<Piece> availablePlayer;
 
-		//available move actions
-		private final ImmutableSet<Move> moves;
+		//available move actions; computed on first access
+		private ImmutableSet<Move> moves;
+
+		//ids of the available moves in the move table; computed on first access
+		private MoveTable.IdSet legal;
+
+		//interned moves of the graph
+		private MoveTable moveTable;
+
+		//zobrist hash of the position; computed on first access, 0 until then
+		private long hash;
 		//judge type of the move
 		Move.Visitor<Boolean> doubleCheck = new Move.Visitor<>() {
 			@Override
@@ -104,9 +129,7 @@ public final class  MyGameStateFactory implements Factory<GameState> {
 			this.detectives = detectives;
 			//check the arguments
 			argusCheck(setup, mrX, detectives);
-			this.winner = ImmutableSet.of();
-			this.moves = getAvailableMoves();
-			this.winner = getWinner();
+			this.moveTable = MoveTable.of(setup);
 		}
 
 		private void argusCheck(GameSetup setup, Player mrX, List<Player> detectives) {
@@ -187,60 +210,151 @@ public final class  MyGameStateFactory implements Factory<GameState> {
 		@Nonnull
 		@Override
 		public ImmutableSet<Piece> getWinner() {
+			if (winner == null) {
+				winner = computeWinner();
+			}
+			return winner;
+		}
+
+		private ImmutableSet<Piece> computeWinner() {
 			HashSet<Piece> winner = new HashSet<>();
 
 			//mrX was caught by any detective
-			if(detectives.stream().map(Player::location).anyMatch(e -> e == mrX.location())){
+			if (isCaught()) {
 				winner.addAll(detectives.stream().map(Player::piece).collect(Collectors.toSet()));
 				return ImmutableSet.copyOf(winner);
 			}
 
-			boolean detectivesLost = true;
-			for (Player detective : detectives) {
-				if (Stream.of(ScotlandYard.Ticket.TAXI, ScotlandYard.Ticket.BUS, ScotlandYard.Ticket.UNDERGROUND).anyMatch(ticket -> detective.hasAtLeast(ticket, 1))) {
-					detectivesLost = false;
-					break;
-				}
-			}
-			if (detectivesLost || availablePlayer.isEmpty()) {
+			if (detectivesLost() || availablePlayer.isEmpty()) {
 				winner.add(Piece.MrX.MRX);
 			}
 
-			if (availablePlayer.contains(Piece.MrX.MRX) && moves.isEmpty()) {
-				winner.addAll(detectives.stream().map(Player::piece).collect(Collectors.toSet()));
+			if (availablePlayer.contains(Piece.MrX.MRX)) {
+				//mrX loses if he cannot move, keep the moves in case the game goes on
+				MoveTable.IdSet generated = generateMoves();
+				if (generated.isEmpty()) {
+					winner.addAll(detectives.stream().map(Player::piece).collect(Collectors.toSet()));
+				} else if (winner.isEmpty()) {
+					legal = generated;
+				}
 			}
 			return ImmutableSet.copyOf(winner);
 		}
 
+		private boolean isCaught() {
+			return isOccupied(detectives, mrX.location());
+		}
+
+		private boolean detectivesLost() {
+			for (Player detective : detectives) {
+				if (Stream.of(ScotlandYard.Ticket.TAXI, ScotlandYard.Ticket.BUS, ScotlandYard.Ticket.UNDERGROUND).anyMatch(ticket -> detective.hasAtLeast(ticket, 1))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
 		@Nonnull
 		@Override
 		public ImmutableSet<Move> getAvailableMoves() {
-			if(!winner.isEmpty()){
-				return ImmutableSet.of();
+			if (moves == null) {
+				moves = legalIds().toMoves(moveTable);
 			}
-			HashSet<Move> moves = new HashSet<>();
+			return moves;
+		}
+
+		private MoveTable.IdSet legalIds() {
+			//the winner check may already have generated mrX's moves
+			boolean over = !getWinner().isEmpty();
+			if (legal == null) {
+				legal = over ? MoveTable.IdSet.of() : generateMoves();
+			}
+			return legal;
+		}
+
+		private MoveTable.IdSet generateMoves() {
+			MoveTable.IdSet.Builder ids = new MoveTable.IdSet.Builder();
 			if (availablePlayer.contains(Piece.MrX.MRX)){
-				moves.addAll(singleMoves(setup, detectives, mrX));
-				moves.addAll(doubleMoves(setup, detectives, mrX));
+				singleMoves(detectives, mrX, ids);
+				doubleMoves(setup, detectives, mrX, ids);
 			} else {
 				detectives.stream()
 						.filter(e -> availablePlayer.contains(e.piece()))
-						.map(e -> singleMoves(setup, detectives, e))
-						.forEach(moves::addAll);
+						.forEach(e -> singleMoves(detectives, e, ids));
 			}
-			return ImmutableSet.copyOf(moves);
+			MoveTable.IdSet generated = ids.build();
+			Metrics.MOVES_GENERATED.record(generated.size());
+			return generated;
+		}
+
+		@Override
+		public void generateMoves(@Nonnull MoveList moves) {
+			legalIds().forEach(id -> moves.add(MoveCodec.encode(moveTable.move(id))));
+		}
+
+		@Override
+		public long hash() {
+			if (hash == 0) {
+				hash = Zobrist.hash(mrX, detectives, availablePlayer, travelLog.size());
+			}
+			return hash;
 		}
 
 		@Nonnull
 		@Override
-		public GameState advance(Move move) {
-			if (!moves.contains(move)) {
+		public PrimitiveBoard.GameState advance(long move) {
+			Move canonical = moveTable.canonical(move);
+			if (canonical == null) {
 				throw new IllegalArgumentException("illegal move: " + move);
 			}
-			updateTickets(move);
-			updateLocationAndTravelLog(move);
-			updateAvailablePlayers(move);
-			return new MyGameState(setup, availablePlayer, travelLog, mrX, detectives);
+			return advance(canonical);
+		}
+
+		@Nonnull
+		@Override
+		public PrimitiveBoard.GameState advance(Move move) {
+			if (!isLegal(move)) {
+				throw new IllegalArgumentException("illegal move: " + move);
+			}
+			long start = System.nanoTime();
+			//apply the move to a copy so this state stays untouched
+			MyGameState next = new MyGameState(setup, availablePlayer, travelLog, mrX, detectives);
+			next.updateTickets(move);
+			next.updateLocationAndTravelLog(move);
+			next.updateAvailablePlayers(move);
+			Metrics.STATE_CONSTRUCTION.recordSince(start);
+			return next;
+		}
+
+		//only generates the moves of the moving player unless all moves are known already
+		private boolean isLegal(Move move) {
+			int id = moveTable.idOf(move);
+			if (id < 0) {
+				return false;
+			}
+			if (legal != null) {
+				return legal.contains(id);
+			}
+			Piece piece = move.commencedBy();
+			if (!availablePlayer.contains(piece) || isCaught() || detectivesLost()) {
+				return false;
+			}
+			Optional<Player> player = piece.isMrX()
+					? Optional.of(mrX)
+					: detectives.stream().filter(e -> e.piece() == piece).findFirst();
+			if (player.isEmpty()) {
+				return false;
+			}
+			MoveTable.IdSet.Builder ids = new MoveTable.IdSet.Builder();
+			if (move.accept(doubleCheck)) {
+				if (!player.get().isMrX()) {
+					return false;
+				}
+				doubleMoves(setup, detectives, player.get(), ids);
+			} else {
+				singleMoves(detectives, player.get(), ids);
+			}
+			return ids.build().contains(id);
 		}
 
 		private void updateLocationAndTravelLog(Move move) {
@@ -312,14 +426,13 @@ public final class  MyGameStateFactory implements Factory<GameState> {
 
 		private void updateAvailablePlayers(Move move){
 			HashSet<Piece> tempDetectives = new HashSet<>();
+			//detectives that cannot move are skipped, even with tickets left
 			if (move.commencedBy().isMrX()) {
-				detectives.stream().map(Player::piece).forEach(tempDetectives::add);
+				detectives.stream().filter(this::canMove).map(Player::piece).forEach(tempDetectives::add);
 			} else {
 				availablePlayer.stream().filter(e -> !Objects.equals(move.commencedBy(), e))
 						.forEachOrdered(e -> detectives.stream()
-								.filter(det -> Objects.equals(det.piece(), e)
-										&& Stream.of(ScotlandYard.Ticket.TAXI, ScotlandYard.Ticket.BUS, ScotlandYard.Ticket.UNDERGROUND)
-										.anyMatch(ticket -> det.hasAtLeast(ticket, 1)))
+								.filter(det -> Objects.equals(det.piece(), e) && canMove(det))
 								.map(det -> e)
 								.forEachOrdered(tempDetectives::add));
 			}
@@ -332,64 +445,87 @@ public final class  MyGameStateFactory implements Factory<GameState> {
 			}
 		}
 
-		private ImmutableSet<Move.SingleMove> singleMoves(GameSetup setup, List<Player> detectives, Player player) {
-			int start = player.location();
-			List<Move.SingleMove> singleMoves = new ArrayList<>();
-			for (int destination : setup.graph.adjacentNodes(start)) {
-				if (detectives.stream().anyMatch(e -> destination == e.location())) {
+		private boolean canMove(Player detective) {
+			MoveTable.IdSet.Builder ids = new MoveTable.IdSet.Builder();
+			singleMoves(detectives, detective, ids);
+			return !ids.build().isEmpty();
+		}
+
+		private void singleMoves(List<Player> detectives, Player player, MoveTable.IdSet.Builder ids) {
+			TransportTable table = moveTable.transports();
+			int piece = MoveTable.pieceIndex(player.piece());
+			int from = indexOf(table, player.location());
+			for (int edge = table.start(from); edge < table.end(from); edge++) {
+				int destination = table.node(table.target(edge));
+				if (isOccupied(detectives, destination)) {
 					continue;
 				}
-				for (ScotlandYard.Transport transport : setup.graph.edgeValueOrDefault(start, destination, ImmutableSet.of())) {
-					if (player.has(transport.requiredTicket())) {
-						singleMoves.add(new Move.SingleMove(player.piece(), start, transport.requiredTicket(), destination));
-					}
-					if (player.has(ScotlandYard.Ticket.SECRET)) {
-						singleMoves.add(new Move.SingleMove(player.piece(), start, ScotlandYard.Ticket.SECRET, destination));
+				int tickets = table.tickets(edge);
+				for (int bits = tickets; bits != 0; bits &= bits - 1) {
+					ScotlandYard.Ticket ticket = TICKETS[Integer.numberOfTrailingZeros(bits)];
+					if (player.has(ticket)) {
+						ids.add(moveTable.single(piece, edge, ticket));
 					}
 				}
+				if (tickets != 0 && player.has(ScotlandYard.Ticket.SECRET)) {
+					ids.add(moveTable.single(piece, edge, ScotlandYard.Ticket.SECRET));
+				}
 			}
-			return ImmutableSet.copyOf(singleMoves);
 		}
 
-		private ImmutableSet<Move.DoubleMove> doubleMoves(GameSetup setup, List<Player> detectives, Player mrX)
+		private void doubleMoves(GameSetup setup, List<Player> detectives, Player mrX, MoveTable.IdSet.Builder ids)
 
 		{
-			int start = mrX.location();
-			List<Move.DoubleMove> doubleMoves = new ArrayList<>();
-			if (!mrX.has(ScotlandYard.Ticket.DOUBLE)) {
-				//no double ticket, return empty
-				return ImmutableSet.copyOf(doubleMoves);
-			}
-			for (int firstNode : setup.graph.adjacentNodes(start)) {
-				if (detectives.stream().anyMatch(e -> firstNode == e.location())) {
+			if (!mrX.has(ScotlandYard.Ticket.DOUBLE) || setup.moves.size() < 2) {
+				//no double ticket, nothing to add
+				return;
+			}
+			TransportTable table = moveTable.transports();
+			int from = indexOf(table, mrX.location());
+			for (int edge1 = table.start(from); edge1 < table.end(from); edge1++) {
+				int middle = table.target(edge1);
+				if (isOccupied(detectives, table.node(middle))) {
 					continue;
 				}
-				for (ScotlandYard.Transport transport1 : setup.graph.edgeValueOrDefault(start, firstNode, ImmutableSet.of())) {
-					ScotlandYard.Ticket t1 = transport1.requiredTicket();
-					for (int secondNode : setup.graph.adjacentNodes(firstNode)) {
-						if (detectives.stream().anyMatch(e -> secondNode == e.location()) || setup.moves.size() < 2) {
+				for (int bits1 = table.tickets(edge1); bits1 != 0; bits1 &= bits1 - 1) {
+					ScotlandYard.Ticket t1 = TICKETS[Integer.numberOfTrailingZeros(bits1)];
+					for (int edge2 = table.start(middle); edge2 < table.end(middle); edge2++) {
+						if (isOccupied(detectives, table.node(table.target(edge2)))) {
 							continue;
 						}
-						for (ScotlandYard.Transport transport2 : setup.graph.edgeValueOrDefault(firstNode, secondNode, ImmutableSet.of())) {
-							ScotlandYard.Ticket t2 = transport2.requiredTicket();
-							if (mrX.hasAtLeast(t1, 1) && mrX.hasAtLeast(t2, 1) && !Objects.equals(t1, t2)) {
-								doubleMoves.add(new Move.DoubleMove(mrX.piece(), start, t1, firstNode, t2, secondNode));
+						for (int bits2 = table.tickets(edge2); bits2 != 0; bits2 &= bits2 - 1) {
+							ScotlandYard.Ticket t2 = TICKETS[Integer.numberOfTrailingZeros(bits2)];
+							if (canPay(mrX, t1, t2)) {
+								ids.add(moveTable.x2(edge1, edge2, t1, t2));
 							}
-							if (mrX.hasAtLeast(t1, 2) && Objects.equals(t1, t2)) {
-								doubleMoves.add(new Move.DoubleMove(mrX.piece(), start, t1, firstNode, t2, secondNode));
+							if (canPay(mrX, t1, ScotlandYard.Ticket.SECRET)) {
+								ids.add(moveTable.x2(edge1, edge2, t1, ScotlandYard.Ticket.SECRET));
 							}
-							if(mrX.has(ScotlandYard.Ticket.SECRET)){
-								doubleMoves.add(new Move.DoubleMove(mrX.piece(), start, t1, firstNode, ScotlandYard.Ticket.SECRET, secondNode));
-								doubleMoves.add(new Move.DoubleMove(mrX.piece(), start, ScotlandYard.Ticket.SECRET, firstNode, t2, secondNode));
+							if (canPay(mrX, ScotlandYard.Ticket.SECRET, t2)) {
+								ids.add(moveTable.x2(edge1, edge2, ScotlandYard.Ticket.SECRET, t2));
 							}
-							if (mrX.hasAtLeast(ScotlandYard.Ticket.SECRET, 2)) {
-								doubleMoves.add(new Move.DoubleMove(mrX.piece(), start, ScotlandYard.Ticket.SECRET, firstNode, ScotlandYard.Ticket.SECRET, secondNode));
+							if (canPay(mrX, ScotlandYard.Ticket.SECRET, ScotlandYard.Ticket.SECRET)) {
+								ids.add(moveTable.x2(edge1, edge2, ScotlandYard.Ticket.SECRET, ScotlandYard.Ticket.SECRET));
 							}
 						}
 					}
 				}
 			}
-			return ImmutableSet.copyOf(doubleMoves);
+		}
+
+		//whether mrX holds the tickets for both journeys, two of the same ticket if they are equal
+		private boolean canPay(Player mrX, ScotlandYard.Ticket first, ScotlandYard.Ticket second) {
+			return first == second ? mrX.hasAtLeast(first, 2) : mrX.has(first) && mrX.has(second);
+		}
+
+		//whether any detective stands on the node
+		private boolean isOccupied(List<Player> detectives, int node) {
+			for (Player detective : detectives) {
+				if (detective.location() == node) {
+					return true;
+				}
+			}
+			return false;
 		}
 	}
 
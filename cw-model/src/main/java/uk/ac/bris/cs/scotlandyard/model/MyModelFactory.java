@@ -5,9 +5,11 @@ import com.google.common.collect.ImmutableList;
 import javax.annotation.Nonnull;
 
 import com.google.common.collect.ImmutableSet;
+import uk.ac.bris.cs.scotlandyard.metrics.Metrics;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
 
 import java.util.HashSet;
+import java.util.Objects;
 
 /**
  * cw-model
@@ -15,10 +17,21 @@ import java.util.HashSet;
  */
 public final class MyModelFactory implements Factory<Model> {
 
+	//the factory creating the underlying game state
+	private final Factory<Board.GameState> gameStateFactory;
+
+	public MyModelFactory() {
+		this(new MyGameStateFactory());
+	}
+
+	public MyModelFactory(@Nonnull Factory<Board.GameState> gameStateFactory) {
+		this.gameStateFactory = Objects.requireNonNull(gameStateFactory);
+	}
+
 	@Nonnull @Override public Model build(GameSetup setup,
 										  Player mrX,
 										  ImmutableList<Player> detectives) {
-		Board.GameState gameState = new MyGameStateFactory().build(setup, mrX, detectives);
+		Board.GameState gameState = gameStateFactory.build(setup, mrX, detectives);
 		ImmutableSet<Model.Observer> observers = ImmutableSet.of();
 		return new MyModel(gameState, observers);
 	}
@@ -79,9 +92,11 @@ public final class MyModelFactory implements Factory<Model> {
 		public void chooseMove(@Nonnull Move move) {
 			gameState = gameState.advance(move);
 			var event = gameState.getWinner().isEmpty() ? Observer.Event.MOVE_MADE : Observer.Event.GAME_OVER;
+			long start = System.nanoTime();
 			for (Observer observer : observers) {
 				observer.onModelChanged(gameState, event);
 			}
+			Metrics.OBSERVER_FAN_OUT.recordSince(start);
 		}
 	}
 }
\ No newline at end of file
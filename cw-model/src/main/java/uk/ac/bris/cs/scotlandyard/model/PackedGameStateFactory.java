@@ -0,0 +1,242 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static uk.ac.bris.cs.scotlandyard.model.LogEntry.hidden;
+import static uk.ac.bris.cs.scotlandyard.model.LogEntry.reveal;
+
+/**
+ * A {@link GameState} factory backed by a packed primitive state.
+ * <br>
+ * Behaves exactly like {@link MyGameStateFactory} but keeps locations in a {@code short[]} (as
+ * {@link TransportTable} node indices) and ticket counts in packed {@code long}s, so {@link GameState#advance(Move)} only allocates the
+ * next compact state (plus the travel log entry when MrX moves). Available moves and the winner
+ * are computed on first access and moves are the canonical instances of the graph's
+ * {@link MoveTable}. States are {@link PrimitiveBoard.GameState}s, so searches can also list and
+ * make moves encoded with {@link MoveCodec} without any {@link Move} being allocated.
+ */
+public final class PackedGameStateFactory implements Factory<GameState> {
+
+	// index of MrX in the packed arrays, detectives follow in the order they were supplied
+	static final int MRX = 0;
+
+	// ticket counts are stored in 11 bit lanes, one lane per Ticket ordinal; the bits above the
+	// lanes record whether the ticket was present in the player's map (Player.give only
+	// increments tickets that are present)
+	static final int LANE_BITS = 11;
+	static final long LANE_MASK = (1L << LANE_BITS) - 1;
+	static final int MAX_TICKETS = (int) LANE_MASK;
+	static final int PRESENT_SHIFT = LANE_BITS * Ticket.values().length;
+
+	@Nonnull @Override public GameState build(
+			GameSetup setup,
+			Player mrX,
+			ImmutableList<Player> detectives) {
+		var rules = new PackedRules(setup, mrX, detectives);
+		short[] locations = rules.initialLocations();
+		long[] tickets = rules.initialTickets();
+		return new PackedGameState(rules, locations, tickets, 1 << MRX, ImmutableList.of(),
+				rules.hash(locations, tickets, 1 << MRX, 0));
+	}
+
+	/**
+	 * @param player the player
+	 * @return the player's tickets packed into lanes
+	 */
+	static long pack(Player player) {
+		long packed = 0;
+		for (var entry : player.tickets().entrySet()) {
+			int count = entry.getValue();
+			if (count < 0 || count > MAX_TICKETS)
+				throw new IllegalArgumentException("Ticket count out of range: " + player);
+			int ordinal = entry.getKey().ordinal();
+			packed |= (long) count << (ordinal * LANE_BITS);
+			packed |= 1L << (PRESENT_SHIFT + ordinal);
+		}
+		return packed;
+	}
+
+	/**
+	 * @param packed the packed tickets
+	 * @param ticket the ticket
+	 * @return the count of the given ticket
+	 */
+	static int count(long packed, Ticket ticket) {
+		return (int) ((packed >>> (ticket.ordinal() * LANE_BITS)) & LANE_MASK);
+	}
+
+	/**
+	 * See {@link Player#use(Ticket)}
+	 *
+	 * @param packed the packed tickets
+	 * @param ticket the ticket
+	 * @return the packed tickets with one less of the given ticket
+	 */
+	static long use(long packed, Ticket ticket) {
+		if (count(packed, ticket) == 0)
+			throw new IllegalArgumentException("No " + ticket + " remaining");
+		return packed - (1L << (ticket.ordinal() * LANE_BITS));
+	}
+
+	/**
+	 * See {@link Player#give(Ticket)}
+	 *
+	 * @param packed the packed tickets
+	 * @param ticket the ticket
+	 * @return the packed tickets with one more of the given ticket, if present
+	 */
+	static long give(long packed, Ticket ticket) {
+		if ((packed & (1L << (PRESENT_SHIFT + ticket.ordinal()))) == 0) return packed;
+		if (count(packed, ticket) == MAX_TICKETS)
+			throw new IllegalStateException("Too many " + ticket + " tickets");
+		return packed + (1L << (ticket.ordinal() * LANE_BITS));
+	}
+
+	/**
+	 * @param packed the packed tickets
+	 * @return whether any of taxi, bus or underground tickets remain
+	 */
+	static boolean canTravel(long packed) {
+		return count(packed, Ticket.TAXI) != 0
+				|| count(packed, Ticket.BUS) != 0
+				|| count(packed, Ticket.UNDERGROUND) != 0;
+	}
+
+	private static final class PackedGameState implements PrimitiveBoard.GameState {
+
+		private final PackedRules rules;
+		private final short[] locations;
+		private final long[] tickets;
+		// bit i is set if player i has yet to move this round
+		private final int remaining;
+		private final ImmutableList<LogEntry> log;
+		private final long hash;
+
+		// computed on first access
+		private ImmutableSet<Piece> winner;
+		private ImmutableSet<Move> moves;
+		private MoveList available;
+
+		PackedGameState(PackedRules rules, short[] locations, long[] tickets,
+		                int remaining, ImmutableList<LogEntry> log, long hash) {
+			this.rules = rules;
+			this.locations = locations;
+			this.tickets = tickets;
+			this.remaining = remaining;
+			this.log = log;
+			this.hash = hash;
+		}
+
+		@Nonnull @Override public GameSetup getSetup() { return rules.setup; }
+
+		@Nonnull @Override public ImmutableSet<Piece> getPlayers() { return rules.players; }
+
+		@Nonnull @Override
+		public Optional<Integer> getDetectiveLocation(Piece.Detective detective) {
+			int index = rules.indexOf(detective);
+			return index <= MRX ? Optional.empty() : Optional.of(rules.table.node(locations[index]));
+		}
+
+		@Nonnull @Override public Optional<TicketBoard> getPlayerTickets(Piece piece) {
+			int index = rules.indexOf(piece);
+			if (index < 0) return Optional.empty();
+			long packed = tickets[index];
+			return Optional.of(ticket -> count(packed, ticket));
+		}
+
+		@Nonnull @Override public ImmutableList<LogEntry> getMrXTravelLog() { return log; }
+
+		@Nonnull @Override public ImmutableSet<Piece> getWinner() {
+			if (winner == null) winner = rules.winner(locations, tickets, remaining);
+			return winner;
+		}
+
+		@Nonnull @Override public ImmutableSet<Move> getAvailableMoves() {
+			if (moves == null) {
+				if (available == null) {
+					var generated = new MoveList();
+					generateMoves(generated);
+					available = generated;
+				}
+				var builder = ImmutableSet.<Move>builderWithExpectedSize(available.size());
+				for (int i = 0; i < available.size(); i++)
+					builder.add(rules.moves.canonical(available.get(i)));
+				moves = builder.build();
+			}
+			return moves;
+		}
+
+		@Override public long hash() { return hash; }
+
+		@Override public void generateMoves(@Nonnull MoveList moves) {
+			if (!getWinner().isEmpty()) return;
+			if (available != null) moves.addAll(available);
+			else rules.generate(locations, tickets, remaining, moves);
+		}
+
+		@Nonnull @Override public PrimitiveBoard.GameState advance(Move move) {
+			long encoded;
+			try {
+				encoded = MoveCodec.encode(move);
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("illegal move: " + move, e);
+			}
+			return advance(encoded);
+		}
+
+		@Nonnull @Override public PrimitiveBoard.GameState advance(long move) {
+			if (!rules.isLegal(locations, tickets, remaining, move))
+				throw new IllegalArgumentException("illegal move: " + MoveCodec.toString(move));
+			int index = rules.indexOf(MoveCodec.pieceIndex(move));
+			short[] nextLocations = locations.clone();
+			long[] nextTickets = tickets.clone();
+			Ticket ticket1 = MoveCodec.ticket1(move);
+			if (!MoveCodec.isDouble(move)) {
+				nextTickets[index] = use(nextTickets[index], ticket1);
+				if (index != MRX) nextTickets[MRX] = give(nextTickets[MRX], ticket1);
+			} else {
+				long packed = use(nextTickets[MRX], ticket1);
+				packed = use(packed, MoveCodec.ticket2(move));
+				nextTickets[MRX] = use(packed, Ticket.DOUBLE);
+			}
+			nextLocations[index] = (short) rules.table.indexOf(MoveCodec.destination(move));
+
+			long nextHash = hash ^ rules.moveKey(index, locations[index], nextLocations[index])
+					^ rules.ticketsKey(index, tickets[index], nextTickets[index])
+					^ rules.turnKey(remaining, log.size());
+			if (index == MRX) {
+				var nextLog = appendLog(move);
+				int nextRemaining = rules.remainingAfterMrX(nextLocations, nextTickets, nextLog.size());
+				return new PackedGameState(rules, nextLocations, nextTickets, nextRemaining,
+						nextLog, nextHash ^ rules.turnKey(nextRemaining, nextLog.size()));
+			}
+			int nextRemaining = rules.remainingAfterDetective(nextLocations, nextTickets, remaining, index, log.size());
+			nextHash ^= rules.ticketsKey(MRX, tickets[MRX], nextTickets[MRX])
+					^ rules.turnKey(nextRemaining, log.size());
+			return new PackedGameState(rules, nextLocations, nextTickets, nextRemaining, log, nextHash);
+		}
+
+		private ImmutableList<LogEntry> appendLog(long move) {
+			int round = log.size();
+			var builder = ImmutableList.<LogEntry>builderWithExpectedSize(round + 2).addAll(log);
+			Ticket ticket1 = MoveCodec.ticket1(move);
+			int destination1 = MoveCodec.destination1(move);
+			builder.add(rules.reveals(round) ? reveal(ticket1, destination1) : hidden(ticket1));
+			if (MoveCodec.isDouble(move)) {
+				Ticket ticket2 = MoveCodec.ticket2(move);
+				int destination2 = MoveCodec.destination2(move);
+				builder.add(rules.reveals(round + 1) ? reveal(ticket2, destination2) : hidden(ticket2));
+			}
+			return builder.build();
+		}
+	}
+}
@@ -0,0 +1,372 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.List;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory.canTravel;
+import static uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory.count;
+
+/**
+ * The rules of {@link MyGameStateFactory} on packed positions: locations as {@link TransportTable}
+ * node indices in a {@code short[]}, tickets as {@link PackedGameStateFactory#pack(Player)}ed
+ * lanes in a {@code long[]} (both indexed by player, MrX first) and a bitmask of the players yet
+ * to move.
+ * <br>
+ * One instance holds everything that stays the same for a whole game and is shared by all of its
+ * positions, see {@link PackedGameStateFactory} and {@link SearchBoard}.
+ */
+final class PackedRules {
+
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	final GameSetup setup;
+	final TransportTable table;
+	final MoveTable moves;
+	final Piece[] pieces;
+	// index of each player's piece in the move table
+	final int[] pieceIndices;
+	final ImmutableSet<Piece> players;
+	final ImmutableSet<Piece> detectives;
+	final ImmutableSet<Piece> mrX;
+
+	private final short[] locations;
+	private final long[] tickets;
+	// Zobrist key of each player on each node index, player-major
+	private final long[] locationKeys;
+
+	/**
+	 * Validates the players like {@link MyGameStateFactory} does.
+	 */
+	PackedRules(GameSetup setup, Player mrX, List<Player> detectives) {
+		if (mrX == null || detectives.isEmpty()) throw new NullPointerException();
+		if (!mrX.isMrX()) throw new IllegalArgumentException("MrX is not MrX: " + mrX);
+		if (setup.moves.isEmpty()) throw new IllegalArgumentException("Empty moves");
+		if (setup.graph.nodes().isEmpty()) throw new IllegalArgumentException("Empty graph");
+		for (Player a : detectives) {
+			if (!a.isDetective())
+				throw new IllegalArgumentException("Not a detective: " + a);
+			if (a.has(Ticket.SECRET) || a.has(Ticket.DOUBLE))
+				throw new IllegalArgumentException("Detective with illegal tickets: " + a);
+			for (Player b : detectives) {
+				if (a != b && (a.piece() == b.piece() || a.location() == b.location()))
+					throw new IllegalArgumentException("Duplicate detective: " + a + ", " + b);
+			}
+		}
+
+		this.setup = setup;
+		this.table = TransportTable.of(setup);
+		this.moves = MoveTable.of(setup);
+		int count = detectives.size() + 1;
+		pieces = new Piece[count];
+		pieceIndices = new int[count];
+		locations = new short[count];
+		tickets = new long[count];
+		for (int i = 0; i < count; i++) {
+			Player player = i == MRX ? mrX : detectives.get(i - 1);
+			pieces[i] = player.piece();
+			pieceIndices[i] = MoveTable.pieceIndex(player.piece());
+			locations[i] = toLocation(player.location());
+			tickets[i] = PackedGameStateFactory.pack(player);
+		}
+		this.players = ImmutableSet.copyOf(pieces);
+		this.detectives = ImmutableSet.copyOf(ImmutableList.copyOf(pieces).subList(1, count));
+		this.mrX = ImmutableSet.of(mrX.piece());
+		int nodes = table.nodeCount();
+		locationKeys = new long[count * nodes];
+		for (int i = 0; i < count; i++) {
+			for (int node = 0; node < nodes; node++)
+				locationKeys[i * nodes + node] = Zobrist.location(pieceIndices[i], table.node(node));
+		}
+	}
+
+	private short toLocation(int location) {
+		int index = MyGameStateFactory.indexOf(table, location);
+		if (index > Short.MAX_VALUE)
+			throw new IllegalArgumentException("Graph too large: " + table.nodeCount());
+		return (short) index;
+	}
+
+	/**
+	 * @return a copy of the players' starting locations
+	 */
+	short[] initialLocations() { return locations.clone(); }
+
+	/**
+	 * @return a copy of the players' starting tickets
+	 */
+	long[] initialTickets() { return tickets.clone(); }
+
+	int indexOf(Piece piece) {
+		for (int i = 0; i < pieces.length; i++)
+			if (pieces[i] == piece) return i;
+		return -1;
+	}
+
+	// the player index of the piece with the given move table piece index
+	int indexOf(int pieceIndex) {
+		for (int i = 0; i < pieceIndices.length; i++)
+			if (pieceIndices[i] == pieceIndex) return i;
+		return -1;
+	}
+
+	/**
+	 * @param round the number of entries in MrX's travel log
+	 * @return whether MrX's move in the given round is revealed
+	 */
+	boolean reveals(int round) {
+		return round < setup.moves.size() && setup.moves.get(round);
+	}
+
+	/**
+	 * @return the {@link Zobrist} hash of the position, computed from scratch
+	 */
+	long hash(short[] locations, long[] tickets, int remaining, int round) {
+		long hash = turnKey(remaining, round);
+		for (int i = 0; i < locations.length; i++) {
+			hash ^= locationKeys[i * table.nodeCount() + locations[i]];
+			for (Ticket ticket : TICKETS)
+				hash ^= Zobrist.tickets(pieceIndices[i], ticket, count(tickets[i], ticket));
+		}
+		return hash;
+	}
+
+	/**
+	 * @return the change of the hash when the player moves between the node indices
+	 */
+	long moveKey(int index, int from, int to) {
+		int base = index * table.nodeCount();
+		return locationKeys[base + from] ^ locationKeys[base + to];
+	}
+
+	/**
+	 * @return the change of the hash when the player's tickets change
+	 */
+	long ticketsKey(int index, long before, long after) {
+		long key = 0;
+		for (Ticket ticket : TICKETS) {
+			int old = count(before, ticket), count = count(after, ticket);
+			if (old != count) {
+				key ^= Zobrist.tickets(pieceIndices[index], ticket, old)
+						^ Zobrist.tickets(pieceIndices[index], ticket, count);
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * @return the key of the players yet to move and the round
+	 */
+	long turnKey(int remaining, int round) {
+		int pieces = 0;
+		for (int bits = remaining; bits != 0; bits &= bits - 1)
+			pieces |= 1 << pieceIndices[Integer.numberOfTrailingZeros(bits)];
+		return Zobrist.toMove(pieces) ^ Zobrist.round(round);
+	}
+
+	static boolean caught(short[] locations) {
+		for (int i = 1; i < locations.length; i++)
+			if (locations[i] == locations[MRX]) return true;
+		return false;
+	}
+
+	static boolean detectivesStuck(long[] tickets) {
+		for (int i = 1; i < tickets.length; i++)
+			if (canTravel(tickets[i])) return false;
+		return true;
+	}
+
+	static boolean occupied(short[] locations, int node) {
+		for (int i = 1; i < locations.length; i++)
+			if (locations[i] == node) return true;
+		return false;
+	}
+
+	ImmutableSet<Piece> winner(short[] locations, long[] tickets, int remaining) {
+		if (caught(locations)) return detectives;
+		boolean mrXWins = detectivesStuck(tickets) || remaining == 0;
+		// MrX loses if he cannot move; every double move starts with a journey he could also
+		// make on its own, so looking for a single move is enough
+		boolean detectivesWin = (remaining & (1 << MRX)) != 0 && !canMove(locations, tickets, MRX);
+		if (mrXWins && detectivesWin) return players;
+		if (mrXWins) return mrX;
+		if (detectivesWin) return detectives;
+		return ImmutableSet.of();
+	}
+
+	/**
+	 * @param locations the locations after MrX moved
+	 * @param tickets the tickets after MrX moved
+	 * @param round the number of entries in MrX's travel log after his move
+	 * @return the players yet to move after MrX moved: the detectives that can move
+	 */
+	int remainingAfterMrX(short[] locations, long[] tickets, int round) {
+		int next = 0;
+		for (int i = 1; i < tickets.length; i++)
+			if (canMove(locations, tickets, i)) next |= 1 << i;
+		if (next == 0 && round < setup.moves.size()) next = 1 << MRX;
+		return next;
+	}
+
+	/**
+	 * @param locations the locations after the detective moved
+	 * @param tickets the tickets after the detective moved
+	 * @param remaining the players yet to move before the detective moved
+	 * @param index the detective that moved
+	 * @param round the number of entries in MrX's travel log
+	 * @return the players yet to move after the detective moved, without those that cannot move
+	 */
+	int remainingAfterDetective(short[] locations, long[] tickets, int remaining, int index, int round) {
+		int next = remaining & ~(1 << index);
+		for (int i = 1; i < tickets.length; i++)
+			if ((next & 1 << i) != 0 && !canMove(locations, tickets, i)) next &= ~(1 << i);
+		if (next == 0 && round < setup.moves.size()) next = 1 << MRX;
+		return next;
+	}
+
+	// the tickets the player can use on the edge as a Ticket ordinal bitmask
+	private int usable(long packed, int edge) {
+		int mask = table.tickets(edge);
+		int usable = 0;
+		for (int bits = mask; bits != 0; bits &= bits - 1) {
+			int ticket = Integer.numberOfTrailingZeros(bits);
+			if (count(packed, TICKETS[ticket]) != 0) usable |= 1 << ticket;
+		}
+		if (mask != 0 && count(packed, Ticket.SECRET) != 0) usable |= TransportTable.bit(Ticket.SECRET);
+		return usable;
+	}
+
+	private boolean canMove(short[] locations, long[] tickets, int index) {
+		int from = locations[index];
+		for (int edge = table.start(from), end = table.end(from); edge < end; edge++) {
+			if (!occupied(locations, table.target(edge)) && usable(tickets[index], edge) != 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Appends the moves of the players yet to move, ignoring whether the game is over.
+	 */
+	void generate(short[] locations, long[] tickets, int remaining, MoveList moves) {
+		if ((remaining & (1 << MRX)) != 0) {
+			singleMoves(locations, tickets, MRX, moves);
+			doubleMoves(locations, tickets, moves);
+		} else {
+			for (int i = 1; i < locations.length; i++)
+				if ((remaining & (1 << i)) != 0) singleMoves(locations, tickets, i, moves);
+		}
+	}
+
+	private void singleMoves(short[] locations, long[] tickets, int index, MoveList moves) {
+		int piece = pieceIndices[index];
+		int from = locations[index];
+		int source = table.node(from);
+		long packed = tickets[index];
+		for (int edge = table.start(from), end = table.end(from); edge < end; edge++) {
+			int to = table.target(edge);
+			if (occupied(locations, to)) continue;
+			int destination = table.node(to);
+			for (int bits = usable(packed, edge); bits != 0; bits &= bits - 1) {
+				Ticket ticket = TICKETS[Integer.numberOfTrailingZeros(bits)];
+				moves.add(MoveCodec.single(piece, source, ticket, destination));
+			}
+		}
+	}
+
+	private void doubleMoves(short[] locations, long[] tickets, MoveList moves) {
+		long packed = tickets[MRX];
+		if (count(packed, Ticket.DOUBLE) == 0 || setup.moves.size() < 2) return;
+		int piece = pieceIndices[MRX];
+		int from = locations[MRX];
+		int source = table.node(from);
+		int secret = Ticket.SECRET.ordinal();
+		for (int edge1 = table.start(from), end1 = table.end(from); edge1 < end1; edge1++) {
+			int middle = table.target(edge1);
+			if (occupied(locations, middle)) continue;
+			int first = table.node(middle);
+			for (int edge2 = table.start(middle), end2 = table.end(middle); edge2 < end2; edge2++) {
+				int to = table.target(edge2);
+				if (occupied(locations, to)) continue;
+				// bit t1 * TICKETS.length + t2 is set for every ticket pair, so pairs reachable
+				// in more than one way are only listed once
+				int pairs = 0;
+				for (int bits1 = table.tickets(edge1); bits1 != 0; bits1 &= bits1 - 1) {
+					int t1 = Integer.numberOfTrailingZeros(bits1);
+					for (int bits2 = table.tickets(edge2); bits2 != 0; bits2 &= bits2 - 1) {
+						int t2 = Integer.numberOfTrailingZeros(bits2);
+						pairs |= payable(packed, t1, t2);
+						pairs |= payable(packed, t1, secret);
+						pairs |= payable(packed, secret, t2);
+						pairs |= payable(packed, secret, secret);
+					}
+				}
+				int second = table.node(to);
+				for (; pairs != 0; pairs &= pairs - 1) {
+					int pair = Integer.numberOfTrailingZeros(pairs);
+					moves.add(MoveCodec.x2(piece, source, TICKETS[pair / TICKETS.length], first,
+							TICKETS[pair % TICKETS.length], second));
+				}
+			}
+		}
+	}
+
+	// the bit of the ticket pair if MrX holds both tickets (two of them if they are the same), else 0
+	private static int payable(long packed, int t1, int t2) {
+		boolean paid = t1 != t2
+				? count(packed, TICKETS[t1]) >= 1 && count(packed, TICKETS[t2]) >= 1
+				: count(packed, TICKETS[t1]) >= 2;
+		return paid ? 1 << (t1 * TICKETS.length + t2) : 0;
+	}
+
+	/**
+	 * Checks the move against the same rules {@link #generate} uses, without generating anything.
+	 */
+	boolean isLegal(short[] locations, long[] tickets, int remaining, long move) {
+		if (move < 0) return false;
+		int index = indexOf(MoveCodec.pieceIndex(move));
+		if (index < 0 || (remaining & (1 << index)) == 0) return false;
+		if (MoveCodec.source(move) != table.node(locations[index])) return false;
+		if (caught(locations) || detectivesStuck(tickets)) return false;
+		if (!MoveCodec.isDouble(move)) {
+			return isLegalSingle(locations, tickets, index,
+					MoveCodec.ticket1(move), MoveCodec.destination1(move));
+		}
+		return index == MRX && isLegalDouble(locations, tickets[MRX],
+				MoveCodec.ticket1(move), MoveCodec.destination1(move),
+				MoveCodec.ticket2(move), MoveCodec.destination2(move));
+	}
+
+	// the edge from the node index to the node number, -1 if there is none or it is occupied
+	private int freeEdge(short[] locations, int from, int destination) {
+		int to = table.indexOf(destination);
+		if (to < 0 || occupied(locations, to)) return -1;
+		return table.edge(from, to);
+	}
+
+	private boolean isLegalSingle(short[] locations, long[] tickets, int index,
+	                              Ticket ticket, int destination) {
+		int edge = freeEdge(locations, locations[index], destination);
+		return edge >= 0 && count(tickets[index], ticket) != 0 && accepts(table.tickets(edge), ticket);
+	}
+
+	// whether a journey along an edge with the given ticket mask can be paid with the ticket
+	private static boolean accepts(int mask, Ticket ticket) {
+		return ticket == Ticket.SECRET ? mask != 0 : (mask & TransportTable.bit(ticket)) != 0;
+	}
+
+	private boolean isLegalDouble(short[] locations, long packed,
+	                              Ticket ticket1, int destination1, Ticket ticket2, int destination2) {
+		if (count(packed, Ticket.DOUBLE) == 0 || setup.moves.size() < 2) return false;
+		int edge1 = freeEdge(locations, locations[MRX], destination1);
+		if (edge1 < 0) return false;
+		int edge2 = freeEdge(locations, table.target(edge1), destination2);
+		if (edge2 < 0) return false;
+		return accepts(table.tickets(edge1), ticket1) && accepts(table.tickets(edge2), ticket2)
+				&& payable(packed, ticket1.ordinal(), ticket2.ordinal()) != 0;
+	}
+}
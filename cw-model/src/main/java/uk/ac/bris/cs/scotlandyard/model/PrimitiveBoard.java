@@ -0,0 +1,42 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A {@link Board} that can list its moves encoded with {@link MoveCodec}, so searches do not
+ * need to allocate a {@link Move} per move or a collection per position.
+ */
+public interface PrimitiveBoard extends Board {
+
+	/**
+	 * Appends the encoded {@link #getAvailableMoves()} to the given list, each move exactly once
+	 * and nothing if the game is over.
+	 *
+	 * @param moves the list to append to
+	 */
+	void generateMoves(@Nonnull MoveList moves);
+
+	/**
+	 * @return the {@link Zobrist} hash of the position: the locations and tickets of all
+	 * players, the players yet to move and the length of MrX's travel log
+	 */
+	long hash();
+
+	/**
+	 * A {@link Board.GameState} that can also be advanced with encoded moves.
+	 */
+	interface GameState extends PrimitiveBoard, Board.GameState {
+
+		/**
+		 * Like {@link #advance(Move)}, with the move encoded with {@link MoveCodec}.
+		 *
+		 * @param move the encoded move to make
+		 * @return the game state of which the given move has been made
+		 * @throws IllegalArgumentException if the move was not a move from
+		 * {@link #generateMoves(MoveList)}
+		 */
+		@Nonnull PrimitiveBoard.GameState advance(long move);
+
+		@Nonnull @Override PrimitiveBoard.GameState advance(Move move);
+	}
+}
@@ -176,10 +176,14 @@ public final class ScotlandYard {
 		return builder.build();
 	}
 
+	/**
+	 * @return the map, loaded from graph.bin, the precompiled graph.txt, and shared by every caller
+	 * @throws IOException if graph.bin cannot be read
+	 * @see GraphCodec
+	 */
 	@Nonnull public static ImmutableValueGraph<Integer, ImmutableSet<Transport>>
 	standardGraph() throws IOException {
-		return readGraph(Resources.toString(
-				Resources.getResource("graph.txt"), StandardCharsets.UTF_8));
+		return GraphCodec.load(Resources.getResource("graph.bin"));
 	}
 
 	@Nonnull public static ImmutableValueGraph<Integer, ImmutableSet<Transport>>
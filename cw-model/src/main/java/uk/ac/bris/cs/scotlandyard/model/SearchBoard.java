@@ -0,0 +1,313 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static uk.ac.bris.cs.scotlandyard.model.LogEntry.hidden;
+import static uk.ac.bris.cs.scotlandyard.model.LogEntry.reveal;
+import static uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory.count;
+import static uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory.give;
+import static uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory.use;
+
+/**
+ * A mutable board for searches.
+ * <br>
+ * Moves are applied in place with {@link #make(long)} and taken back with {@link #unmake()}, so
+ * walking a game tree does not copy any state. The board follows exactly the rules of
+ * {@link MyGameStateFactory}: after the same moves it lists the same moves and winners as the
+ * {@link Board.GameState} built from the same setup and players.
+ * <br>
+ * Boards are not thread safe; give every search thread its own {@link #copy()}.
+ */
+public final class SearchBoard implements PrimitiveBoard {
+
+	private final PackedRules rules;
+	private final short[] locations;
+	private final long[] tickets;
+	// bit i is set if player i has yet to move this round
+	private int remaining;
+	private LogEntry[] log;
+	private int round;
+	private long hash;
+
+	// one entry per made move
+	private int depth;
+	private int[] movers = new int[16];
+	private short[] sources = new short[16];
+	private long[] moverTickets = new long[16];
+	private long[] mrXTickets = new long[16];
+	private int[] remainings = new int[16];
+	private int[] rounds = new int[16];
+	private long[] hashes = new long[16];
+
+	// computed on first access, reset by make and unmake
+	private ImmutableSet<Piece> winner;
+
+	/**
+	 * Starts a new game, MrX moves first.
+	 *
+	 * @param setup the game setup
+	 * @param mrX MrX
+	 * @param detectives the detectives
+	 */
+	public SearchBoard(@Nonnull GameSetup setup,
+	                   @Nonnull Player mrX,
+	                   @Nonnull ImmutableList<Player> detectives) {
+		this(new PackedRules(setup, mrX, detectives), 1 << MRX, new LogEntry[setup.moves.size()], 0);
+	}
+
+	private SearchBoard(PackedRules rules, int remaining, LogEntry[] log, int round) {
+		this.rules = rules;
+		this.locations = rules.initialLocations();
+		this.tickets = rules.initialTickets();
+		this.remaining = remaining;
+		this.log = log;
+		this.round = round;
+		this.hash = rules.hash(locations, tickets, remaining, round);
+	}
+
+	/**
+	 * Copies a game in progress. MrX's location is not part of a {@link Board}, so it has to be
+	 * supplied; the players yet to move are the ones with {@link Board#getAvailableMoves()}.
+	 *
+	 * @param board the board to copy
+	 * @param mrXLocation MrX's current location
+	 * @return a search board at the given board's position
+	 */
+	@Nonnull public static SearchBoard of(@Nonnull Board board, int mrXLocation) {
+		var mrX = player(board, Piece.MrX.MRX, mrXLocation);
+		var detectives = new ArrayList<Player>();
+		for (Piece piece : ScotlandYard.ALL_PIECES) {
+			if (piece.isDetective() && board.getPlayers().contains(piece)) {
+				int location = board.getDetectiveLocation((Piece.Detective) piece).orElseThrow();
+				detectives.add(player(board, piece, location));
+			}
+		}
+		var rules = new PackedRules(board.getSetup(), mrX, detectives);
+		var log = board.getMrXTravelLog();
+		int remaining = 0;
+		for (Move move : board.getAvailableMoves())
+			remaining |= 1 << rules.indexOf(move.commencedBy());
+		if (remaining == 0 && board.getWinner().isEmpty())
+			throw new IllegalArgumentException("Board has neither moves nor a winner");
+		var entries = log.toArray(new LogEntry[Math.max(log.size(), board.getSetup().moves.size())]);
+		return new SearchBoard(rules, remaining, entries, log.size());
+	}
+
+	private static Player player(Board board, Piece piece, int location) {
+		var tickets = board.getPlayerTickets(piece).orElseThrow(
+				() -> new IllegalArgumentException("No tickets for " + piece));
+		var map = new EnumMap<Ticket, Integer>(Ticket.class);
+		for (Ticket ticket : Ticket.values()) map.put(ticket, tickets.getCount(ticket));
+		return new Player(piece, ImmutableMap.copyOf(map), location);
+	}
+
+	/**
+	 * @return an independent board at the same position, with nothing to unmake
+	 */
+	@Nonnull public SearchBoard copy() {
+		var copy = new SearchBoard(rules, remaining, log.clone(), round);
+		System.arraycopy(locations, 0, copy.locations, 0, locations.length);
+		System.arraycopy(tickets, 0, copy.tickets, 0, tickets.length);
+		copy.hash = hash;
+		return copy;
+	}
+
+	/**
+	 * Makes an encoded move in place.
+	 *
+	 * @param move the encoded move, one of {@link #generateMoves(MoveList)}
+	 * @throws IllegalArgumentException if the move is not legal
+	 */
+	public void make(long move) {
+		if (!rules.isLegal(locations, tickets, remaining, move))
+			throw new IllegalArgumentException("illegal move: " + MoveCodec.toString(move));
+		int index = rules.indexOf(MoveCodec.pieceIndex(move));
+		push(index);
+		long mover = tickets[index], mrX = tickets[MRX];
+		int from = locations[index];
+		hash ^= rules.turnKey(remaining, round);
+		Ticket ticket1 = MoveCodec.ticket1(move);
+		if (!MoveCodec.isDouble(move)) {
+			tickets[index] = use(tickets[index], ticket1);
+			if (index != MRX) tickets[MRX] = give(tickets[MRX], ticket1);
+		} else {
+			long packed = use(tickets[MRX], ticket1);
+			packed = use(packed, MoveCodec.ticket2(move));
+			tickets[MRX] = use(packed, Ticket.DOUBLE);
+		}
+		locations[index] = (short) rules.table.indexOf(MoveCodec.destination(move));
+
+		if (index == MRX) {
+			appendLog(ticket1, MoveCodec.destination1(move));
+			if (MoveCodec.isDouble(move))
+				appendLog(MoveCodec.ticket2(move), MoveCodec.destination2(move));
+			remaining = rules.remainingAfterMrX(locations, tickets, round);
+		} else {
+			remaining = rules.remainingAfterDetective(locations, tickets, remaining, index, round);
+			hash ^= rules.ticketsKey(MRX, mrX, tickets[MRX]);
+		}
+		hash ^= rules.moveKey(index, from, locations[index])
+				^ rules.ticketsKey(index, mover, tickets[index])
+				^ rules.turnKey(remaining, round);
+		winner = null;
+	}
+
+	/**
+	 * @param move the move to make, see {@link #make(long)}
+	 */
+	public void make(@Nonnull Move move) {
+		long encoded;
+		try {
+			encoded = MoveCodec.encode(move);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("illegal move: " + move, e);
+		}
+		make(encoded);
+	}
+
+	/**
+	 * Takes back the last move made.
+	 *
+	 * @throws IllegalStateException if no moves were made
+	 */
+	public void unmake() {
+		if (depth == 0) throw new IllegalStateException("No move to unmake");
+		depth--;
+		int index = movers[depth];
+		locations[index] = sources[depth];
+		tickets[index] = moverTickets[depth];
+		tickets[MRX] = mrXTickets[depth];
+		remaining = remainings[depth];
+		// log entries past the round are overwritten by the next MrX move
+		round = rounds[depth];
+		hash = hashes[depth];
+		winner = null;
+	}
+
+	private void push(int index) {
+		if (depth == movers.length) {
+			int size = depth * 2;
+			movers = Arrays.copyOf(movers, size);
+			sources = Arrays.copyOf(sources, size);
+			moverTickets = Arrays.copyOf(moverTickets, size);
+			mrXTickets = Arrays.copyOf(mrXTickets, size);
+			remainings = Arrays.copyOf(remainings, size);
+			rounds = Arrays.copyOf(rounds, size);
+			hashes = Arrays.copyOf(hashes, size);
+		}
+		movers[depth] = index;
+		sources[depth] = locations[index];
+		moverTickets[depth] = tickets[index];
+		mrXTickets[depth] = tickets[MRX];
+		remainings[depth] = remaining;
+		rounds[depth] = round;
+		hashes[depth] = hash;
+		depth++;
+	}
+
+	private void appendLog(Ticket ticket, int destination) {
+		if (round == log.length) log = Arrays.copyOf(log, round + 2);
+		log[round] = rules.reveals(round) ? reveal(ticket, destination) : hidden(ticket);
+		round++;
+	}
+
+	/**
+	 * @return the number of moves that can be unmade
+	 */
+	public int depth() { return depth; }
+
+	/**
+	 * @return MrX's current location
+	 */
+	public int mrXLocation() { return rules.table.node(locations[MRX]); }
+
+	/**
+	 * @return the number of players, MrX included
+	 */
+	public int playerCount() { return locations.length; }
+
+	/**
+	 * @param player the player index: 0 for MrX, then the detectives in the order they move
+	 * @return the {@link TransportTable} index of the player's location
+	 */
+	public int locationIndex(int player) { return locations[player]; }
+
+	/**
+	 * @return whether it is MrX's turn
+	 */
+	public boolean isMrXTurn() { return (remaining & (1 << MRX)) != 0; }
+
+	/**
+	 * @return the number of entries in MrX's travel log
+	 */
+	public int round() { return round; }
+
+	/**
+	 * Kept up to date by {@link #make(long)} and {@link #unmake()} with a few xors.
+	 */
+	@Override public long hash() { return hash; }
+
+	@Override public void generateMoves(@Nonnull MoveList moves) {
+		if (getWinner().isEmpty()) rules.generate(locations, tickets, remaining, moves);
+	}
+
+	@Nonnull @Override public GameSetup getSetup() { return rules.setup; }
+
+	@Nonnull @Override public ImmutableSet<Piece> getPlayers() { return rules.players; }
+
+	@Nonnull @Override public Optional<Integer> getDetectiveLocation(Piece.Detective detective) {
+		int index = rules.indexOf(detective);
+		return index <= MRX ? Optional.empty() : Optional.of(rules.table.node(locations[index]));
+	}
+
+	/**
+	 * @param piece the player piece
+	 * @return a snapshot of the ticket board of the given player; empty if the player is not
+	 * part of the game
+	 */
+	@Nonnull @Override public Optional<TicketBoard> getPlayerTickets(Piece piece) {
+		int index = rules.indexOf(piece);
+		if (index < 0) return Optional.empty();
+		long packed = tickets[index];
+		return Optional.of(ticket -> count(packed, ticket));
+	}
+
+	@Nonnull @Override public ImmutableList<LogEntry> getMrXTravelLog() {
+		return ImmutableList.copyOf(Arrays.asList(log).subList(0, round));
+	}
+
+	@Nonnull @Override public ImmutableSet<Piece> getWinner() {
+		if (winner == null) winner = rules.winner(locations, tickets, remaining);
+		return winner;
+	}
+
+	@Nonnull @Override public ImmutableSet<Move> getAvailableMoves() {
+		var moves = new MoveList();
+		generateMoves(moves);
+		var builder = ImmutableSet.<Move>builderWithExpectedSize(moves.size());
+		for (int i = 0; i < moves.size(); i++) builder.add(rules.moves.canonical(moves.get(i)));
+		return builder.build();
+	}
+
+	@Override public String toString() {
+		var builder = new StringBuilder("SearchBoard{");
+		for (int i = 0; i < locations.length; i++) {
+			if (i > 0) builder.append(", ");
+			builder.append(rules.pieces[i]).append('@').append(rules.table.node(locations[i]));
+		}
+		return builder.append(", round=").append(round).append(", depth=").append(depth)
+				.append('}').toString();
+	}
+}
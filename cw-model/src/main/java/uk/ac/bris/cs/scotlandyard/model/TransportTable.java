@@ -0,0 +1,166 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * An immutable compressed-sparse-row view of a game graph.
+ * <br>
+ * Nodes are renumbered to dense indices (in ascending order of their node number), the edges
+ * leaving node index {@code i} are {@link #start(int)} (inclusive) to {@link #end(int)}
+ * (exclusive) and each edge stores its target index together with a bitmask of the
+ * {@link Transport}s on it and the {@link Ticket}s that can be used to travel along it. Every
+ * undirected edge of the graph appears once in each direction.
+ * <br>
+ * Use {@link #of(GameSetup)} to obtain the table; tables are built once per graph and cached for
+ * as long as the graph is reachable.
+ */
+public final class TransportTable {
+
+	private static final LoadingCache<ImmutableValueGraph<Integer, ImmutableSet<Transport>>,
+			TransportTable> CACHE = CacheBuilder.newBuilder()
+			.weakKeys() // compares graphs by identity
+			.build(CacheLoader.from(TransportTable::new));
+
+	private final int[] nodes;
+	private final int[] indices;
+	private final int[] offsets;
+	private final int[] targets;
+	private final byte[] transports;
+	private final byte[] tickets;
+
+	/**
+	 * @param setup the game setup
+	 * @return the table of the setup's graph
+	 */
+	@Nonnull public static TransportTable of(@Nonnull GameSetup setup) {
+		return of(setup.graph);
+	}
+
+	/**
+	 * @param graph the game graph
+	 * @return the table of the given graph
+	 */
+	@Nonnull public static TransportTable of(
+			@Nonnull ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		return CACHE.getUnchecked(Objects.requireNonNull(graph));
+	}
+
+	private TransportTable(ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		nodes = graph.nodes().stream().mapToInt(Integer::intValue).sorted().toArray();
+		int max = nodes.length == 0 ? -1 : nodes[nodes.length - 1];
+		if (nodes.length != 0 && nodes[0] < 0)
+			throw new IllegalArgumentException("Negative node " + nodes[0]);
+		indices = new int[max + 1];
+		Arrays.fill(indices, -1);
+		for (int i = 0; i < nodes.length; i++) indices[nodes[i]] = i;
+
+		offsets = new int[nodes.length + 1];
+		for (int i = 0; i < nodes.length; i++)
+			offsets[i + 1] = offsets[i] + graph.adjacentNodes(nodes[i]).size();
+		targets = new int[offsets[nodes.length]];
+		transports = new byte[targets.length];
+		tickets = new byte[targets.length];
+		for (int i = 0; i < nodes.length; i++) {
+			int[] adjacent = graph.adjacentNodes(nodes[i]).stream()
+					.mapToInt(Integer::intValue).sorted().toArray();
+			for (int j = 0; j < adjacent.length; j++) {
+				int edge = offsets[i] + j;
+				targets[edge] = indices[adjacent[j]];
+				for (Transport transport : graph.edgeValueOrDefault(nodes[i], adjacent[j], ImmutableSet.of())) {
+					transports[edge] |= 1 << transport.ordinal();
+					tickets[edge] |= 1 << transport.requiredTicket().ordinal();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int nodeCount() { return nodes.length; }
+
+	/**
+	 * @return the number of directed edges, twice the number of edges in the graph
+	 */
+	public int edgeCount() { return targets.length; }
+
+	/**
+	 * @param index the node index
+	 * @return the node number at the given index
+	 */
+	public int node(int index) { return nodes[index]; }
+
+	/**
+	 * @param node the node number
+	 * @return the dense index of the given node; -1 if the node is not part of the graph
+	 */
+	public int indexOf(int node) {
+		return node >= 0 && node < indices.length ? indices[node] : -1;
+	}
+
+	/**
+	 * @param index the node index
+	 * @return the first edge leaving the given node
+	 */
+	public int start(int index) { return offsets[index]; }
+
+	/**
+	 * @param index the node index
+	 * @return one past the last edge leaving the given node
+	 */
+	public int end(int index) { return offsets[index + 1]; }
+
+	/**
+	 * @param index the node index
+	 * @return the number of adjacent nodes
+	 */
+	public int degree(int index) { return offsets[index + 1] - offsets[index]; }
+
+	/**
+	 * @param edge the edge
+	 * @return the node index the given edge leads to
+	 */
+	public int target(int edge) { return targets[edge]; }
+
+	/**
+	 * @param edge the edge
+	 * @return a bitmask of {@link Transport#ordinal()}s available on the given edge
+	 */
+	public int transports(int edge) { return transports[edge]; }
+
+	/**
+	 * @param edge the edge
+	 * @return a bitmask of {@link Ticket#ordinal()}s required by the transports on the given
+	 * edge; {@link Ticket#SECRET} is only included for ferries
+	 */
+	public int tickets(int edge) { return tickets[edge]; }
+
+	/**
+	 * @param from the source node index
+	 * @param to the target node index
+	 * @return the edge between the two nodes; -1 if they are not adjacent
+	 */
+	public int edge(int from, int to) {
+		for (int edge = offsets[from], end = offsets[from + 1]; edge < end; edge++)
+			if (targets[edge] == to) return edge;
+		return -1;
+	}
+
+	/**
+	 * @param ticket the ticket
+	 * @return the bit of the ticket in {@link #tickets(int)} masks
+	 */
+	public static int bit(@Nonnull Ticket ticket) { return 1 << ticket.ordinal(); }
+}
@@ -0,0 +1,164 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A fixed-size table of search results keyed by {@link Zobrist} hash.
+ * <br>
+ * Each entry records the score of a position, whether the score is exact or only a bound, the
+ * depth it was searched to and the best move found there (encoded with {@link MoveCodec}). The
+ * table has one entry per slot, picked by the low bits of the hash, and keeps the deeper result
+ * when two positions compete for a slot. Entries left by earlier searches (see
+ * {@link #newSearch()}) are always replaced, so the table can be kept for a whole game.
+ * <br>
+ * Everything is stored in primitive arrays, without locks, and one table can be shared by threads
+ * searching at the same time. Each slot keeps the hash xor-ed with its data and move, so a slot
+ * torn by concurrent stores no longer matches any hash and reads as missing; {@link #probe}
+ * copies an entry out in one go for the same reason. Concurrent stores may lose entries.
+ */
+public final class TranspositionTable {
+
+	/**
+	 * The score is the exact value of the position
+	 */
+	public static final int EXACT = 0;
+	/**
+	 * The search failed high, the value is at least the score
+	 */
+	public static final int LOWER = 1;
+	/**
+	 * The search failed low, the value is at most the score
+	 */
+	public static final int UPPER = 2;
+
+	// data layout: score (32 bits), depth (8 bits), bound (2 bits), search (8 bits), used (1 bit)
+	private static final int DEPTH_SHIFT = 32;
+	private static final int BOUND_SHIFT = 40;
+	private static final int SEARCH_SHIFT = 42;
+	private static final long USED = 1L << 50;
+	private static final int MAX_DEPTH = 0xFF;
+
+	private final long[] keys;
+	private final long[] data;
+	private final long[] moves;
+	private final int mask;
+	private int search;
+
+	/**
+	 * @param capacity the number of entries, rounded up to a power of two
+	 * @throws IllegalArgumentException if the capacity is not positive or above 2^30
+	 */
+	public TranspositionTable(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("Capacity out of range: " + capacity);
+		int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		keys = new long[size];
+		data = new long[size];
+		moves = new long[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * @return the number of entries the table can hold
+	 */
+	public int capacity() { return keys.length; }
+
+	/**
+	 * Starts a new search, entries of earlier searches can still be found but make way for any
+	 * new entry.
+	 */
+	public void newSearch() { search = (search + 1) & 0xFF; }
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(data, 0);
+		Arrays.fill(moves, 0);
+		search = 0;
+	}
+
+	private int slot(long hash) { return (int) (hash ^ (hash >>> 32)) & mask; }
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param hash the position hash
+	 * @param entry receives the position's entry if there is one
+	 * @return whether the position has an entry
+	 */
+	public boolean probe(long hash, @Nonnull Entry entry) {
+		int slot = slot(hash);
+		long d = data[slot];
+		long m = moves[slot];
+		if (d == 0 || (keys[slot] ^ d ^ m) != hash) return false;
+		entry.data = d;
+		entry.move = m;
+		return true;
+	}
+
+	/**
+	 * Stores a search result. A different position in the same slot is only replaced if it was
+	 * stored by an earlier search or searched no deeper.
+	 *
+	 * @param hash the position hash
+	 * @param depth the depth searched, 0 to 255
+	 * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+	 * @param score the score
+	 * @param move the best move, {@link MoveCodec#NONE} if there is none
+	 * @return whether the result was stored
+	 * @throws IllegalArgumentException if the depth or the bound is out of range
+	 */
+	public boolean store(long hash, int depth, int bound, int score, long move) {
+		if (depth < 0 || depth > MAX_DEPTH)
+			throw new IllegalArgumentException("Depth out of range: " + depth);
+		if (bound < EXACT || bound > UPPER)
+			throw new IllegalArgumentException("Unknown bound: " + bound);
+		int slot = slot(hash);
+		long old = data[slot];
+		if (old != 0 && (keys[slot] ^ old ^ moves[slot]) != hash
+				&& (int) (old >>> SEARCH_SHIFT & 0xFF) == search
+				&& ((int) (old >>> DEPTH_SHIFT) & MAX_DEPTH) > depth) return false;
+		long d = (score & 0xFFFFFFFFL)
+				| (long) depth << DEPTH_SHIFT
+				| (long) bound << BOUND_SHIFT
+				| (long) search << SEARCH_SHIFT
+				| USED;
+		keys[slot] = hash ^ d ^ move;
+		data[slot] = d;
+		moves[slot] = move;
+		return true;
+	}
+
+	/**
+	 * A copy of one entry, filled in by {@link #probe}. Entries are mutable so that a search can
+	 * reuse one for every lookup.
+	 */
+	public static final class Entry {
+		private long data;
+		private long move;
+
+		/**
+		 * @return the stored score
+		 */
+		public int score() { return (int) data; }
+
+		/**
+		 * @return the depth the score was searched to
+		 */
+		public int depth() { return (int) (data >>> DEPTH_SHIFT) & MAX_DEPTH; }
+
+		/**
+		 * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+		 */
+		public int bound() { return (int) (data >>> BOUND_SHIFT) & 3; }
+
+		/**
+		 * @return the best move found, {@link MoveCodec#NONE} if none was stored
+		 */
+		public long move() { return move; }
+	}
+}
@@ -0,0 +1,101 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Zobrist keys of game positions.
+ * <br>
+ * The hash of a position is the xor of one key for the location of every player, one key for
+ * the count of every ticket of every player, one key for the set of players yet to move and one
+ * key for the number of entries in MrX's travel log. Making a move changes only a few of these,
+ * so states can update their hash with a handful of xors, see {@link PrimitiveBoard#hash()}.
+ * <br>
+ * Keys are derived from a fixed seed, so equal positions hash the same in every engine and every
+ * run, and no tables are needed for the thousands of possible ticket counts.
+ */
+public final class Zobrist {
+
+	private static final long SEED = 0x5DEECE66DL;
+
+	// the kind of key in the top bits of the key index
+	private static final long LOCATION = 1L << 60;
+	private static final long TICKETS = 2L << 60;
+	private static final long TO_MOVE = 3L << 60;
+	private static final long ROUND = 4L << 60;
+
+	private static final Ticket[] TICKET_VALUES = Ticket.values();
+
+	private Zobrist() {}
+
+	// SplitMix64, every index gets an independent looking key
+	private static long key(long index) {
+		long z = SEED + index * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @param piece the piece index, see {@link MoveTable#pieceIndex(Piece)}
+	 * @param node the node the piece is on
+	 * @return the key of the piece being on the node
+	 */
+	public static long location(int piece, int node) {
+		return key(LOCATION | (long) piece << 32 | node);
+	}
+
+	/**
+	 * @param piece the piece index, see {@link MoveTable#pieceIndex(Piece)}
+	 * @param ticket the ticket
+	 * @param count the number of tickets the piece holds
+	 * @return the key of the piece holding the given number of tickets
+	 */
+	public static long tickets(int piece, @Nonnull Ticket ticket, int count) {
+		return key(TICKETS | (long) piece << 32 | (long) ticket.ordinal() << 24 | count);
+	}
+
+	/**
+	 * @param pieces the players yet to move, bit i set for piece index i
+	 * @return the key of the given players being yet to move
+	 */
+	public static long toMove(int pieces) { return key(TO_MOVE | pieces); }
+
+	/**
+	 * @param round the number of entries in MrX's travel log
+	 * @return the key of the round
+	 */
+	public static long round(int round) { return key(ROUND | round); }
+
+	/**
+	 * Hashes a position from scratch.
+	 *
+	 * @param mrX MrX
+	 * @param detectives the detectives
+	 * @param toMove the players yet to move
+	 * @param round the number of entries in MrX's travel log
+	 * @return the hash of the position
+	 */
+	public static long hash(@Nonnull Player mrX,
+	                        @Nonnull List<Player> detectives,
+	                        @Nonnull Set<Piece> toMove,
+	                        int round) {
+		long hash = player(mrX) ^ round(round);
+		for (Player detective : detectives) hash ^= player(detective);
+		int pieces = 0;
+		for (Piece piece : toMove) pieces |= 1 << MoveTable.pieceIndex(piece);
+		return hash ^ toMove(pieces);
+	}
+
+	private static long player(Player player) {
+		int piece = MoveTable.pieceIndex(player.piece());
+		long hash = location(piece, player.location());
+		for (Ticket ticket : TICKET_VALUES)
+			hash ^= tickets(piece, ticket, player.tickets().getOrDefault(ticket, 0));
+		return hash;
+	}
+}
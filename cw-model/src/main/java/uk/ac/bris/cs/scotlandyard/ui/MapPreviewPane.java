@@ -5,10 +5,10 @@ import java.util.HashMap;
 import java.util.Map;
 
 import javafx.animation.TranslateTransition;
+import javafx.application.Platform;
 import javafx.geometry.Point2D;
 import javafx.scene.Node;
 import javafx.scene.effect.BlendMode;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
@@ -16,7 +16,6 @@ import javafx.scene.shape.Circle;
 import javafx.util.Duration;
 import uk.ac.bris.cs.fxkit.interpolator.DecelerateInterpolator;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
-import uk.ac.bris.cs.scotlandyard.ResourceManager.ImageResource;
 import uk.ac.bris.cs.scotlandyard.model.Piece;
 import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
@@ -37,15 +36,17 @@ public class MapPreviewPane extends Pane {
 		ImageView mapView = new ImageView();
 		Pane shadow = new Pane();
 		getChildren().addAll(mapView, shadow, annotations);
-		Image image = manager.getImage(ImageResource.MAP);
-		mapView.setImage(image);
 		shadow.setStyle("-fx-background-color: rgba(0,0, 0, 0.5)");
-		setMinSize(image.getWidth(), image.getHeight());
-//		resize(image.getWidth(), image.getHeight());
-		shadow.setPrefSize(image.getWidth(), image.getHeight());
-		annotations.setPrefSize(image.getWidth(), image.getHeight());
 		mask.setBlendMode(BlendMode.OVERLAY);
 		shadow.getChildren().add(mask);
+		// the setup screen shows while the map is still being decoded
+		manager.mapImage().thenAcceptAsync(image -> {
+			mapView.setImage(image);
+			setMinSize(image.getWidth(), image.getHeight());
+//			resize(image.getWidth(), image.getHeight());
+			shadow.setPrefSize(image.getWidth(), image.getHeight());
+			annotations.setPrefSize(image.getWidth(), image.getHeight());
+		}, Platform::runLater);
 	}
 
 	public void reset() {
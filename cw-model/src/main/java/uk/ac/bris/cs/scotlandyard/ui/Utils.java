@@ -2,7 +2,7 @@ package uk.ac.bris.cs.scotlandyard.ui;
 
 import com.google.common.base.Throwables;
 
-import java.io.IOException;
+import java.util.concurrent.CompletionException;
 
 import javafx.animation.FadeTransition;
 import javafx.animation.ScaleTransition;
@@ -66,11 +66,12 @@ public class Utils {
 	public static ResourceManager setupResources() {
 		Controller.setGlobalCSS("style/global.css");
 		ResourceManager manager = new ResourceManager();
-		try {
-			manager.loadAllResources();
-		} catch (IOException e) {
-			handleFatalException(e);
-		}
+		// Main shows the setup screen once the resources are ready, this is the one place reporting
+		// a failure
+		manager.loadAllResourcesAsync().exceptionally(e -> {
+			handleFatalException(e instanceof CompletionException ? e.getCause() : e);
+			return null;
+		});
 		return manager;
 	}
 
@@ -17,6 +17,7 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.MenuItem;
 import javafx.stage.Stage;
+import uk.ac.bris.cs.scotlandyard.AiRegistry;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
 import uk.ac.bris.cs.scotlandyard.ResourceManager.ImageResource;
 import uk.ac.bris.cs.scotlandyard.model.Board;
@@ -62,6 +63,8 @@ public final class LocalGameController extends BaseGameController<MapController>
 		MenuItem reset = new MenuItem("Reset (discards current game)");
 		newGame.setOnAction(e -> LocalGameController.newGame(resourceManager, new Stage()));
 		reset.setOnAction(e -> {
+			// stops the AIs of the discarded game
+			onApplicationStop();
 			getStage().close();
 			LocalGameController.newGame(resourceManager, new Stage());
 		});
@@ -73,7 +76,7 @@ public final class LocalGameController extends BaseGameController<MapController>
 	private void setupGame() {
 		var startScreen = new LocalSetupController(resourceManager, config,
 				ModelProperty.createDefault(resourceManager),
-				ResourceManager.scanAis(),
+				AiRegistry.ais(),
 				EnumSet.allOf(Features.class),
 				this::createGame);
 		showOverlay(startScreen.root());
@@ -183,6 +186,11 @@ public final class LocalGameController extends BaseGameController<MapController>
 	private void createGame(ModelProperty setup) {
 		hideOverlay();
 		try {
+			// the AIs of an earlier game may still be playing in another window, or were left
+			// midgame by a reset, so every game plays new ones
+			setup.mrXAiProperty().set(setup.getMrXAi().map(ai -> AiRegistry.create(ai.getClass())));
+			setup.detectivesAiProperty().set(
+					setup.getDetectivesAi().map(ai -> AiRegistry.create(ai.getClass())));
 			var modelFactory = (new MyModelFactory());
 			var model = modelFactory.build(new GameSetup(
 							setup.graphProperty().get(),
@@ -32,7 +32,6 @@ import javafx.fxml.FXML;
 import javafx.geometry.Point2D;
 import javafx.scene.Parent;
 import javafx.scene.effect.BlendMode;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.Pane;
@@ -49,7 +48,7 @@ import uk.ac.bris.cs.fxkit.BindFXML;
 import uk.ac.bris.cs.fxkit.Controller;
 import uk.ac.bris.cs.fxkit.interpolator.DecelerateInterpolator;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
-import uk.ac.bris.cs.scotlandyard.ResourceManager.ImageResource;
+import uk.ac.bris.cs.scotlandyard.metrics.Metrics;
 import uk.ac.bris.cs.scotlandyard.model.Ai;
 import uk.ac.bris.cs.scotlandyard.model.Board;
 import uk.ac.bris.cs.scotlandyard.model.Model;
@@ -130,10 +129,12 @@ class MapController implements Controller, GameControl {
 			}
 		});
 		historyPane.visibleProperty().bind(view.historyProperty());
-		Image image = manager.getImage(ImageResource.MAP);
-		mapView.setImage(image);
-		lockSize(image.getWidth(), image.getHeight(), root, historyPane, mask);
-		Platform.runLater(() -> gesturePane.zoomTo(0, Point2D.ZERO));
+		// the rest of the window shows while the map is still being decoded
+		manager.mapImage().thenAcceptAsync(image -> {
+			mapView.setImage(image);
+			lockSize(image.getWidth(), image.getHeight(), root, historyPane, mask);
+			gesturePane.zoomTo(0, Point2D.ZERO);
+		}, Platform::runLater);
 	}
 
 	private static void lockSize(double width, double height, Region... regions) {
@@ -224,7 +225,9 @@ class MapController implements Controller, GameControl {
 		drawMoveHighlights(moves);
 		aiExecutor.forEach(x -> x.submit(() -> {
 			try {
+				long start = System.nanoTime();
 				final var move = ai.pickMove(board.getCurrentBoard(), new Pair<>(config.timeoutProperty().get().getSeconds(), TimeUnit.SECONDS));
+				Metrics.AI_DECISION.recordSince(start);
 				if (!moves.contains(move)) {
 					Utils.handleFatalException(
 							new Exception("Ai(" + ai.name() + ") selected an invalid move, got: " + move + ", was expecting one of " + moves));
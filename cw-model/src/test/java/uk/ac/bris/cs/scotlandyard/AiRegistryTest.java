@@ -0,0 +1,63 @@
+package uk.ac.bris.cs.scotlandyard;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests finding AIs through the service files and through the classpath scan
+ */
+public class AiRegistryTest {
+
+	// listed in the service file of the test resources
+	public static final class IndexedAi implements Ai {
+		@Nonnull @Override public String name() { return "indexed"; }
+
+		@Nonnull @Override public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeout) {
+			return board.getAvailableMoves().iterator().next();
+		}
+	}
+
+	// implements Ai without being listed
+	public static final class UnlistedAi implements Ai {
+		@Nonnull @Override public String name() { return "unlisted"; }
+
+		@Nonnull @Override public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeout) {
+			return board.getAvailableMoves().iterator().next();
+		}
+	}
+
+	@Test public void testListedAisAreFoundOnceAndNeverShared() {
+		assertThat(AiRegistry.classes()).containsExactly(IndexedAi.class);
+		assertThat(AiRegistry.classes()).isSameAs(AiRegistry.classes());
+		assertThat(AiRegistry.ais()).hasSize(1);
+		assertThat(AiRegistry.ais().get(0)).isInstanceOf(IndexedAi.class);
+		assertThat(AiRegistry.ais().get(0)).isNotSameAs(AiRegistry.ais().get(0));
+		assertThat(AiRegistry.create(IndexedAi.class)).isNotSameAs(AiRegistry.create(IndexedAi.class));
+	}
+
+	@Test public void testScanFindsEveryConcreteAi() {
+		assertThat(AiRegistry.discover(true)).contains(IndexedAi.class, UnlistedAi.class);
+		assertThat(AiRegistry.discover(false)).doesNotContain(UnlistedAi.class);
+	}
+
+	@Test public void testAiWithoutConstructorCannotBeCreated() {
+		assertThatThrownBy(() -> AiRegistry.create(new Ai() {
+			@Nonnull @Override public String name() { return "anonymous"; }
+
+			@Nonnull @Override public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeout) {
+				throw new UnsupportedOperationException();
+			}
+		}.getClass())).isInstanceOf(IllegalArgumentException.class);
+	}
+}
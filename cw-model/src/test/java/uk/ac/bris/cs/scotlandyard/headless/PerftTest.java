@@ -0,0 +1,110 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24MOVES;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests perft counts against each other and against the moves of the states
+ */
+public class PerftTest {
+
+	private static GameSetup setup() throws Exception {
+		return new GameSetup(ScotlandYard.standardGraph(), STANDARD24MOVES);
+	}
+
+	private static Player mrX(int location) {
+		return new Player(MRX, defaultMrXTickets(), location);
+	}
+
+	// RED starts next to MrX, so some branches end in a capture
+	private static ImmutableList<Player> detectives() {
+		return ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 104),
+				new Player(BLUE, defaultDetectiveTickets(), 108),
+				new Player(GREEN, defaultDetectiveTickets(), 50));
+	}
+
+	@Test public void testShallowCountsAreTheMoves() throws Exception {
+		GameState state = new MyGameStateFactory().build(setup(), mrX(86), detectives());
+		assertThat(Perft.count(state, 0)).isEqualTo(1);
+		assertThat(Perft.count(state, 1)).isEqualTo(state.getAvailableMoves().size());
+		long afterMrX = 0;
+		for (Move move : state.getAvailableMoves()) afterMrX += state.advance(move).getAvailableMoves().size();
+		assertThat(Perft.count(state, 2)).isEqualTo(afterMrX);
+		assertThatThrownBy(() -> Perft.count(state, -1)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new Perft(1).divide(state, 0)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new Perft(0)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testFinishedGamesEndTheirBranch() throws Exception {
+		var noTickets = ImmutableMap.<Ticket, Integer>of();
+		// MrX cannot move, so the detectives have already won
+		GameState state = new MyGameStateFactory().build(setup(),
+				new Player(MRX, noTickets, 86), detectives());
+		assertThat(state.getWinner()).isNotEmpty();
+		assertThat(Perft.count(state, 0)).isEqualTo(1);
+		assertThat(Perft.count(state, 3)).isZero();
+	}
+
+	@Test public void testDivideAddsUpAndDoesNotDependOnThreads() throws Exception {
+		var setup = setup();
+		var serial = new Perft(1).divide(new MyGameStateFactory(), setup, mrX(86), detectives(), 4);
+		var parallel = new Perft(4).divide(new MyGameStateFactory(), setup, mrX(86), detectives(), 4);
+		assertThat(parallel.threads()).isEqualTo(4);
+		assertThat(parallel.depth()).isEqualTo(4);
+		assertThat(parallel.counts()).isEqualTo(serial.counts());
+		assertThat(parallel.differences(serial)).isEmpty();
+		assertThat(parallel.total()).isEqualTo(
+				Perft.count(new MyGameStateFactory().build(setup, mrX(86), detectives()), 4));
+		assertThat(parallel.statesPerSecond()).isPositive();
+	}
+
+	@Test public void testPackedFactoryGeneratesTheSameTree() throws Exception {
+		var setup = setup();
+		var perft = new Perft(2);
+		for (int seed = 0; seed < 3; seed++) {
+			var locations = ScotlandYard.generateDetectiveLocations(seed, 3);
+			var detectives = ImmutableList.of(new Player(RED, defaultDetectiveTickets(), locations.get(0)),
+					new Player(BLUE, defaultDetectiveTickets(), locations.get(1)),
+					new Player(GREEN, defaultDetectiveTickets(), locations.get(2)));
+			var mrX = mrX(ScotlandYard.generateMrXLocation(seed));
+			var expected = perft.divide(new MyGameStateFactory(), setup, mrX, detectives, 4);
+			var actual = perft.divide(new PackedGameStateFactory(), setup, mrX, detectives, 4);
+			assertThat(actual.differences(expected)).isEmpty();
+			assertThat(actual.total()).isEqualTo(expected.total()).isPositive();
+		}
+		var expected = perft.divide(new MyGameStateFactory(), setup, mrX(86), detectives(), 5);
+		var actual = perft.divide(new PackedGameStateFactory(), setup, mrX(86), detectives(), 5);
+		assertThat(actual.counts()).isEqualTo(expected.counts());
+	}
+
+	@Test public void testDifferencesNameTheRootMoves() throws Exception {
+		var setup = setup();
+		var perft = new Perft(1);
+		var near = perft.divide(new MyGameStateFactory(), setup, mrX(86), detectives(), 1);
+		var far = perft.divide(new MyGameStateFactory(), setup, mrX(86), detectives(), 2);
+		// every root move counts one state at depth 1 and more after the detectives move
+		assertThat(near.differences(far)).isEqualTo(near.counts().keySet());
+		assertThat(near.total()).isEqualTo(near.counts().size());
+	}
+}
@@ -0,0 +1,107 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.headless.GameResult.Outcome;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MoveCodec;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24MOVES;
+
+/**
+ * Tests the headless simulator with deterministic AIs
+ */
+public class SimulatorTest {
+
+	private static final Pair<Long, TimeUnit> TIMEOUT = new Pair<>(15L, TimeUnit.SECONDS);
+
+	// always picks the move with the smallest encoding
+	private static final class FirstMoveAi implements Ai {
+		@Nonnull @Override public String name() { return "first"; }
+
+		@Nonnull @Override public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeout) {
+			return board.getAvailableMoves().stream()
+					.min(Comparator.comparingLong(MoveCodec::encode)).orElseThrow();
+		}
+	}
+
+	private static Simulator simulator(int detectives, Ai detectiveAi) throws Exception {
+		return new Simulator(new GameSetup(ScotlandYard.standardGraph(), STANDARD24MOVES),
+				detectives, FirstMoveAi::new, () -> detectiveAi, TIMEOUT);
+	}
+
+	@Test public void testResultsDoNotDependOnThreads() throws Exception {
+		var simulator = simulator(3, new FirstMoveAi());
+		var serial = simulator.run(12, 100, 1);
+		var parallel = simulator.run(12, 100, 4);
+		assertThat(serial.games()).isEqualTo(12);
+		assertThat(parallel.threads()).isEqualTo(4);
+		for (int i = 0; i < 12; i++) {
+			var expected = serial.results().get(i);
+			var actual = parallel.results().get(i);
+			assertThat(actual.seed()).isEqualTo(100 + i);
+			assertThat(actual.outcome()).isEqualTo(expected.outcome()).isNotEqualTo(Outcome.FAILED);
+			assertThat(actual.rounds()).isEqualTo(expected.rounds());
+			assertThat(actual.mrXNanos()).hasSameSizeAs(expected.mrXNanos());
+		}
+		int total = 0;
+		for (Outcome outcome : Outcome.values()) total += parallel.count(outcome);
+		assertThat(total).isEqualTo(12);
+		assertThat(parallel.gamesPerSecond()).isPositive();
+		assertThat(parallel.latencyNanos(true, 50)).isLessThanOrEqualTo(parallel.latencyNanos(true, 99));
+		assertThat(parallel.moves(true)).isPositive();
+	}
+
+	@Test public void testFailingAiFailsTheGame() throws Exception {
+		var report = simulator(2, new Ai() {
+			@Nonnull @Override public String name() { return "broken"; }
+
+			@Nonnull @Override public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeout) {
+				throw new UnsupportedOperationException();
+			}
+		}).run(3, 0, 2);
+		assertThat(report.count(Outcome.FAILED)).isEqualTo(3);
+		assertThat(report.rate(Outcome.FAILED)).isEqualTo(1.0);
+		assertThat(report.results().get(0).failure())
+				.containsInstanceOf(UnsupportedOperationException.class);
+		assertThat(report.moves(true)).isEqualTo(3);
+		assertThat(report.results().get(0).faulted()).hasValueSatisfying(piece ->
+				assertThat(piece.isDetective()).isTrue());
+	}
+
+	@Test public void testLateMoveLosesOnTime() throws Exception {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), STANDARD24MOVES);
+		// no time at all, so MrX's first move is already too late
+		var noTime = new Pair<>(0L, TimeUnit.SECONDS);
+		var result = new Simulator(setup, 2, FirstMoveAi::new, FirstMoveAi::new, noTime, true).play(0);
+		assertThat(result.outcome()).isEqualTo(Outcome.TIMED_OUT);
+		assertThat(result.faulted()).contains(Piece.MrX.MRX);
+		assertThat(result.mrXNanos()).hasSize(1);
+		var untimed = new Simulator(setup, 2, FirstMoveAi::new, FirstMoveAi::new, noTime).play(0);
+		assertThat(untimed.outcome()).isNotEqualTo(Outcome.TIMED_OUT);
+		assertThat(untimed.faulted()).isEmpty();
+	}
+
+	@Test public void testIllegalArguments() throws Exception {
+		assertThatThrownBy(() -> simulator(0, new FirstMoveAi()))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> simulator(1, new FirstMoveAi()).run(1, 0, 0))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> simulator(1, new FirstMoveAi()).run(1, 0, 1).latencyNanos(true, 101))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
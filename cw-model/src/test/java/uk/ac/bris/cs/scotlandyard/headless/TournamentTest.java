@@ -0,0 +1,157 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MoveCodec;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24MOVES;
+
+/**
+ * Tests pairings, ratings and the CSV of tournaments between deterministic AIs
+ */
+public class TournamentTest {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final Pair<Long, TimeUnit> TIMEOUT = new Pair<>(15L, TimeUnit.SECONDS);
+
+	// picks the move with the smallest or the largest encoding
+	private static final class OrderedAi implements Ai {
+		private final boolean first;
+
+		OrderedAi(boolean first) { this.first = first; }
+
+		@Nonnull @Override public String name() { return first ? "first" : "last"; }
+
+		@Nonnull @Override public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeout) {
+			Comparator<Move> order = Comparator.comparingLong(MoveCodec::encode);
+			return board.getAvailableMoves().stream().min(first ? order : order.reversed()).orElseThrow();
+		}
+	}
+
+	private static final class BrokenAi implements Ai {
+		@Nonnull @Override public String name() { return "broken"; }
+
+		@Nonnull @Override public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeout) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	// plays MrX only, like the search AIs, and throws if seated as a detective
+	private static final class MrXOnlyAi implements Ai {
+		private final Ai moves = new OrderedAi(false);
+
+		@Nonnull @Override public String name() { return "mrX"; }
+
+		@Override public boolean plays(@Nonnull Piece side) { return side.isMrX(); }
+
+		@Nonnull @Override public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeout) {
+			if (board.getAvailableMoves().stream().anyMatch(move -> move.commencedBy().isDetective()))
+				throw new IllegalStateException("Seated as a detective");
+			return moves.pickMove(board, timeout);
+		}
+	}
+
+	private static Tournament tournament(ImmutableMap<String, Supplier<? extends Ai>> ais) throws Exception {
+		return new Tournament(new GameSetup(ScotlandYard.standardGraph(), STANDARD24MOVES), 3, ais, TIMEOUT);
+	}
+
+	@Test public void testEveryAiPlaysBothSides() throws Exception {
+		var report = tournament(ImmutableMap.of(
+				"first", () -> new OrderedAi(true),
+				"last", () -> new OrderedAi(false))).run(4, 10, 3);
+		assertThat(report.games()).hasSize(8);
+		assertThat(report.games()).filteredOn(game -> game.mrX().equals("first")).hasSize(4);
+		assertThat(report.ais()).containsExactlyInAnyOrder("first", "last");
+		double total = 0;
+		for (String ai : report.ais()) {
+			assertThat(report.games(ai)).isEqualTo(8);
+			assertThat(report.winRate(ai)).isBetween(0.0, 1.0);
+			assertThat(report.failures(ai)).isZero();
+			assertThat(report.moveNanos(ai).getCount()).isPositive();
+			total += report.rating(ai);
+		}
+		// ratings only move between the two players of a game
+		assertThat(total).isCloseTo(2 * TournamentReport.INITIAL_RATING, offset(1e-6));
+		assertThat(report.rating(report.ais().get(0))).isGreaterThanOrEqualTo(report.rating(report.ais().get(1)));
+		assertThat(report.winRate("first", true) + report.winRate("last", false)).isCloseTo(1.0, offset(1e-9));
+	}
+
+	@Test public void testFailingAiLosesOnEitherSide() throws Exception {
+		var report = tournament(ImmutableMap.of(
+				"first", () -> new OrderedAi(true),
+				"broken", BrokenAi::new)).run(3, 0, 2);
+		assertThat(report.failures("broken")).isEqualTo(6);
+		assertThat(report.winRate("broken")).isZero();
+		assertThat(report.winRate("first")).isEqualTo(1.0);
+		assertThat(report.rating("first")).isGreaterThan(TournamentReport.INITIAL_RATING);
+		assertThat(report.ais()).containsExactly("first", "broken");
+		assertThatThrownBy(() -> report.rating("missing")).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testAisOnlyPlayTheSidesTheyDeclare() throws Exception {
+		var tournament = tournament(ImmutableMap.of(
+				"first", () -> new OrderedAi(true),
+				"mrX", MrXOnlyAi::new));
+		assertThat(tournament.mrXAis()).containsExactly("first", "mrX");
+		assertThat(tournament.detectiveAis()).containsExactly("first");
+		var report = tournament.run(3, 0, 2);
+		assertThat(report.games()).hasSize(3).allMatch(game ->
+				game.mrX().equals("mrX") && game.detectives().equals("first"));
+		assertThat(report.failures("mrX")).isZero();
+		assertThat(report.games("mrX")).isEqualTo(3);
+		assertThat(report.winRate("mrX", true) + report.winRate("first", false)).isCloseTo(1.0, offset(1e-9));
+		// first never plays MrX and mrX never the detectives, which shows as no rate rather than 0%
+		assertThat(report.toString()).contains("-");
+	}
+
+	@Test public void testStandingsAreWrittenAsCsv() throws Exception {
+		var report = tournament(ImmutableMap.of(
+				"first", () -> new OrderedAi(true),
+				"last", () -> new OrderedAi(false))).run(2, 0, 1);
+		var directory = folder.getRoot().toPath().resolve("out");
+		report.writeCsv(directory);
+		var standings = Files.readAllLines(directory.resolve("standings.csv"));
+		assertThat(standings).hasSize(3);
+		assertThat(standings.get(0)).startsWith("ai,elo,games,win_rate");
+		assertThat(standings.get(1)).startsWith(report.ais().get(0) + ",");
+		assertThat(standings.get(1).split(",")).hasSameSizeAs(standings.get(0).split(","));
+		var games = Files.readAllLines(directory.resolve("games.csv"));
+		assertThat(games).hasSize(5);
+		assertThat(games.get(1)).startsWith("first,last,0,");
+	}
+
+	@Test public void testIllegalArguments() throws Exception {
+		assertThatThrownBy(() -> tournament(ImmutableMap.of("first", () -> new OrderedAi(true))))
+				.isInstanceOf(IllegalArgumentException.class);
+		// nobody is left to play the detectives
+		assertThatThrownBy(() -> tournament(ImmutableMap.of("mrX", MrXOnlyAi::new, "other", MrXOnlyAi::new)))
+				.isInstanceOf(IllegalArgumentException.class);
+		var tournament = tournament(ImmutableMap.of(
+				"first", () -> new OrderedAi(true),
+				"last", () -> new OrderedAi(false)));
+		assertThatThrownBy(() -> tournament.run(1, 0, 0)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> tournament.run(-1, 0, 1)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,82 @@
+package uk.ac.bris.cs.scotlandyard.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * Tests the buckets, statistics and concurrent recording of histograms
+ */
+public class HistogramTest {
+
+	@Test public void testBucketsCoverEveryValueWithinAThirtySecond() {
+		assertThat(Histogram.bucket(0)).isZero();
+		assertThat(Histogram.bucket(31)).isEqualTo(31);
+		assertThat(Histogram.bucket(32)).isEqualTo(32);
+		assertThat(Histogram.highest(Histogram.bucket(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+		var random = new Random(1);
+		for (int i = 0; i < 100_000; i++) {
+			long value = random.nextLong() >>> 1 + random.nextInt(63);
+			int bucket = Histogram.bucket(value);
+			long highest = Histogram.highest(bucket);
+			assertThat(highest).isGreaterThanOrEqualTo(value);
+			assertThat(highest - value).isLessThanOrEqualTo(value / 32);
+			if (bucket > 0) assertThat(Histogram.highest(bucket - 1)).isLessThan(value);
+		}
+	}
+
+	@Test public void testStatistics() {
+		var histogram = new Histogram("test", "units", true);
+		assertThat(histogram.getP50()).isZero();
+		assertThat(histogram.getMean()).isZero();
+		for (int value = 1; value <= 1000; value++) histogram.record(value);
+		histogram.record(-5);
+		assertThat(histogram.getCount()).isEqualTo(1001);
+		assertThat(histogram.getMax()).isEqualTo(1000);
+		assertThat(histogram.getMean()).isCloseTo(500.0, offset(0.5));
+		assertThat(histogram.getP50()).isBetween(500L, 500L + 500 / 32);
+		assertThat(histogram.getP99()).isBetween(990L, 990L + 990 / 32);
+		assertThat(histogram.percentile(100)).isEqualTo(1000);
+		assertThat(histogram.percentile(0)).isZero();
+		assertThatThrownBy(() -> histogram.percentile(101)).isInstanceOf(IllegalArgumentException.class);
+		histogram.reset();
+		assertThat(histogram.getCount()).isZero();
+		assertThat(histogram.getMax()).isZero();
+		assertThat(histogram.getP999()).isZero();
+	}
+
+	@Test public void testDisabledHistogramStaysEmpty() {
+		var histogram = new Histogram("test", "units", false);
+		histogram.record(42);
+		histogram.recordSince(System.nanoTime());
+		assertThat(histogram.enabled()).isFalse();
+		assertThat(histogram.getCount()).isZero();
+	}
+
+	@Test public void testConcurrentRecordsAreAllCounted() throws InterruptedException {
+		var histogram = new Histogram("test", "units", true);
+		var threads = new ArrayList<Thread>();
+		long[] maxima = new long[4];
+		for (int t = 0; t < 4; t++) {
+			int seed = t;
+			threads.add(new Thread(() -> {
+				var random = new Random(seed);
+				for (int i = 0; i < 100_000; i++) {
+					long value = random.nextInt(1_000_000);
+					maxima[seed] = Math.max(maxima[seed], value);
+					histogram.record(value);
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) thread.join();
+		assertThat(histogram.getCount()).isEqualTo(400_000);
+		assertThat(histogram.getMax()).isEqualTo(Arrays.stream(maxima).max().orElseThrow());
+	}
+}
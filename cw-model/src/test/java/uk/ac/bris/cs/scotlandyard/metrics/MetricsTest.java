@@ -0,0 +1,61 @@
+package uk.ac.bris.cs.scotlandyard.metrics;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Model;
+import uk.ac.bris.cs.scotlandyard.model.MyModelFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24MOVES;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests that a game is measured and that the measurements are visible over JMX
+ */
+public class MetricsTest {
+
+	@Test public void testGameIsMeasured() throws Exception {
+		assertThat(Metrics.enabled()).isTrue();
+		long states = Metrics.STATE_CONSTRUCTION.getCount();
+		long generated = Metrics.MOVES_GENERATED.getCount();
+		long fanOuts = Metrics.OBSERVER_FAN_OUT.getCount();
+		Model model = new MyModelFactory().build(new GameSetup(ScotlandYard.standardGraph(), STANDARD24MOVES),
+				new Player(MRX, defaultMrXTickets(), 45),
+				ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 94)));
+		model.registerObserver(new Model.Observer() {});
+		var move = model.getCurrentBoard().getAvailableMoves().iterator().next();
+		model.chooseMove(move);
+		// other tests may play at the same time, so at least
+		assertThat(Metrics.STATE_CONSTRUCTION.getCount()).isGreaterThanOrEqualTo(states + 2);
+		assertThat(Metrics.MOVES_GENERATED.getCount()).isGreaterThan(generated);
+		assertThat(Metrics.OBSERVER_FAN_OUT.getCount()).isGreaterThan(fanOuts);
+		assertThat(Metrics.MOVES_GENERATED.getMax()).isPositive();
+	}
+
+	@Test public void testHistogramsAreMBeans() throws Exception {
+		var server = ManagementFactory.getPlatformMBeanServer();
+		assertThat(Metrics.histograms()).containsOnlyKeys(
+				"stateConstruction", "movesGenerated", "observerFanOut", "aiDecision");
+		for (var entry : Metrics.histograms().entrySet()) {
+			var name = Metrics.objectName(entry.getKey());
+			assertThat(server.isRegistered(name)).isTrue();
+			assertThat(server.getAttribute(name, "Count")).isInstanceOf(Long.class);
+			assertThat(server.getAttribute(name, "Unit")).isEqualTo(entry.getValue().getUnit());
+		}
+		Metrics.AI_DECISION.record(1234);
+		var name = Metrics.objectName("aiDecision");
+		assertThat((Long) server.getAttribute(name, "Max")).isGreaterThanOrEqualTo(1234);
+		server.invoke(name, "reset", null, null);
+		assertThat(Metrics.AI_DECISION.getCount()).isZero();
+	}
+}
@@ -0,0 +1,60 @@
+package uk.ac.bris.cs.scotlandyard.metrics;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests recording of startup phases and that they are visible over JMX
+ */
+public class StartupTest {
+
+	@Test public void testPhasesAreRecordedOnceInOrder() {
+		long jvmStart = System.nanoTime() - 1_000_000_000L;
+		var startup = new Startup(true, jvmStart);
+		long start = System.nanoTime();
+		startup.recordSince("graph", start);
+		startup.recordSinceJvmStart("window");
+		startup.recordSince("graph", jvmStart);
+		assertThat(startup.getPhaseNanos()).containsOnlyKeys("graph", "window");
+		assertThat(startup.getPhaseNanos().keySet()).containsExactly("graph", "window");
+		assertThat(startup.getPhaseNanos().get("graph")).isNotNegative().isLessThan(1_000_000_000L);
+		assertThat(startup.getPhaseNanos().get("window")).isGreaterThanOrEqualTo(1_000_000_000L);
+		assertThat(startup.getFinishedNanos().get("window"))
+				.isEqualTo(startup.getPhaseNanos().get("window"));
+		assertThat(startup.getFinishedNanos().get("graph")).isGreaterThanOrEqualTo(1_000_000_000L);
+		assertThat(startup.toString()).contains("graph", "window");
+		startup.reset();
+		assertThat(startup.getPhaseNanos()).isEmpty();
+	}
+
+	@Test public void testDisabledRecordsNothing() {
+		var startup = new Startup(false);
+		startup.recordSinceJvmStart("window");
+		assertThat(startup.enabled()).isFalse();
+		assertThat(startup.getFinishedNanos()).isEmpty();
+	}
+
+	@Test public void testJvmStartIsInThePast() {
+		var startup = new Startup(true);
+		assertThat(startup.jvmStart()).isLessThan(System.nanoTime());
+		startup.recordSinceJvmStart("test");
+		assertThat(startup.getPhaseNanos().get("test"))
+				.isGreaterThanOrEqualTo(ManagementFactory.getRuntimeMXBean().getUptime() * 500_000L);
+	}
+
+	@Test public void testPhasesAreAnMBean() throws Exception {
+		var server = ManagementFactory.getPlatformMBeanServer();
+		var name = new ObjectName(Metrics.DOMAIN + ":type=Startup");
+		Metrics.STARTUP.recordSinceJvmStart("startupTest");
+		assertThat(server.isRegistered(name)).isTrue();
+		var phases = (TabularData) server.getAttribute(name, "PhaseNanos");
+		assertThat(phases.get(new Object[]{"startupTest"})).isNotNull();
+		assertThat(Metrics.STARTUP.getPhaseNanos()).containsKey("startupTest");
+	}
+}
@@ -3,6 +3,14 @@ package uk.ac.bris.cs.scotlandyard.model;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import uk.ac.bris.cs.scotlandyard.AiRegistryTest;
+import uk.ac.bris.cs.scotlandyard.headless.PerftTest;
+import uk.ac.bris.cs.scotlandyard.headless.SimulatorTest;
+import uk.ac.bris.cs.scotlandyard.headless.TournamentTest;
+import uk.ac.bris.cs.scotlandyard.metrics.HistogramTest;
+import uk.ac.bris.cs.scotlandyard.metrics.MetricsTest;
+import uk.ac.bris.cs.scotlandyard.metrics.StartupTest;
+
 /**
  * Includes all test for the actual game model
  */
@@ -15,6 +23,27 @@ import org.junit.runners.Suite;
 		GameStateDetectivesAvailableMovesTest.class,
 		GameStateMrXAvailableMovesTest.class,
 		GameStatePlayoutTest.class,
-		ModelObserverTest.class
+		ModelObserverTest.class,
+		TransportTableTest.class,
+		MoveTableTest.class,
+		MoveCodecTest.class,
+		GraphCodecTest.class,
+		PrimitiveBoardTest.class,
+		SearchBoardTest.class,
+		ZobristTest.class,
+		JointMoveGeneratorTest.class,
+		DistanceOracleTest.class,
+		TranspositionTableTest.class,
+		MoveOrdererTest.class,
+		CutoffStatsTest.class,
+		MrXBeliefTest.class,
+		EvalCacheTest.class,
+		SimulatorTest.class,
+		PerftTest.class,
+		HistogramTest.class,
+		MetricsTest.class,
+		StartupTest.class,
+		TournamentTest.class,
+		AiRegistryTest.class
 })
 public class AllTest {}
@@ -0,0 +1,47 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests counting cut-offs per depth and adding the counts of several threads
+ */
+public class CutoffStatsTest {
+
+	@Test public void testRatesPerDepth() {
+		var stats = new CutoffStats();
+		stats.searched(1);
+		stats.cutoff(1, 1);
+		stats.cutoff(1, 3);
+		stats.cutoff(1, 1);
+		stats.cutoff(40, 2);
+		assertThat(stats.nodes(1)).isEqualTo(4);
+		assertThat(stats.cutoffs(1)).isEqualTo(3);
+		assertThat(stats.cutoffRate(1)).isCloseTo(0.75, within(1e-9));
+		assertThat(stats.firstMoveRate(1)).isCloseTo(2 / 3.0, within(1e-9));
+		assertThat(stats.firstMoveRate(40)).isZero();
+		assertThat(stats.cutoffRate(2)).isZero();
+		assertThat(stats.nodes(100)).isZero();
+		assertThat(stats.toString()).contains("depth 40:", "depth  1:").doesNotContain("depth  2:");
+		assertThatThrownBy(() -> stats.searched(-1)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testAddAndClear() {
+		var a = new CutoffStats();
+		var b = new CutoffStats();
+		a.cutoff(2, 1);
+		b.cutoff(2, 2);
+		b.searched(30);
+		a.add(b);
+		assertThat(a.nodes(2)).isEqualTo(2);
+		assertThat(a.firstMoveRate(2)).isCloseTo(0.5, within(1e-9));
+		assertThat(a.nodes(30)).isEqualTo(1);
+		a.clear();
+		assertThat(a.nodes(2)).isZero();
+		assertThat(a.toString()).isEmpty();
+	}
+
+}
@@ -0,0 +1,74 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.ParameterisedModelTestBase.standard24MoveSetup;
+
+/**
+ * Tests the all-pairs distances against searches on the graph itself
+ */
+public class DistanceOracleTest {
+
+	// Bellman-Ford style relaxation straight on the graph, slow but obviously right
+	private static int[] distancesFrom(GameSetup setup, int source, int[] weights) {
+		int[] distances = new int[200];
+		Arrays.fill(distances, DistanceOracle.UNREACHABLE);
+		distances[source] = 0;
+		var queue = new ArrayDeque<Integer>();
+		queue.add(source);
+		while (!queue.isEmpty()) {
+			int from = queue.poll();
+			for (int to : setup.graph.adjacentNodes(from)) {
+				int cost = setup.graph.edgeValue(from, to).orElseThrow().stream()
+						.mapToInt(transport -> weights[transport.requiredTicket().ordinal()])
+						.min().orElseThrow();
+				if (distances[from] + cost < distances[to]) {
+					distances[to] = distances[from] + cost;
+					queue.add(to);
+				}
+			}
+		}
+		return distances;
+	}
+
+	@Test public void testDistancesMatchGraphSearch() throws Exception {
+		var setup = standard24MoveSetup();
+		var hops = DistanceOracle.hops(setup);
+		var weighted = DistanceOracle.weighted(setup,
+				ticket -> ticket == Ticket.BUS ? 2 : ticket == Ticket.UNDERGROUND ? 3 : 1);
+		for (int source : new int[]{1, 13, 45, 108, 157, 199}) {
+			int[] expectedHops = distancesFrom(setup, source, new int[]{1, 1, 1, 1, 1});
+			int[] expectedWeighted = distancesFrom(setup, source, new int[]{1, 2, 3, 1, 1});
+			for (int node : setup.graph.nodes()) {
+				assertThat(hops.distance(source, node)).isEqualTo(expectedHops[node]);
+				assertThat(hops.distance(node, source)).isEqualTo(expectedHops[node]);
+				assertThat(weighted.distance(source, node)).isEqualTo(expectedWeighted[node]);
+			}
+		}
+		var table = hops.table();
+		assertThat(hops.distanceByIndex(table.indexOf(1), table.indexOf(8))).isEqualTo(1);
+	}
+
+	@Test public void testOraclesAreCachedPerGraphAndWeights() throws Exception {
+		var setup = standard24MoveSetup();
+		assertThat(DistanceOracle.hops(setup)).isSameAs(DistanceOracle.hops(setup));
+		assertThat(DistanceOracle.weighted(setup, ticket -> 1)).isSameAs(DistanceOracle.hops(setup));
+		assertThat(DistanceOracle.weighted(setup, ticket -> 2)).isNotSameAs(DistanceOracle.hops(setup));
+	}
+
+	@Test public void testIllegalArguments() throws Exception {
+		var setup = standard24MoveSetup();
+		assertThatThrownBy(() -> DistanceOracle.weighted(setup, ticket -> 0))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> DistanceOracle.hops(setup).distance(0, 1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,114 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.ParameterisedModelTestBase.standard24MoveSetup;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests caching, keying and evicting evaluations, also from several threads
+ */
+public class EvalCacheTest {
+
+	@Test public void testCachedValueIsFoundAndCounted() {
+		var cache = new EvalCache(10);
+		assertThat(cache.capacity()).isEqualTo(16);
+		assertThat(cache.get(42)).isEqualTo(EvalCache.MISS);
+		cache.put(42, -7);
+		cache.put(0, Integer.MIN_VALUE);
+		assertThat(cache.get(42)).isEqualTo(-7);
+		assertThat(cache.get(0)).isEqualTo(Integer.MIN_VALUE);
+		cache.put(42, 9);
+		assertThat(cache.get(42)).isEqualTo(9);
+		assertThat(cache.hits()).isEqualTo(3);
+		assertThat(cache.misses()).isEqualTo(1);
+		assertThat(cache.hitRate()).isEqualTo(0.75);
+		cache.clear();
+		assertThat(cache.get(42)).isEqualTo(EvalCache.MISS);
+		assertThat(cache.hits()).isZero();
+		assertThatThrownBy(() -> new EvalCache(0)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testClockKeepsEntriesInUse() {
+		// a single bucket
+		var cache = new EvalCache(1);
+		assertThat(cache.capacity()).isEqualTo(4);
+		for (int key = 0; key < 4; key++) cache.put(key, key);
+		cache.get(0);
+		cache.get(1);
+		cache.get(3);
+		cache.put(4, 4);
+		// the one entry not looked up since it was cached made way
+		assertThat(cache.get(2)).isEqualTo(EvalCache.MISS);
+		for (int key : new int[]{0, 1, 3, 4}) assertThat(cache.get(key)).isEqualTo(key);
+		// with every entry in use, the hand clears them all and takes the next one
+		cache.put(5, 5);
+		assertThat(cache.get(5)).isEqualTo(5);
+		int cached = 0;
+		for (int key = 0; key < 5; key++) if (cache.get(key) != EvalCache.MISS) cached++;
+		assertThat(cached).isEqualTo(3);
+	}
+
+	@Test public void testKeyIsTheLocations() throws Exception {
+		var board = new SearchBoard(standard24MoveSetup(),
+				new Player(MRX, defaultMrXTickets(), 45),
+				ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 94),
+						new Player(BLUE, defaultDetectiveTickets(), 50)));
+		long start = EvalCache.key(board);
+		var moves = new MoveList();
+		board.generateMoves(moves);
+		var keys = new ArrayList<Long>();
+		for (int i = 0; i < moves.size(); i++) {
+			long move = moves.get(i);
+			board.make(move);
+			long key = EvalCache.key(board);
+			board.unmake();
+			// the same destination by another ticket or route is the same position
+			if (!keys.contains(key)) keys.add(key);
+			// a double move may end where it started
+			assertThat(key == start).isEqualTo(MoveCodec.destination(move) == 45);
+		}
+		var destinations = new ArrayList<Integer>();
+		for (int i = 0; i < moves.size(); i++) {
+			int destination = MoveCodec.destination(moves.get(i));
+			if (!destinations.contains(destination)) destinations.add(destination);
+		}
+		assertThat(keys).hasSameSizeAs(destinations);
+		assertThat(EvalCache.key(board)).isEqualTo(start);
+	}
+
+	@Test public void testConcurrentPutsNeverMixEntries() throws InterruptedException {
+		// every value is derived from its key, a mixed up entry would show
+		var cache = new EvalCache(64);
+		var failures = new AtomicInteger();
+		var threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			int seed = t;
+			threads.add(new Thread(() -> {
+				var random = new Random(seed);
+				for (int i = 0; i < 200_000; i++) {
+					long key = random.nextInt(1024);
+					long value = cache.get(key);
+					if (value != EvalCache.MISS && value != (int) (key * 31)) failures.incrementAndGet();
+					else if (value == EvalCache.MISS) cache.put(key, (int) (key * 31));
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) thread.join();
+		assertThat(failures.get()).isZero();
+		assertThat(cache.hits() + cache.misses()).isEqualTo(800_000);
+	}
+}
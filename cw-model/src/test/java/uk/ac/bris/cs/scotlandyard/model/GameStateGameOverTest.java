@@ -139,6 +139,22 @@ public class GameStateGameOverTest extends ParameterisedModelTestBase {
 		assertGameIsNotOver(state);
 	}
 
+	@Test public void testDetectivesWithTicketsButNoMovesAreSkipped() {
+		var mrX = new Player(MRX, defaultMrXTickets(), 86);
+		var blue = new Player(BLUE, defaultDetectiveTickets(), 108);
+		var red = new Player(RED, makeTickets(0, 4, 4, 0, 0), 2); // only taxis leave 2
+
+		GameState state = gameStateFactory.build(standard24MoveSetup(), mrX, blue, red);
+		state = state.advance(taxi(MRX, 86, 104));
+		// red holds tickets but cannot use any of them, only blue gets to move
+		assertThat(state.getAvailableMoves()).isNotEmpty()
+				.allMatch(move -> move.commencedBy() == BLUE);
+		state = state.advance(bus(BLUE, 108, 105));
+		// red is still stuck, so it is MrX's turn again rather than nobody's
+		assertGameIsNotOver(state);
+		assertThat(state.getAvailableMoves()).allMatch(move -> move.commencedBy().isMrX());
+	}
+
 	@Test public void testGameNotOverIfMrXCorneredButCanStillEscape() {
 		var mrX = new Player(MRX, defaultMrXTickets(), 40);
 		var blue = new Player(BLUE, makeTickets(0, 0, 0, 0, 0), 39);
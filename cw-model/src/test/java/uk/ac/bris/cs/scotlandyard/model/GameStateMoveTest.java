@@ -107,4 +107,17 @@ public class GameStateMoveTest extends ParameterisedModelTestBase {
 				.isInstanceOf(IllegalArgumentException.class);
 	}
 
+	@Test public void testAdvanceDoesNotModifyPreviousState() {
+		var mrX = new Player(MRX, defaultMrXTickets(), 35);
+		var blue = new Player(BLUE, defaultDetectiveTickets(), 26);
+		GameState state = gameStateFactory.build(standard24MoveSetup(), mrX, blue);
+		var moves = state.getAvailableMoves();
+		state.advance(taxi(MRX, 35, 22));
+		// the same move must still be legal from the original state
+		state.advance(taxi(MRX, 35, 22));
+		assertThat(state.getAvailableMoves()).isEqualTo(moves);
+		assertThat(state.getMrXTravelLog()).isEmpty();
+		assertTicketCount(state, MRX, 4, 3, 3, 2, 5);
+	}
+
 }
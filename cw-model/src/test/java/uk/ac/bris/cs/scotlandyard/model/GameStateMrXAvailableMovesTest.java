@@ -92,6 +92,27 @@ public class GameStateMrXAvailableMovesTest extends ParameterisedModelTestBase {
 				x2(MRX, 104, TAXI, 116, BUS, 142));
 	}
 
+	@Test public void testMrXMustHoldBothTicketsOfSecretDoubleMove() {
+		var mrX = new Player(MRX, makeTickets(1, 0, 0, 1, 1), 104);
+		var blue = new Player(BLUE, defaultDetectiveTickets(), 117);
+		GameState state = gameStateFactory.build(standard24MoveSetup(), mrX, blue);
+		assertThat(state.getAvailableMoves())
+				.contains(x2(MRX, 104, TAXI, 86, SECRET, 52),
+						x2(MRX, 104, SECRET, 86, TAXI, 69))
+				// no bus tickets, and only one secret ticket
+				.doesNotContain(x2(MRX, 104, SECRET, 86, BUS, 52),
+						x2(MRX, 104, SECRET, 86, SECRET, 52));
+	}
+
+	@Test public void testMrXNeedsTwoSecretTicketsToCrossTwoFerries() {
+		var mrX = new Player(MRX, makeTickets(4, 3, 3, 1, 1), 108);
+		var blue = new Player(BLUE, defaultDetectiveTickets(), 117);
+		GameState state = gameStateFactory.build(standard24MoveSetup(), mrX, blue);
+		assertThat(state.getAvailableMoves())
+				.contains(secret(MRX, 108, 115))
+				.doesNotContain(x2(MRX, 108, SECRET, 115, SECRET, 157));
+	}
+
 	@Test public void testMrXNoSecretMovesIfNoSecretMoveTickets() {
 		var mrX = new Player(MRX, makeTickets(4, 3, 3, 2, 0), 104);
 		var blue = new Player(BLUE, defaultDetectiveTickets(), 117);
@@ -0,0 +1,92 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ValueGraphBuilder;
+import com.google.common.io.Resources;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests the binary graph format, its loader and that graph.bin is up to date with graph.txt
+ */
+public class GraphCodecTest {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test public void testStandardGraphMatchesText() throws Exception {
+		var text = ScotlandYard.readGraph(Resources.toString(
+				Resources.getResource("graph.txt"), StandardCharsets.UTF_8));
+		var graph = ScotlandYard.standardGraph();
+		assertThat(graph).isEqualTo(text);
+		// graph.bin must be regenerated with GraphCodec.main whenever graph.txt changes
+		assertThat(Resources.toByteArray(Resources.getResource("graph.bin")))
+				.isEqualTo(GraphCodec.encode(text));
+		assertThat(ScotlandYard.standardGraph()).isSameAs(graph);
+	}
+
+	@Test public void testRoundTrip() {
+		var graph = ValueGraphBuilder.undirected().<Integer, ImmutableSet<Transport>>immutable()
+				.addNode(7)
+				.putEdgeValue(1, 65535, ImmutableSet.of(Transport.FERRY))
+				.putEdgeValue(1, 2, ImmutableSet.of(Transport.TAXI, Transport.BUS, Transport.UNDERGROUND))
+				.build();
+		var decoded = GraphCodec.decode(ByteBuffer.wrap(GraphCodec.encode(graph)));
+		assertThat(decoded).isEqualTo(graph);
+		assertThat(decoded.nodes()).containsExactlyElementsOf(graph.nodes());
+	}
+
+	@Test public void testSameContentIsDecodedOnce() throws Exception {
+		byte[] encoded = GraphCodec.encode(ValueGraphBuilder.undirected()
+				.<Integer, ImmutableSet<Transport>>immutable()
+				.putEdgeValue(3, 4, ImmutableSet.of(Transport.BUS))
+				.build());
+		var first = folder.newFile().toPath();
+		var second = folder.newFile().toPath();
+		Files.write(first, encoded);
+		Files.write(second, encoded);
+		var graph = GraphCodec.load(first);
+		assertThat(graph.hasEdgeConnecting(3, 4)).isTrue();
+		assertThat(GraphCodec.load(second)).isSameAs(graph);
+		assertThat(GraphCodec.load(first.toUri().toURL())).isSameAs(graph);
+		assertThat(GraphCodec.decode(ByteBuffer.wrap(encoded))).isNotSameAs(graph).isEqualTo(graph);
+	}
+
+	@Test public void testBadEncodingsThrow() throws Exception {
+		byte[] encoded = GraphCodec.encode(ScotlandYard.standardGraph());
+		assertThatThrownBy(() -> GraphCodec.decode(ByteBuffer.wrap(new byte[0])))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> GraphCodec.decode(ByteBuffer.wrap(Arrays.copyOf(encoded, encoded.length - 1))))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> GraphCodec.decode(ByteBuffer.wrap(Arrays.copyOf(encoded, encoded.length + 1))))
+				.isInstanceOf(IllegalArgumentException.class);
+		byte[] magic = encoded.clone();
+		magic[0] = 0;
+		assertThatThrownBy(() -> GraphCodec.decode(ByteBuffer.wrap(magic)))
+				.isInstanceOf(IllegalArgumentException.class);
+		byte[] transports = encoded.clone();
+		transports[transports.length - 1] = 0;
+		assertThatThrownBy(() -> GraphCodec.decode(ByteBuffer.wrap(transports)))
+				.isInstanceOf(IllegalArgumentException.class);
+		var file = folder.newFile().toPath();
+		Files.write(file, magic);
+		assertThatThrownBy(() -> GraphCodec.load(file)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> GraphCodec.encode(ValueGraphBuilder.directed()
+				.<Integer, ImmutableSet<Transport>>immutable().addNode(1).build()))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> GraphCodec.encode(ValueGraphBuilder.undirected()
+				.<Integer, ImmutableSet<Transport>>immutable().addNode(65536).build()))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,111 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ParameterisedModelTestBase.seededDetectives;
+import static uk.ac.bris.cs.scotlandyard.model.ParameterisedModelTestBase.standard24MoveSetup;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests the joint detective moves against trying every order of the detectives' moves
+ */
+public class JointMoveGeneratorTest {
+
+	private static SearchBoard board(int seed, int count) {
+		return new SearchBoard(standard24MoveSetup(),
+				new Player(MRX, defaultMrXTickets(), ScotlandYard.generateMrXLocation(seed)),
+				seededDetectives(seed, count));
+	}
+
+	// the hashes of the positions reached by every order of moves
+	private static void allOrders(SearchBoard board, Set<Long> reached) {
+		var moves = new MoveList();
+		board.generateMoves(moves);
+		if (moves.isEmpty() || MoveCodec.piece(moves.get(0)).isMrX()) {
+			reached.add(board.hash());
+			return;
+		}
+		for (int i = 0; i < moves.size(); i++) {
+			board.make(moves.get(i));
+			allOrders(board, reached);
+			board.unmake();
+		}
+	}
+
+	@Test public void testVisitsEveryDistinctPositionOnce() throws Exception {
+		var generator = new JointMoveGenerator();
+		for (int seed = 0; seed < 10; seed++) {
+			var board = board(seed, 1 + seed % 4);
+			var random = new Random(seed);
+			var moves = new MoveList();
+			// a few rounds in, so some detectives are close to each other or to MrX
+			for (int round = 0; round < 3 && board.getWinner().isEmpty(); round++) {
+				moves.clear();
+				board.generateMoves(moves);
+				board.make(moves.get(random.nextInt(moves.size())));
+
+				var expected = new HashSet<Long>();
+				allOrders(board, expected);
+				var visited = new HashSet<Long>();
+				long hash = board.hash();
+				int depth = board.depth();
+				generator.forEach(board, (position, path) -> {
+					assertThat(visited.add(position.hash())).isTrue();
+					assertThat(position.depth()).isEqualTo(depth + path.size());
+					return true;
+				});
+				assertThat(visited).isEqualTo(expected);
+				assertThat(board.hash()).isEqualTo(hash);
+				assertThat(generator.count(board)).isEqualTo(expected.size());
+
+				// move on to MrX's next turn along the first joint move
+				var path = new MoveList();
+				generator.forEach(board, (position, joint) -> {
+					path.addAll(joint);
+					return false;
+				});
+				for (int i = 0; i < path.size(); i++) board.make(path.get(i));
+			}
+		}
+	}
+
+	@Test public void testNestedWalksAndEarlyStop() throws Exception {
+		var generator = new JointMoveGenerator();
+		var board = board(4, 3);
+		var moves = new MoveList();
+		board.generateMoves(moves);
+		board.make(moves.get(0));
+		int[] visits = {0};
+		boolean finished = generator.forEach(board, (position, path) -> {
+			var mrXMoves = new MoveList();
+			position.generateMoves(mrXMoves);
+			if (!mrXMoves.isEmpty()) {
+				position.make(mrXMoves.get(0));
+				assertThat(generator.count(position)).isPositive();
+				position.unmake();
+			}
+			return ++visits[0] < 5;
+		});
+		assertThat(finished).isFalse();
+		assertThat(visits[0]).isEqualTo(5);
+		assertThat(board.depth()).isEqualTo(1);
+	}
+
+	@Test public void testMrXToMoveVisitsBoardOnly() throws Exception {
+		var board = board(2, 5);
+		int[] visits = {0};
+		new JointMoveGenerator().forEach(board, (position, path) -> {
+			assertThat(path.isEmpty()).isTrue();
+			visits[0]++;
+			return true;
+		});
+		assertThat(visits[0]).isEqualTo(1);
+	}
+
+}
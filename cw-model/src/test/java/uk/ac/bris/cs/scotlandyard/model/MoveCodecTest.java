@@ -0,0 +1,68 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.YELLOW;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+
+/**
+ * Tests the primitive move encoding and the move list
+ */
+public class MoveCodecTest {
+
+	@Test public void testSingleMoveRoundTrip() {
+		var move = new Move.SingleMove(YELLOW, 199, Ticket.UNDERGROUND, 1);
+		long encoded = MoveCodec.encode(move);
+		assertThat(encoded).isNotNegative();
+		assertThat(MoveCodec.isDouble(encoded)).isFalse();
+		assertThat(MoveCodec.piece(encoded)).isEqualTo(YELLOW);
+		assertThat(MoveCodec.source(encoded)).isEqualTo(199);
+		assertThat(MoveCodec.destination(encoded)).isEqualTo(1);
+		assertThat(MoveCodec.ticket1(encoded)).isEqualTo(Ticket.UNDERGROUND);
+		assertThat(MoveCodec.decode(encoded)).isEqualTo(move);
+	}
+
+	@Test public void testDoubleMoveRoundTrip() {
+		var move = new Move.DoubleMove(MRX, 65535, Ticket.SECRET, 2, Ticket.BUS, 65534);
+		long encoded = MoveCodec.encode(move);
+		assertThat(encoded).isNotNegative();
+		assertThat(MoveCodec.isDouble(encoded)).isTrue();
+		assertThat(MoveCodec.destination1(encoded)).isEqualTo(2);
+		assertThat(MoveCodec.destination(encoded)).isEqualTo(65534);
+		assertThat(MoveCodec.ticket2(encoded)).isEqualTo(Ticket.BUS);
+		assertThat(MoveCodec.decode(encoded)).isEqualTo(move);
+		assertThat(encoded).isNotEqualTo(MoveCodec.encode(
+				new Move.DoubleMove(MRX, 65535, Ticket.BUS, 2, Ticket.SECRET, 65534)));
+	}
+
+	@Test public void testNodesOutOfRangeThrow() {
+		assertThatThrownBy(() -> MoveCodec.encode(new Move.SingleMove(MRX, 65536, Ticket.TAXI, 1)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testMoveList() {
+		var moves = new MoveList(1);
+		for (long move = 0; move < 100; move++) moves.add(move);
+		assertThat(moves.size()).isEqualTo(100);
+		moves.swap(0, 99);
+		assertThat(moves.get(0)).isEqualTo(99);
+		assertThat(moves.get(99)).isEqualTo(0);
+		moves.set(1, 42);
+		assertThat(moves.contains(42)).isTrue();
+		moves.truncate(10);
+		assertThat(moves.size()).isEqualTo(10);
+		assertThat(moves.contains(50)).isFalse();
+		assertThatThrownBy(() -> moves.get(10)).isInstanceOf(IndexOutOfBoundsException.class);
+		var other = new MoveList();
+		other.add(7);
+		moves.addAll(other);
+		assertThat(moves.toArray()).hasSize(11).endsWith(7);
+		moves.clear();
+		assertThat(moves.isEmpty()).isTrue();
+	}
+
+}
@@ -0,0 +1,88 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ParameterisedModelTestBase.standard24MoveSetup;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests the order in which moves are picked: hash move, killers, history, static rank
+ */
+public class MoveOrdererTest {
+
+	private static SearchBoard board() throws Exception {
+		return new SearchBoard(standard24MoveSetup(),
+				new Player(MRX, defaultMrXTickets(), 104),
+				ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 117),
+						new Player(BLUE, defaultDetectiveTickets(), 50)));
+	}
+
+	// the moves in the order they are picked
+	private static List<Long> picked(MoveOrderer orderer, SearchBoard board, int ply, long hashMove) {
+		var moves = new MoveList();
+		moves.add(MoveCodec.NONE); // moves of an outer ply, left alone
+		board.generateMoves(moves);
+		orderer.score(board, moves, 1, ply, hashMove);
+		var order = new ArrayList<Long>();
+		for (int i = 1; i < moves.size(); i++) {
+			orderer.next(moves, 1, i, moves.size());
+			order.add(moves.get(i));
+		}
+		assertThat(moves.get(0)).isEqualTo(MoveCodec.NONE);
+		return order;
+	}
+
+	@Test public void testHashMoveThenKillersFirst() throws Exception {
+		var board = board();
+		var orderer = new MoveOrderer(DistanceOracle.hops(board.getSetup()));
+		var unordered = picked(orderer, board, 0, MoveCodec.NONE);
+		long hashMove = unordered.get(40), killer1 = unordered.get(20), killer2 = unordered.get(30);
+		// no depth left, so no history either
+		orderer.cutoff(killer1, 0, 0);
+		orderer.cutoff(killer2, 0, 0);
+		var order = picked(orderer, board, 0, hashMove);
+		assertThat(order).hasSameSizeAs(unordered).containsExactlyInAnyOrderElementsOf(unordered);
+		assertThat(order.subList(0, 3)).containsExactly(hashMove, killer2, killer1);
+		// killers belong to their ply
+		assertThat(picked(orderer, board, 1, MoveCodec.NONE).get(0)).isEqualTo(unordered.get(0));
+	}
+
+	@Test public void testStaticRankPrefersDistanceThenDegree() throws Exception {
+		var board = board();
+		var distances = DistanceOracle.hops(board.getSetup());
+		var table = distances.table();
+		var order = picked(new MoveOrderer(distances), board, 0, MoveCodec.NONE);
+		long previous = Long.MAX_VALUE;
+		for (long move : order) {
+			int destination = table.indexOf(MoveCodec.destination(move));
+			int nearest = Math.min(
+					distances.distanceByIndex(table.indexOf(117), destination),
+					distances.distanceByIndex(table.indexOf(50), destination));
+			long rank = (long) nearest << 8 | table.degree(destination);
+			assertThat(rank).isLessThanOrEqualTo(previous);
+			previous = rank;
+		}
+	}
+
+	@Test public void testHistoryOutlivesKillers() throws Exception {
+		var board = board();
+		var orderer = new MoveOrderer(DistanceOracle.hops(board.getSetup()));
+		var unordered = picked(orderer, board, 0, MoveCodec.NONE);
+		long last = unordered.get(unordered.size() - 1);
+		// recorded deeper in the tree, killers of another ply
+		orderer.cutoff(last, 5, 3);
+		orderer.newSearch();
+		assertThat(picked(orderer, board, 0, MoveCodec.NONE).get(0)).isEqualTo(last);
+	}
+
+}
@@ -0,0 +1,78 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ParameterisedModelTestBase.standard24MoveSetup;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests the interned moves of a graph and the move id sets
+ */
+public class MoveTableTest {
+
+	@Test public void testIdsRoundTrip() throws Exception {
+		var table = MoveTable.of(ScotlandYard.standardGraph());
+		int moves = 0;
+		for (int id = 0; id < table.size(); id++) {
+			Move move = table.move(id);
+			if (move == null) continue;
+			moves++;
+			assertThat(table.idOf(move)).isEqualTo(id);
+		}
+		assertThat(moves).isPositive();
+	}
+
+	@Test public void testMovesNotOnTheGraph() throws Exception {
+		var table = MoveTable.of(ScotlandYard.standardGraph());
+		// 1 and 2 are not adjacent, 1 to 8 is taxi only, detectives cannot double move
+		assertThat(table.idOf(new Move.SingleMove(RED, 1, Ticket.TAXI, 2))).isEqualTo(-1);
+		assertThat(table.idOf(new Move.SingleMove(RED, 1, Ticket.BUS, 8))).isEqualTo(-1);
+		assertThat(table.idOf(new Move.SingleMove(RED, 1, Ticket.DOUBLE, 8))).isEqualTo(-1);
+		assertThat(table.idOf(new Move.SingleMove(RED, 1000, Ticket.TAXI, 8))).isEqualTo(-1);
+		assertThat(table.idOf(new Move.DoubleMove(RED, 1, Ticket.TAXI, 8, Ticket.TAXI, 1)))
+				.isEqualTo(-1);
+		assertThat(table.idOf(new Move.SingleMove(RED, 1, Ticket.SECRET, 8))).isNotNegative();
+		assertThat(table.idOf(new Move.DoubleMove(MRX, 1, Ticket.TAXI, 8, Ticket.SECRET, 1)))
+				.isNotNegative();
+	}
+
+	@Test public void testGeneratedMovesAreCanonical() throws Exception {
+		var setup = standard24MoveSetup();
+		var table = MoveTable.of(setup);
+		for (var factory : ImmutableList.<ScotlandYard.Factory<Board.GameState>>of(
+				new MyGameStateFactory(), new PackedGameStateFactory())) {
+			var state = factory.build(setup,
+					new Player(MRX, defaultMrXTickets(), 45),
+					ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 94)));
+			assertThat(state.getAvailableMoves()).isNotEmpty();
+			for (Move move : state.getAvailableMoves())
+				assertThat(table.move(table.idOf(move))).isSameAs(move);
+		}
+	}
+
+	@Test public void testIdSet() {
+		var ids = new MoveTable.IdSet.Builder()
+				.add(700).add(3).add(64).add(3).add(63).build();
+		assertThat(ids.size()).isEqualTo(4);
+		assertThat(ids.contains(3)).isTrue();
+		assertThat(ids.contains(63)).isTrue();
+		assertThat(ids.contains(64)).isTrue();
+		assertThat(ids.contains(700)).isTrue();
+		assertThat(ids.contains(4)).isFalse();
+		assertThat(ids.contains(128)).isFalse();
+		assertThat(ids.contains(-1)).isFalse();
+		var seen = new StringBuilder();
+		ids.forEach(id -> seen.append(id).append(' '));
+		assertThat(seen.toString()).isEqualTo("3 63 64 700 ");
+		assertThat(MoveTable.IdSet.of().isEmpty()).isTrue();
+	}
+
+}
@@ -0,0 +1,126 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.ParameterisedModelTestBase.standard24MoveSetup;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests the candidate locations of MrX against the travel log
+ */
+public class MrXBeliefTest {
+
+	private static Set<Integer> locations(MrXBelief belief) {
+		var locations = new TreeSet<Integer>();
+		for (int location : belief.locations()) locations.add(location);
+		return locations;
+	}
+
+	// the nodes one journey away paid for with the ticket, straight from the graph
+	private static Set<Integer> step(GameSetup setup, Set<Integer> from, Ticket ticket) {
+		var to = new TreeSet<Integer>();
+		for (int node : from) {
+			for (int adjacent : setup.graph.adjacentNodes(node)) {
+				boolean payable = setup.graph.edgeValue(node, adjacent).orElseThrow().stream()
+						.anyMatch(transport -> ticket == Ticket.SECRET || transport.requiredTicket() == ticket);
+				if (payable) to.add(adjacent);
+			}
+		}
+		return to;
+	}
+
+	@Test public void testRevealThenHiddenMoves() throws Exception {
+		var belief = new MrXBelief(standard24MoveSetup());
+		assertThat(belief.count()).isEqualTo(199);
+		belief.add(LogEntry.reveal(Ticket.TAXI, 108));
+		assertThat(locations(belief)).containsExactly(108);
+		belief.add(LogEntry.hidden(Ticket.TAXI));
+		assertThat(locations(belief)).containsExactly(105, 117, 119);
+		belief.exclude(117);
+		assertThat(belief.contains(117)).isFalse();
+		assertThat(belief.count()).isEqualTo(2);
+		assertThat(belief.entries()).isEqualTo(2);
+		belief.reset();
+		assertThat(belief.count()).isEqualTo(199);
+		assertThat(belief.entries()).isZero();
+	}
+
+	@Test public void testOnlySecretTicketsCrossTheRiver() throws Exception {
+		var setup = standard24MoveSetup();
+		var belief = new MrXBelief(setup, ImmutableList.of(108));
+		belief.add(LogEntry.hidden(Ticket.SECRET));
+		assertThat(belief.contains(115)).isTrue();
+		assertThat(locations(belief)).isEqualTo(step(setup, Set.of(108), Ticket.SECRET));
+		belief.reset();
+		belief.add(LogEntry.hidden(Ticket.BUS));
+		assertThat(belief.contains(115)).isFalse();
+		assertThat(locations(belief)).isEqualTo(step(setup, Set.of(108), Ticket.BUS));
+	}
+
+	@Test public void testUpdatesFollowAGame() throws Exception {
+		var setup = standard24MoveSetup();
+		var random = new Random(7);
+		for (int game = 0; game < 20; game++) {
+			int mrX = ScotlandYard.MRX_LOCATIONS.get(random.nextInt(ScotlandYard.MRX_LOCATIONS.size()));
+			var detectives = ScotlandYard.generateDetectiveLocations(game, 2);
+			Board.GameState state = new MyGameStateFactory().build(setup,
+					new Player(MRX, defaultMrXTickets(), mrX),
+					ImmutableList.of(new Player(RED, defaultDetectiveTickets(), detectives.get(0)),
+							new Player(BLUE, defaultDetectiveTickets(), detectives.get(1))));
+			var belief = new MrXBelief(setup, ScotlandYard.MRX_LOCATIONS);
+			Set<Integer> expected = new TreeSet<>(ScotlandYard.MRX_LOCATIONS);
+			int seen = 0;
+			while (state.getWinner().isEmpty()) {
+				var moves = state.getAvailableMoves().asList();
+				var move = moves.get(random.nextInt(moves.size()));
+				if (move.commencedBy().isMrX()) mrX = move.accept(new Move.FunctionalVisitor<>(
+						single -> single.destination, doubleMove -> doubleMove.destination2));
+				state = state.advance(move);
+				belief.update(state);
+				var log = state.getMrXTravelLog();
+				for (; seen < log.size(); seen++) {
+					var entry = log.get(seen);
+					expected = entry.location().isPresent()
+							? new TreeSet<>(Set.of(entry.location().get()))
+							: step(setup, expected, entry.ticket());
+				}
+				for (Piece piece : state.getPlayers()) {
+					if (piece.isDetective())
+						expected.remove(state.getDetectiveLocation((Piece.Detective) piece).orElseThrow());
+				}
+				assertThat(locations(belief)).isEqualTo(expected);
+				assertThat(belief.entries()).isEqualTo(log.size());
+				if (state.getWinner().isEmpty()) assertThat(belief.contains(mrX)).isTrue();
+			}
+		}
+	}
+
+	@Test public void testRejectsUnknownLocationsAndRewoundLogs() throws Exception {
+		var setup = standard24MoveSetup();
+		assertThatThrownBy(() -> new MrXBelief(setup, ImmutableList.of(0)))
+				.isInstanceOf(IllegalArgumentException.class);
+		var belief = new MrXBelief(setup);
+		assertThatThrownBy(() -> belief.exclude(200)).isInstanceOf(IllegalArgumentException.class);
+		assertThat(belief.contains(200)).isFalse();
+		belief.add(LogEntry.hidden(Ticket.TAXI));
+		belief.add(LogEntry.hidden(Ticket.TAXI));
+		Board.GameState state = new MyGameStateFactory().build(setup,
+				new Player(MRX, defaultMrXTickets(), 45),
+				ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 94)));
+		assertThatThrownBy(() -> belief.update(state)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -73,14 +73,30 @@ import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.readGraph;
 	}
 
 	/**
-	 * @return the default graph used in the actual game
+	 * @return the default graph used in the actual game, also for tests that are not subclasses
 	 */
 	@Nonnull static ImmutableValueGraph<Integer, ImmutableSet<Transport>> standardGraph() {
+		if (defaultGraph == null) setUp();
 		return defaultGraph;
 	}
 
 	@Nonnull static GameSetup standard24MoveSetup() {
-		return new GameSetup(defaultGraph, STANDARD24MOVES);
+		return new GameSetup(standardGraph(), STANDARD24MOVES);
+	}
+
+	/**
+	 * @param seed the seed of {@link ScotlandYard#generateDetectiveLocations(int, int)}
+	 * @param count the number of detectives, 1 to 5
+	 * @return the first count detectives of {@link ScotlandYard#DETECTIVES} with the default
+	 * tickets at seeded locations
+	 */
+	@Nonnull static ImmutableList<Player> seededDetectives(int seed, int count) {
+		var locations = ScotlandYard.generateDetectiveLocations(seed, count);
+		var pieces = ScotlandYard.DETECTIVES.asList();
+		var detectives = ImmutableList.<Player>builder();
+		for (int i = 0; i < count; i++)
+			detectives.add(new Player(pieces.get(i), defaultDetectiveTickets(), locations.get(i)));
+		return detectives.build();
 	}
 
 	/**
@@ -0,0 +1,75 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeTrue;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests that encoded moves match {@link Board#getAvailableMoves()} for game states that are
+ * {@link PrimitiveBoard}s
+ */
+public class PrimitiveBoardTest extends ParameterisedModelTestBase {
+
+	private PrimitiveBoard.GameState build(long seed) {
+		var locations = ScotlandYard.generateDetectiveLocations((int) seed, 3);
+		GameState state = gameStateFactory.build(standard24MoveSetup(),
+				new Player(MRX, defaultMrXTickets(), ScotlandYard.generateMrXLocation((int) seed)),
+				ImmutableList.of(
+						new Player(RED, defaultDetectiveTickets(), locations.get(0)),
+						new Player(GREEN, defaultDetectiveTickets(), locations.get(1)),
+						new Player(BLUE, defaultDetectiveTickets(), locations.get(2))));
+		assumeTrue(state instanceof PrimitiveBoard.GameState);
+		return (PrimitiveBoard.GameState) state;
+	}
+
+	@Test public void testEncodedMovesMatchAvailableMoves() {
+		var moves = new MoveList();
+		for (long seed = 0; seed < 10; seed++) {
+			var random = new Random(seed);
+			var state = build(seed);
+			while (true) {
+				moves.clear();
+				state.generateMoves(moves);
+				var decoded = new HashSet<Move>();
+				for (int i = 0; i < moves.size(); i++) decoded.add(MoveCodec.decode(moves.get(i)));
+				assertThat(decoded).hasSize(moves.size());
+				assertThat(decoded).isEqualTo(state.getAvailableMoves());
+				if (moves.isEmpty()) break;
+				state = state.advance(moves.get(random.nextInt(moves.size())));
+			}
+		}
+	}
+
+	@Test public void testEncodedAdvanceMatchesAdvance() {
+		var state = build(42);
+		var move = state.getAvailableMoves().iterator().next();
+		var next = state.advance(MoveCodec.encode(move));
+		assertThat(next.getMrXTravelLog()).isEqualTo(state.advance(move).getMrXTravelLog());
+		assertThat(next.getAvailableMoves()).isEqualTo(state.advance(move).getAvailableMoves());
+	}
+
+	@Test public void testIllegalEncodedMoveThrows() {
+		var state = build(42);
+		assertThatThrownBy(() -> state.advance(MoveCodec.NONE))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> state.advance(MoveCodec.single(
+				MoveTable.pieceIndex(RED), 1, ScotlandYard.Ticket.TAXI, 8)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
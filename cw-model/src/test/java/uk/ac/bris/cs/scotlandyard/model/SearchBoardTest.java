@@ -0,0 +1,105 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.ParameterisedModelTestBase.seededDetectives;
+import static uk.ac.bris.cs.scotlandyard.model.ParameterisedModelTestBase.standard24MoveSetup;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests the mutable search board against {@link MyGameStateFactory}
+ */
+public class SearchBoardTest {
+
+	private static void assertSameBoard(SearchBoard board, Board expected) {
+		assertThat(board.getAvailableMoves()).isEqualTo(expected.getAvailableMoves());
+		assertThat(board.getWinner()).isEqualTo(expected.getWinner());
+		assertThat(board.getMrXTravelLog()).isEqualTo(expected.getMrXTravelLog());
+		assertThat(board.getPlayers()).isEqualTo(expected.getPlayers());
+		for (Piece piece : ScotlandYard.ALL_PIECES) {
+			if (piece.isDetective()) {
+				assertThat(board.getDetectiveLocation((Piece.Detective) piece))
+						.isEqualTo(expected.getDetectiveLocation((Piece.Detective) piece));
+			}
+			var tickets = board.getPlayerTickets(piece);
+			assertThat(tickets.isPresent()).isEqualTo(expected.getPlayerTickets(piece).isPresent());
+			for (Ticket ticket : Ticket.values()) {
+				tickets.ifPresent(actual -> assertThat(actual.getCount(ticket))
+						.isEqualTo(expected.getPlayerTickets(piece).orElseThrow().getCount(ticket)));
+			}
+		}
+	}
+
+	@Test public void testMakeAndUnmakeFollowGameState() throws Exception {
+		var moves = new MoveList();
+		for (int seed = 0; seed < 20; seed++) {
+			var random = new Random(seed);
+			var mrX = new Player(MRX, defaultMrXTickets(), ScotlandYard.generateMrXLocation(seed));
+			var detectives = seededDetectives(seed, 1 + seed % 5);
+			GameState state = new MyGameStateFactory().build(standard24MoveSetup(), mrX, detectives);
+			var board = new SearchBoard(standard24MoveSetup(), mrX, detectives);
+			var states = new ArrayList<GameState>();
+			while (true) {
+				assertSameBoard(board, state);
+				moves.clear();
+				board.generateMoves(moves);
+				if (moves.isEmpty()) break;
+				long move = moves.get(random.nextInt(moves.size()));
+				states.add(state);
+				state = state.advance(MoveCodec.decode(move));
+				board.make(move);
+				if (MoveCodec.piece(move).isMrX())
+					assertThat(board.mrXLocation()).isEqualTo(MoveCodec.destination(move));
+			}
+			assertThat(board.depth()).isEqualTo(states.size());
+			for (int i = states.size() - 1; i >= 0; i--) {
+				board.unmake();
+				assertSameBoard(board, states.get(i));
+			}
+			assertThatThrownBy(board::unmake).isInstanceOf(IllegalStateException.class);
+		}
+	}
+
+	@Test public void testIllegalMoveThrows() throws Exception {
+		var board = new SearchBoard(standard24MoveSetup(),
+				new Player(MRX, defaultMrXTickets(), 45), seededDetectives(1, 2));
+		assertThatThrownBy(() -> board.make(new Move.SingleMove(MRX, 1, Ticket.TAXI, 8)))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> board.make(MoveCodec.NONE))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(board.depth()).isZero();
+	}
+
+	@Test public void testCopyOfGameInProgress() throws Exception {
+		var mrX = new Player(MRX, defaultMrXTickets(), 45);
+		var detectives = seededDetectives(3, 5);
+		GameState state = new MyGameStateFactory().build(standard24MoveSetup(), mrX, detectives);
+		var random = new Random(3);
+		int location = mrX.location();
+		for (int i = 0; i < 9; i++) {
+			var moves = state.getAvailableMoves().asList();
+			var move = moves.get(random.nextInt(moves.size()));
+			if (move.commencedBy().isMrX()) location = MoveCodec.destination(MoveCodec.encode(move));
+			state = state.advance(move);
+		}
+		var board = SearchBoard.of(state, location);
+		assertSameBoard(board, state);
+		var copy = board.copy();
+		var moves = new MoveList();
+		copy.generateMoves(moves);
+		copy.make(moves.get(0));
+		assertSameBoard(board, state);
+		assertThat(copy.depth()).isEqualTo(1);
+		assertThat(board.depth()).isZero();
+	}
+
+}
@@ -0,0 +1,68 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ValueGraphBuilder;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24MOVES;
+
+/**
+ * Tests the compressed view of the game graph against the graph itself
+ */
+public class TransportTableTest {
+
+	@Test public void testMatchesStandardGraph() throws Exception {
+		var graph = ScotlandYard.standardGraph();
+		var table = TransportTable.of(graph);
+		assertThat(table.nodeCount()).isEqualTo(graph.nodes().size());
+		assertThat(table.edgeCount()).isEqualTo(graph.edges().size() * 2);
+		for (int node : graph.nodes()) {
+			int index = table.indexOf(node);
+			assertThat(table.node(index)).isEqualTo(node);
+			assertThat(table.degree(index)).isEqualTo(graph.adjacentNodes(node).size());
+			for (int edge = table.start(index); edge < table.end(index); edge++) {
+				int target = table.node(table.target(edge));
+				var transports = graph.edgeValue(node, target).orElseThrow();
+				for (Transport transport : Transport.values()) {
+					assertThat((table.transports(edge) & (1 << transport.ordinal())) != 0)
+							.isEqualTo(transports.contains(transport));
+				}
+				assertThat(table.edge(index, table.target(edge))).isEqualTo(edge);
+			}
+		}
+	}
+
+	@Test public void testFerryRequiresSecret() {
+		var table = TransportTable.of(ValueGraphBuilder.undirected()
+				.<Integer, ImmutableSet<Transport>>immutable()
+				.putEdgeValue(1, 2, ImmutableSet.of(Transport.FERRY, Transport.BUS))
+				.build());
+		int edge = table.edge(table.indexOf(1), table.indexOf(2));
+		assertThat(table.tickets(edge))
+				.isEqualTo(TransportTable.bit(Ticket.SECRET) | TransportTable.bit(Ticket.BUS));
+	}
+
+	@Test public void testMissingNodesAndEdges() {
+		var table = TransportTable.of(ValueGraphBuilder.undirected()
+				.<Integer, ImmutableSet<Transport>>immutable()
+				.putEdgeValue(1, 2, ImmutableSet.of(Transport.TAXI))
+				.addNode(5)
+				.build());
+		assertThat(table.indexOf(3)).isEqualTo(-1);
+		assertThat(table.indexOf(42)).isEqualTo(-1);
+		assertThat(table.degree(table.indexOf(5))).isZero();
+		assertThat(table.edge(table.indexOf(1), table.indexOf(5))).isEqualTo(-1);
+	}
+
+	@Test public void testCachedPerGraph() throws Exception {
+		var graph = ScotlandYard.standardGraph();
+		assertThat(TransportTable.of(new GameSetup(graph, STANDARD24MOVES)))
+				.isSameAs(TransportTable.of(graph));
+	}
+
+}
@@ -0,0 +1,116 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.TranspositionTable.EXACT;
+import static uk.ac.bris.cs.scotlandyard.model.TranspositionTable.LOWER;
+import static uk.ac.bris.cs.scotlandyard.model.TranspositionTable.UPPER;
+
+/**
+ * Tests storing, finding and replacing transposition table entries, also from several threads
+ */
+public class TranspositionTableTest {
+
+	// hashes landing in the same slot of a table with 16 entries
+	private static final long A = 0x1234_0000_0003L;
+	private static final long B = 0x5678_0000_0000L | (0x1234 ^ 0x5678) | 3;
+
+	@Test public void testStoredEntryIsFound() {
+		var table = new TranspositionTable(10);
+		assertThat(table.capacity()).isEqualTo(16);
+		var entry = new TranspositionTable.Entry();
+		assertThat(table.probe(A, entry)).isFalse();
+		long move = MoveCodec.single(0, 45, ScotlandYard.Ticket.TAXI, 46);
+		assertThat(table.store(A, 7, LOWER, -42, move)).isTrue();
+		assertThat(table.probe(A, entry)).isTrue();
+		assertThat(entry.depth()).isEqualTo(7);
+		assertThat(entry.bound()).isEqualTo(LOWER);
+		assertThat(entry.score()).isEqualTo(-42);
+		assertThat(entry.move()).isEqualTo(move);
+		assertThat(table.probe(A + 1, entry)).isFalse();
+	}
+
+	@Test public void testExtremeScoresRoundTrip() {
+		var table = new TranspositionTable(4);
+		var entry = new TranspositionTable.Entry();
+		table.store(A, 255, UPPER, Integer.MIN_VALUE, MoveCodec.NONE);
+		assertThat(table.probe(A, entry)).isTrue();
+		assertThat(entry.score()).isEqualTo(Integer.MIN_VALUE);
+		assertThat(entry.depth()).isEqualTo(255);
+		table.store(A, 0, EXACT, Integer.MAX_VALUE, MoveCodec.NONE);
+		assertThat(table.probe(A, entry)).isTrue();
+		assertThat(entry.score()).isEqualTo(Integer.MAX_VALUE);
+		assertThat(entry.move()).isEqualTo(MoveCodec.NONE);
+	}
+
+	@Test public void testDeeperEntriesArePreferred() {
+		var table = new TranspositionTable(16);
+		var entry = new TranspositionTable.Entry();
+		table.store(A, 5, EXACT, 1, MoveCodec.NONE);
+		// same slot, shallower: kept out
+		assertThat(table.store(B, 4, EXACT, 2, MoveCodec.NONE)).isFalse();
+		assertThat(table.probe(A, entry)).isTrue();
+		assertThat(table.probe(B, entry)).isFalse();
+		// as deep: replaces
+		assertThat(table.store(B, 5, EXACT, 2, MoveCodec.NONE)).isTrue();
+		assertThat(table.probe(A, entry)).isFalse();
+		// the same position is always updated
+		assertThat(table.store(B, 1, UPPER, 3, MoveCodec.NONE)).isTrue();
+		assertThat(table.probe(B, entry)).isTrue();
+		assertThat(entry.score()).isEqualTo(3);
+	}
+
+	@Test public void testEntriesOfEarlierSearchesMakeWay() {
+		var table = new TranspositionTable(16);
+		var entry = new TranspositionTable.Entry();
+		table.store(A, 9, EXACT, 1, MoveCodec.NONE);
+		table.newSearch();
+		assertThat(table.probe(A, entry)).isTrue();
+		assertThat(table.store(B, 1, EXACT, 2, MoveCodec.NONE)).isTrue();
+		assertThat(table.probe(B, entry)).isTrue();
+		table.clear();
+		assertThat(table.probe(B, entry)).isFalse();
+	}
+
+	@Test public void testIllegalArguments() {
+		assertThatThrownBy(() -> new TranspositionTable(0))
+				.isInstanceOf(IllegalArgumentException.class);
+		var table = new TranspositionTable(1);
+		assertThat(table.capacity()).isEqualTo(1);
+		assertThatThrownBy(() -> table.store(A, 256, EXACT, 0, MoveCodec.NONE))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> table.store(A, 1, 3, 0, MoveCodec.NONE))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testConcurrentStoresNeverMixEntries() throws InterruptedException {
+		// every entry's score and move are derived from its hash, a mixed up entry would show
+		var table = new TranspositionTable(64);
+		var failures = new AtomicInteger();
+		var threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			int seed = t;
+			threads.add(new Thread(() -> {
+				var entry = new TranspositionTable.Entry();
+				var random = new Random(seed);
+				for (int i = 0; i < 200_000; i++) {
+					long hash = random.nextInt(1024) * 0x9E37_79B9_7F4A_7C15L;
+					if (table.probe(hash, entry)
+							&& (entry.score() != (int) hash || entry.move() != ~hash))
+						failures.incrementAndGet();
+					table.store(hash, random.nextInt(8), EXACT, (int) hash, ~hash);
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) thread.join();
+		assertThat(failures.get()).isZero();
+	}
+
+}
@@ -0,0 +1,76 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ParameterisedModelTestBase.seededDetectives;
+import static uk.ac.bris.cs.scotlandyard.model.ParameterisedModelTestBase.standard24MoveSetup;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests that incrementally updated {@link Zobrist} hashes match hashes computed from scratch
+ */
+public class ZobristTest {
+
+	@Test public void testIncrementalHashMatchesHashFromScratch() throws Exception {
+		var moves = new MoveList();
+		for (int seed = 0; seed < 30; seed++) {
+			var random = new Random(seed);
+			var mrX = new Player(MRX, defaultMrXTickets(), ScotlandYard.generateMrXLocation(seed));
+			var detectives = seededDetectives(seed, 1 + seed % 5);
+			// MyGameState hashes every state from scratch
+			var expected = (PrimitiveBoard.GameState) new MyGameStateFactory()
+					.build(standard24MoveSetup(), mrX, detectives);
+			var packed = (PrimitiveBoard.GameState) new PackedGameStateFactory()
+					.build(standard24MoveSetup(), mrX, detectives);
+			var board = new SearchBoard(standard24MoveSetup(), mrX, detectives);
+			var hashes = new ArrayList<Long>();
+			while (true) {
+				assertThat(packed.hash()).isEqualTo(expected.hash());
+				assertThat(board.hash()).isEqualTo(expected.hash());
+				hashes.add(board.hash());
+				moves.clear();
+				board.generateMoves(moves);
+				if (moves.isEmpty()) break;
+				long move = moves.get(random.nextInt(moves.size()));
+				expected = expected.advance(move);
+				packed = packed.advance(move);
+				board.make(move);
+			}
+			// no position repeats within a game
+			assertThat(new HashSet<>(hashes)).hasSameSizeAs(hashes);
+			for (int i = hashes.size() - 2; i >= 0; i--) {
+				board.unmake();
+				assertThat(board.hash()).isEqualTo(hashes.get(i));
+			}
+		}
+	}
+
+	@Test public void testHashDoesNotDependOnDetectiveOrder() throws Exception {
+		var mrX = new Player(MRX, defaultMrXTickets(), 45);
+		var detectives = seededDetectives(7, 4);
+		var reversed = detectives.reverse();
+		var board = new SearchBoard(standard24MoveSetup(), mrX, detectives);
+		assertThat(new SearchBoard(standard24MoveSetup(), mrX, reversed).hash()).isEqualTo(board.hash());
+		assertThat(SearchBoard.of(board, 45).hash()).isEqualTo(board.hash());
+		assertThat(board.copy().hash()).isEqualTo(board.hash());
+	}
+
+	@Test public void testKeysDiffer() {
+		var keys = new HashSet<Long>();
+		for (int piece = 0; piece < ScotlandYard.ALL_PIECES.size(); piece++) {
+			for (int node = 1; node <= 199; node++) keys.add(Zobrist.location(piece, node));
+			for (ScotlandYard.Ticket ticket : ScotlandYard.Ticket.values())
+				for (int count = 0; count < 30; count++) keys.add(Zobrist.tickets(piece, ticket, count));
+		}
+		for (int pieces = 0; pieces < 64; pieces++) keys.add(Zobrist.toMove(pieces));
+		for (int round = 0; round < 30; round++) keys.add(Zobrist.round(round));
+		assertThat(keys).hasSize(6 * (199 + 5 * 30) + 64 + 30);
+	}
+
+}